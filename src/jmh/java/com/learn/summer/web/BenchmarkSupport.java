@@ -0,0 +1,76 @@
+package com.learn.summer.web;
+
+import com.learn.summer.context.AnnotationConfigApplicationContext;
+import com.learn.summer.io.PropertyResolver;
+import com.learn.summer.web.controller.ControllerConfiguration;
+import com.learn.summer.web.utils.JsonUtils;
+import jakarta.servlet.ServletException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockServletContext;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 基准测试共用的 DispatcherServlet 和 Mock 请求，与 DispatcherServletTest 使用相同的测试 Controller。
+ * 需在项目根目录下运行，模板和静态资源从 src/test/resources 读取。
+ */
+final class BenchmarkSupport {
+    final MockServletContext servletContext;
+    final AnnotationConfigApplicationContext applicationContext;
+    final DispatcherServlet servlet;
+
+    BenchmarkSupport(Map<String, String> properties) throws ServletException {
+        Path path = Path.of("./src/test/resources").toAbsolutePath().normalize();
+        this.servletContext = new MockServletContext("file://" + path);
+        this.servletContext.setRequestCharacterEncoding(StandardCharsets.UTF_8);
+        this.servletContext.setResponseCharacterEncoding(StandardCharsets.UTF_8);
+        WebMvcConfiguration.setServletContext(this.servletContext);
+        Properties ps = new Properties();
+        ps.put("app.title", "Benchmark App");
+        ps.put("app.version", "v1.0");
+        ps.put("summer.web.favicon-path", "/icon/favicon.ico");
+        ps.put("summer.web.freemarker.template-path", "/WEB-INF/templates");
+        ps.put("summer.web.freemarker.mode", "production");
+        ps.put("summer.web.static-cache.check-modified", "false");
+        ps.put("jdbc.username", "sa");
+        ps.put("jdbc.password", "");
+        ps.putAll(properties);
+        var propertyResolver = new PropertyResolver(ps);
+        this.applicationContext = new AnnotationConfigApplicationContext(ControllerConfiguration.class, propertyResolver);
+        this.servlet = new DispatcherServlet(this.applicationContext, propertyResolver);
+        this.servlet.init();
+    }
+
+    MockHttpServletRequest get(String path, Map<String, String> params) {
+        var req = new MockHttpServletRequest(this.servletContext, "GET", path);
+        req.setAsyncSupported(true);
+        params.forEach(req::addParameter);
+        return req;
+    }
+
+    MockHttpServletRequest postJson(String path, Object body) {
+        return postJson(path, JsonUtils.writeJson(body).getBytes(StandardCharsets.UTF_8));
+    }
+
+    MockHttpServletRequest postJson(String path, byte[] body) {
+        var req = new MockHttpServletRequest(this.servletContext, "POST", path);
+        req.setContentType("application/json");
+        req.setContent(body);
+        return req;
+    }
+
+    DispatcherServlet.Dispatcher getDispatcher(String url) {
+        return this.servlet.routes.getDispatchers().match(url).handler();
+    }
+
+    DispatcherServlet.Dispatcher postDispatcher(String url) {
+        return this.servlet.routes.postDispatchers().match(url).handler();
+    }
+
+    void close() {
+        this.servlet.destroy();
+    }
+}
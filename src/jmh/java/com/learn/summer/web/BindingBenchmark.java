@@ -0,0 +1,94 @@
+package com.learn.summer.web;
+
+import com.learn.summer.web.controller.ApiController;
+import com.learn.summer.web.utils.JsonUtils;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatcher 解析处理方法参数，每种 ParamType 一个方法。
+ * MockHttpServletRequest 的输入流只能读一次，REQUEST_BODY 每次新建请求，其开销包含在结果中。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BindingBenchmark {
+    BenchmarkSupport support;
+    DispatcherServlet.Dispatcher pathVariable;
+    DispatcherServlet.Dispatcher requestParam;
+    DispatcherServlet.Dispatcher converted;
+    DispatcherServlet.Dispatcher requestBody;
+    DispatcherServlet.Dispatcher servletVariable;
+    String[] names = { "alice" };
+    String[] ids = { "8a2e9c4e-5e7b-4bd0-9d3c-2f1c7c0a7b11" };
+    String[] none = {};
+    MockHttpServletRequest greetingRequest;
+    MockHttpServletRequest convertRequest;
+    MockHttpServletRequest signoutRequest;
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    byte[] signin;
+
+    @Setup
+    public void setup() throws ServletException {
+        this.support = new BenchmarkSupport(Map.of());
+        this.pathVariable = this.support.getDispatcher("/api/hello/alice");
+        this.requestParam = this.support.getDispatcher("/api/greeting");
+        this.converted = this.support.getDispatcher("/api/convert/" + this.ids[0]);
+        this.requestBody = this.support.postDispatcher("/api/register");
+        this.servletVariable = this.support.postDispatcher("/signout");
+        this.greetingRequest = this.support.get("/api/greeting", Map.of("name", "alice"));
+        this.convertRequest = this.support.get("/api/convert/" + this.ids[0], Map.of("date", "2024-06-01"));
+        this.convertRequest.addParameter("ids", "1", "2", "3");
+        this.signoutRequest = this.support.get("/signout", Map.of("name", "alice"));
+        var signin = new ApiController.SigninObj();
+        signin.name = "alice";
+        signin.password = "hello123";
+        this.signin = JsonUtils.writeJson(signin).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.support.close();
+    }
+
+    @Benchmark
+    public Object[] pathVariable() throws Exception {
+        return this.pathVariable.arguments(this.names, this.greetingRequest, this.response);
+    }
+
+    @Benchmark
+    public Object[] requestParam() throws Exception {
+        return this.requestParam.arguments(this.none, this.greetingRequest, this.response);
+    }
+
+    // UUID、LocalDate、long[] 和带默认值的枚举
+    @Benchmark
+    public Object[] convertedParams() throws Exception {
+        return this.converted.arguments(this.ids, this.convertRequest, this.response);
+    }
+
+    @Benchmark
+    public Object[] requestBody() throws Exception {
+        return this.requestBody.arguments(this.none, this.support.postJson("/api/register", this.signin), this.response);
+    }
+
+    @Benchmark
+    public Object[] servletVariable() throws Exception {
+        return this.servletVariable.arguments(this.none, this.signoutRequest, this.response);
+    }
+
+    // 参数解析加上处理方法调用
+    @Benchmark
+    public Object process() throws Exception {
+        return this.pathVariable.process(this.names, this.greetingRequest, this.response);
+    }
+}
@@ -0,0 +1,67 @@
+package com.learn.summer.web;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConverterRegistry 中常用类型的转换，即 @PathVariable / @RequestParam 的字符串到参数类型。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConverterBenchmark {
+    Converter<Integer> intConverter;
+    Converter<Long> longConverter;
+    Converter<UUID> uuidConverter;
+    Converter<LocalDate> dateConverter;
+    Converter<TimeUnit> enumConverter;
+    Converter<long[]> arrayConverter;
+
+    @Setup
+    public void setup() {
+        ConverterRegistry converters = new ConverterRegistry(List.of());
+        this.intConverter = converters.getConverter(int.class);
+        this.longConverter = converters.getConverter(Long.class);
+        this.uuidConverter = converters.getConverter(UUID.class);
+        this.dateConverter = converters.getConverter(LocalDate.class);
+        this.enumConverter = converters.getConverter(TimeUnit.class);
+        this.arrayConverter = converters.getConverter(long[].class);
+    }
+
+    @Benchmark
+    public Integer toInt() {
+        return this.intConverter.convert("12345");
+    }
+
+    @Benchmark
+    public Long toLong() {
+        return this.longConverter.convert("1234567890123");
+    }
+
+    @Benchmark
+    public UUID toUuid() {
+        return this.uuidConverter.convert("8a2e9c4e-5e7b-4bd0-9d3c-2f1c7c0a7b11");
+    }
+
+    @Benchmark
+    public LocalDate toLocalDate() {
+        return this.dateConverter.convert("2024-06-01");
+    }
+
+    @Benchmark
+    public TimeUnit toEnum() {
+        return this.enumConverter.convert("SECONDS");
+    }
+
+    @Benchmark
+    public long[] toLongArray() {
+        return this.arrayConverter.convert("1,2,3,4,5");
+    }
+}
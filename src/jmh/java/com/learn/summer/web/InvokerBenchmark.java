@@ -0,0 +1,45 @@
+package com.learn.summer.web;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 三种 summer.web.handler-invoker 调用同一个处理方法，参数预先解析好，只测量调用本身。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvokerBenchmark {
+
+    @Param({ HandlerInvoker.GENERATED, HandlerInvoker.METHOD_HANDLE, HandlerInvoker.REFLECTION })
+    String invoker;
+
+    BenchmarkSupport support;
+    HandlerInvoker handlerInvoker;
+    Object[] arguments;
+
+    @Setup
+    public void setup() throws Exception {
+        this.support = new BenchmarkSupport(Map.of("summer.web.handler-invoker", this.invoker));
+        var dispatcher = this.support.getDispatcher("/api/hello/alice");
+        this.handlerInvoker = dispatcher.invoker;
+        this.arguments = dispatcher.arguments(new String[] { "alice" },
+                this.support.get("/api/hello/alice", Map.of()), new MockHttpServletResponse());
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.support.close();
+    }
+
+    @Benchmark
+    public Object invoke() throws Exception {
+        return this.handlerInvoker.invoke(this.arguments);
+    }
+}
@@ -0,0 +1,95 @@
+package com.learn.summer.web;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.learn.summer.web.utils.JsonUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JsonUtils 读写一个包含嵌套对象和列表的订单，约 3KB，
+ * 对比每次通过 ObjectMapper 与预先创建的 ObjectReader / ObjectWriter（Dispatcher 的方式）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+    Order order;
+    byte[] json;
+    JsonUtils.TypedWriter writer;
+    ObjectReader reader;
+
+    @Setup
+    public void setup() {
+        this.order = new Order();
+        this.order.id = 1234567890L;
+        this.order.createdAt = "2024-06-01T12:30:00Z";
+        this.order.customer = new Customer();
+        this.order.customer.name = "Alice Liddell";
+        this.order.customer.email = "alice@example.com";
+        this.order.customer.address = Map.of("city", "Oxford", "street", "Christ Church", "zip", "OX1 1DP");
+        this.order.items = new ArrayList<>();
+        for(int i = 0; i < 20; i++) {
+            Item item = new Item();
+            item.sku = "SKU-" + (100000 + i);
+            item.name = "Summer Software License " + i;
+            item.quantity = i % 3 + 1;
+            item.price = new BigDecimal("19.99").add(BigDecimal.valueOf(i));
+            item.tags = List.of("software", "license", i % 2 == 0 ? "annual" : "monthly");
+            this.order.items.add(item);
+        }
+        this.json = JsonUtils.writeJson(this.order).getBytes(StandardCharsets.UTF_8);
+        this.writer = JsonUtils.writerFor(Order.class);
+        this.reader = JsonUtils.readerFor(Order.class);
+    }
+
+    @Benchmark
+    public String writeString() {
+        return JsonUtils.writeJson(this.order);
+    }
+
+    @Benchmark
+    public byte[] writeBytes() throws IOException {
+        return this.writer.writeValueAsBytes(this.order);
+    }
+
+    @Benchmark
+    public Map<String, Object> readAsMap() {
+        return JsonUtils.readJsonAsMap(new String(this.json, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public Order readObject() throws IOException {
+        return this.reader.readValue(this.json);
+    }
+
+    public static class Order {
+        public long id;
+        public String createdAt;
+        public Customer customer;
+        public List<Item> items;
+    }
+
+    public static class Customer {
+        public String name;
+        public String email;
+        public Map<String, String> address;
+    }
+
+    public static class Item {
+        public String sku;
+        public String name;
+        public int quantity;
+        public BigDecimal price;
+        public List<String> tags;
+    }
+}
@@ -0,0 +1,83 @@
+package com.learn.summer.web;
+
+import com.learn.summer.web.utils.PathUtils;
+import com.learn.summer.web.utils.RouteTrie;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 路由匹配：RouteTrie 与逐个尝试 PathUtils.compile() 正则的线性查找对比，目标 URL 取最后注册的一组路由。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoutingBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    int routes;
+
+    RouteTrie<String> trie;
+    List<Pattern> patterns;
+    String staticUrl;
+    String variableUrl;
+    String missingUrl;
+
+    @Setup
+    public void setup() throws ServletException {
+        this.trie = new RouteTrie<>();
+        this.patterns = new ArrayList<>();
+        // 每组三种路由：全静态、单个路径变量、多个路径变量
+        for(int i = 0; i < this.routes; i++) {
+            String prefix = "/api/v1/resource" + i / 3;
+            add(switch (i % 3) {
+                case 0 -> prefix + "/items";
+                case 1 -> prefix + "/{id}";
+                default -> prefix + "/{id}/items/{itemId}";
+            });
+        }
+        // 最后一个完整的组
+        int last = this.routes / 3 - 1;
+        this.staticUrl = "/api/v1/resource" + last + "/items";
+        this.variableUrl = "/api/v1/resource" + last + "/12345/items/678";
+        this.missingUrl = "/api/v2/unknown/12345";
+    }
+
+    void add(String path) throws ServletException {
+        this.trie = this.trie.with(path, path);
+        this.patterns.add(PathUtils.compile(path));
+    }
+
+    @Benchmark
+    public RouteTrie.Match<String> trieStatic() {
+        return this.trie.match(this.staticUrl);
+    }
+
+    @Benchmark
+    public RouteTrie.Match<String> trieVariable() {
+        return this.trie.match(this.variableUrl);
+    }
+
+    @Benchmark
+    public RouteTrie.Match<String> trieMissing() {
+        return this.trie.match(this.missingUrl);
+    }
+
+    @Benchmark
+    public Matcher regexVariable() {
+        for(Pattern pattern : this.patterns) {
+            Matcher matcher = pattern.matcher(this.variableUrl);
+            if(matcher.matches())
+                return matcher;
+        }
+        return null;
+    }
+}
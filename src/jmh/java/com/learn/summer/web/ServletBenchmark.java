@@ -0,0 +1,82 @@
+package com.learn.summer.web;
+
+import com.learn.summer.web.controller.ApiController;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 完整的 DispatcherServlet.service：路由、参数解析、调用、序列化或渲染、写出响应。
+ * 每次新建 Mock 请求和响应，配合 -prof gc 观察每个请求的分配量（gc.alloc.rate.norm）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServletBenchmark {
+
+    // 分别测量关闭和开启指标记录时的开销
+    @Param({ "false", "true" })
+    String metrics;
+
+    BenchmarkSupport support;
+    ApiController.SigninObj signin;
+
+    @Setup
+    public void setup() throws ServletException {
+        this.support = new BenchmarkSupport(Map.of("summer.web.metrics.enabled", this.metrics));
+        this.signin = new ApiController.SigninObj();
+        this.signin.name = "alice";
+        this.signin.password = "hello123";
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.support.close();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse restPathVariable() throws ServletException, IOException {
+        return service(this.support.get("/api/hello/alice", Map.of()));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse restConverted() throws ServletException, IOException {
+        var req = this.support.get("/api/convert/8a2e9c4e-5e7b-4bd0-9d3c-2f1c7c0a7b11", Map.of("date", "2024-06-01"));
+        req.addParameter("ids", "1", "2", "3");
+        return service(req);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse restRequestBody() throws ServletException, IOException {
+        return service(this.support.postJson("/api/register", this.signin));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse restStream() throws ServletException, IOException {
+        return service(this.support.get("/api/stream", Map.of("count", "100")));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse mvcView() throws ServletException, IOException {
+        return service(this.support.get("/product/123", Map.of("name", "alice")));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse staticResource() throws ServletException, IOException {
+        return service(this.support.get("/static/app.css", Map.of()));
+    }
+
+    MockHttpServletResponse service(HttpServletRequest req) throws ServletException, IOException {
+        var resp = new MockHttpServletResponse();
+        this.support.servlet.service(req, resp);
+        return resp;
+    }
+}
@@ -0,0 +1,46 @@
+package com.learn.summer.web;
+
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FreeMarkerViewResolver.render，模板在 production 模式下预先编译。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ViewBenchmark {
+    BenchmarkSupport support;
+    ViewResolver viewResolver;
+    MockHttpServletRequest request;
+    Map<String, Object> model;
+
+    @Setup
+    public void setup() throws ServletException {
+        this.support = new BenchmarkSupport(Map.of());
+        this.viewResolver = this.support.servlet.viewResolver;
+        this.request = this.support.get("/product/123", Map.of());
+        this.model = Map.of("name", "alice", "product", Map.of("id", "123", "name", "Summer Software"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.support.close();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse render() throws ServletException, IOException {
+        var resp = new MockHttpServletResponse();
+        this.viewResolver.render("/product.html", this.model, this.request, resp);
+        return resp;
+    }
+}
@@ -0,0 +1,250 @@
+package com.learn.summer.web.server;
+
+import com.learn.summer.web.utils.LatencyHistogram;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于 keep-alive 长连接的 HTTP/1.1 负载生成器，每个连接一个平台线程，避免与服务器的虚拟线程争用载体线程。
+ * <ul>
+ *     <li>闭环：固定并发数，每个连接收到响应后立即发送下一个请求，测量最大吞吐量；</li>
+ *     <li>开环：按固定速率均匀发送，请求 k 的计划发送时间为 start + k / rate，轮流分配到各连接。
+ *     耗时从计划发送时间算起，服务器变慢时排队的时间也计入（避免 coordinated omission）。</li>
+ * </ul>
+ */
+class LoadGenerator {
+    final String host;
+    final int port;
+
+    LoadGenerator(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    Stats closedLoop(byte[] request, int concurrency, long durationNanos) throws InterruptedException {
+        var stats = new Stats();
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        run(concurrency, i -> {
+            Connection conn = null;
+            try {
+                while(System.nanoTime() < deadline) {
+                    if(conn == null)
+                        conn = new Connection(this.host, this.port);
+                    long t = System.nanoTime();
+                    try {
+                        stats.record(conn.exchange(request), System.nanoTime() - t);
+                    } catch (IOException e) {
+                        stats.errors.increment();
+                        conn.close();
+                        conn = null;
+                    }
+                }
+            } finally {
+                if(conn != null)
+                    conn.close();
+            }
+        });
+        stats.elapsed = System.nanoTime() - start;
+        return stats;
+    }
+
+    Stats openLoop(byte[] request, double rate, int connections, long durationNanos) throws InterruptedException {
+        var stats = new Stats();
+        long interval = (long) (1_000_000_000 / rate);
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        run(connections, i -> {
+            Connection conn = null;
+            try {
+                // 连接 i 负责第 i, i + connections, i + 2 * connections... 个请求
+                for(long k = i; ; k += connections) {
+                    long intended = start + k * interval;
+                    if(intended >= deadline)
+                        break;
+                    long wait;
+                    while((wait = intended - System.nanoTime()) > 0)
+                        LockSupport.parkNanos(wait);
+                    if(conn == null)
+                        conn = new Connection(this.host, this.port);
+                    try {
+                        int status = conn.exchange(request);
+                        stats.record(status, System.nanoTime() - intended);
+                    } catch (IOException e) {
+                        stats.errors.increment();
+                        conn.close();
+                        conn = null;
+                    }
+                }
+            } finally {
+                if(conn != null)
+                    conn.close();
+            }
+        });
+        stats.elapsed = System.nanoTime() - start;
+        return stats;
+    }
+
+    void run(int threads, Worker worker) throws InterruptedException {
+        List<Thread> list = new ArrayList<>(threads);
+        List<Throwable> failures = new ArrayList<>();
+        for(int i = 0; i < threads; i++) {
+            int n = i;
+            list.add(Thread.ofPlatform().name("load-generator-" + i).start(() -> {
+                try {
+                    worker.run(n);
+                } catch (IOException e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        for(Thread t : list)
+            t.join();
+        if(!failures.isEmpty())
+            throw new IllegalStateException("Unable to connect to " + this.host + ":" + this.port, failures.getFirst());
+    }
+
+    interface Worker {
+        void run(int index) throws IOException;
+    }
+
+    static byte[] get(String path) {
+        return ("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    static byte[] post(String path, String contentType, String body) {
+        byte[] data = body.getBytes(StandardCharsets.UTF_8);
+        String head = "POST " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Type: " + contentType
+                + "\r\nContent-Length: " + data.length + "\r\n\r\n";
+        var out = new ByteArrayOutputStream();
+        out.writeBytes(head.getBytes(StandardCharsets.ISO_8859_1));
+        out.writeBytes(data);
+        return out.toByteArray();
+    }
+
+    /**
+     * 一次运行的统计，状态码不是 2xx 或连接出错都计为错误
+     */
+    static class Stats {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        long elapsed;
+
+        void record(int status, long nanos) {
+            if(status >= 200 && status < 300)
+                this.histogram.record(nanos);
+            else
+                this.errors.increment();
+        }
+    }
+
+    /**
+     * 客户端连接，同一时刻只有一个请求，读取并丢弃响应体
+     */
+    static class Connection implements Closeable {
+        final Socket socket;
+        final InputStream input;
+        final OutputStream output;
+        final StringBuilder line = new StringBuilder();
+        final byte[] skip = new byte[8192];
+
+        Connection(String host, int port) throws IOException {
+            this.socket = new Socket(host, port);
+            this.socket.setTcpNoDelay(true);
+            this.input = new BufferedInputStream(this.socket.getInputStream(), 16384);
+            this.output = this.socket.getOutputStream();
+        }
+
+        // 发送请求并读完响应，返回状态码；响应要求关闭连接时抛出 EOFException 以便重连
+        int exchange(byte[] request) throws IOException {
+            this.output.write(request);
+            this.output.flush();
+            String statusLine = readLine();
+            if(!statusLine.startsWith("HTTP/1.1 ") || statusLine.length() < 12)
+                throw new IOException("Invalid status line: " + statusLine);
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            long length = -1;
+            boolean chunked = false;
+            boolean close = false;
+            String header;
+            while(!(header = readLine()).isEmpty()) {
+                int n = header.indexOf(':');
+                String name = header.substring(0, n).trim().toLowerCase(Locale.ROOT);
+                String value = header.substring(n + 1).trim();
+                switch (name) {
+                    case "content-length" -> length = Long.parseLong(value);
+                    case "transfer-encoding" -> chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+                    case "connection" -> close = value.equalsIgnoreCase("close");
+                }
+            }
+            if(chunked) {
+                long size;
+                while((size = Long.parseLong(stripExtension(readLine()), 16)) > 0) {
+                    skip(size);
+                    readLine();
+                }
+                // 忽略 trailer
+                while(!readLine().isEmpty());
+            } else if(length >= 0) {
+                skip(length);
+            } else {
+                throw new IOException("Response without Content-Length is not supported.");
+            }
+            if(close) {
+                close();
+                throw new EOFException("Connection closed by server.");
+            }
+            return status;
+        }
+
+        static String stripExtension(String s) {
+            int n = s.indexOf(';');
+            return (n < 0 ? s : s.substring(0, n)).trim();
+        }
+
+        String readLine() throws IOException {
+            this.line.setLength(0);
+            int c;
+            while((c = this.input.read()) != '\n') {
+                if(c < 0)
+                    throw new EOFException();
+                if(c != '\r')
+                    this.line.append((char) c);
+            }
+            return this.line.toString();
+        }
+
+        void skip(long n) throws IOException {
+            while(n > 0) {
+                int read = this.input.read(this.skip, 0, (int) Math.min(n, this.skip.length));
+                if(read < 0)
+                    throw new EOFException();
+                n -= read;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                this.socket.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.learn.summer.web.server;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.learn.summer.io.PropertyResolver;
+import com.learn.summer.web.controller.ControllerConfiguration;
+import com.learn.summer.web.utils.JsonUtils;
+import com.learn.summer.web.utils.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * 端到端负载测试：在本进程内以回环地址启动 EmbeddedServer（测试中的 ApiController / MvcController），
+ * 对每个场景依次运行闭环（固定并发）和开环（固定速率）负载，经过 Filter、DispatcherServlet、序列化和 socket 写出。
+ * <p>
+ * 每个结果以一行 JSON 输出到标准输出，全部结果连同运行参数写入 target/loadtest/results.json，格式与基线文件相同。
+ * 与基线相比吞吐量下降、p50 / p99 升高超过 tolerance、p999 升高超过 tail-tolerance，或出现错误时以状态码 1 退出；
+ * 运行参数或机器（CPU 数、JVM）与基线不同时给出警告，此时的比较没有意义，应在同一台机器上重新生成基线。需在项目根目录下运行：
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="duration=20 scenarios=rest-hello,mvc-view"
+ * </pre>
+ * 参数为 name=value 形式：duration / warmup（秒）、concurrency、rate（开环每秒请求数）、connections（开环连接数）、
+ * scenarios、tolerance、tail-tolerance、baseline（基线文件）、output，单独的 update-baseline 以本次结果覆盖基线。
+ * repeat 为完整运行的轮数：生成基线时取各轮中最差的值（吞吐量最低、延迟最高），建议 repeat=3 以吸收机器的波动；
+ * 与基线比较时取各轮中最好的值，只有每一轮都出现的退化才算失败。
+ */
+public class LoadTest {
+
+    static final Map<String, byte[]> SCENARIOS = new LinkedHashMap<>();
+
+    static {
+        SCENARIOS.put("rest-hello", LoadGenerator.get("/api/hello/alice"));
+        SCENARIOS.put("rest-convert", LoadGenerator.get("/api/convert/8a2e9c4e-5e7b-4bd0-9d3c-2f1c7c0a7b11?date=2024-06-01&ids=1&ids=2&ids=3"));
+        SCENARIOS.put("rest-register", LoadGenerator.post("/api/register", "application/json",
+                "{\"name\":\"alice\",\"password\":\"hello123\"}"));
+        SCENARIOS.put("mvc-view", LoadGenerator.get("/product/123?name=alice"));
+        SCENARIOS.put("static", LoadGenerator.get("/static/app.css"));
+    }
+
+    final Map<String, String> options;
+    final int duration;
+    final int warmup;
+    final int concurrency;
+    final double rate;
+    final int connections;
+    final double tolerance;
+    // p999 只由少数请求决定，波动比 p50 / p99 大得多
+    final double tailTolerance;
+    final int repeat;
+    final List<String> scenarios;
+
+    LoadTest(Map<String, String> options) {
+        this.options = options;
+        this.duration = Integer.parseInt(options.getOrDefault("duration", "10"));
+        this.warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        this.concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        this.rate = Double.parseDouble(options.getOrDefault("rate", "2000"));
+        this.connections = Integer.parseInt(options.getOrDefault("connections", "16"));
+        this.tolerance = Double.parseDouble(options.getOrDefault("tolerance", "0.25"));
+        this.tailTolerance = Double.parseDouble(options.getOrDefault("tail-tolerance", "1.0"));
+        this.repeat = Integer.parseInt(options.getOrDefault("repeat", "1"));
+        this.scenarios = options.containsKey("scenarios")
+                ? List.of(options.get("scenarios").split(",")) : List.copyOf(SCENARIOS.keySet());
+        for(String name : this.scenarios) {
+            if(!SCENARIOS.containsKey(name))
+                throw new IllegalArgumentException("Unknown scenario: " + name + ", available: " + SCENARIOS.keySet());
+        }
+    }
+
+    List<Result> run() throws Exception {
+        Properties ps = new Properties();
+        ps.put("app.title", "Load Test App");
+        ps.put("app.version", "v1.0");
+        ps.put("summer.web.favicon-path", "/icon/favicon.ico");
+        ps.put("summer.web.freemarker.template-path", "/WEB-INF/templates");
+        ps.put("summer.web.freemarker.mode", "production");
+        ps.put("summer.web.static-cache.check-modified", "false");
+        ps.put("summer.server.host", "127.0.0.1");
+        ps.put("summer.server.webapp", "src/test/resources");
+        ps.put("jdbc.username", "sa");
+        ps.put("jdbc.password", "");
+        List<Result> results = new ArrayList<>();
+        try(var server = new EmbeddedServer(ControllerConfiguration.class, new PropertyResolver(ps), 0)) {
+            server.start();
+            var generator = new LoadGenerator("127.0.0.1", server.getPort());
+            for(String name : this.scenarios) {
+                byte[] request = SCENARIOS.get(name);
+                generator.closedLoop(request, this.concurrency, seconds(this.warmup));
+                results.add(print(Result.of(name, "closed", this.concurrency, 0,
+                        generator.closedLoop(request, this.concurrency, seconds(this.duration)))));
+                // 开环的发送和接收路径与闭环不同，同样预热后再计时
+                generator.openLoop(request, this.rate, this.connections, seconds(this.warmup));
+                results.add(print(Result.of(name, "open", this.connections, this.rate,
+                        generator.openLoop(request, this.rate, this.connections, seconds(this.duration)))));
+            }
+        }
+        return results;
+    }
+
+    Run runParameters() {
+        return new Run(this.duration, this.warmup, this.concurrency, this.rate, this.connections, this.repeat,
+                Runtime.getRuntime().availableProcessors(), System.getProperty("java.vm.name") + " " + Runtime.version(),
+                System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+    }
+
+    static long seconds(int n) {
+        return n * 1_000_000_000L;
+    }
+
+    static Result print(Result result) {
+        System.out.println(JsonUtils.writeJson(result));
+        return result;
+    }
+
+    // 与基线逐项比较，返回超出容差的项
+    List<String> compare(List<Result> results, Report baseline) {
+        double tolerance = this.options.containsKey("tolerance") ? this.tolerance : baseline.tolerance();
+        double tailTolerance = this.options.containsKey("tail-tolerance") ? this.tailTolerance : baseline.tailTolerance();
+        Map<String, Result> expected = new HashMap<>();
+        for(Result r : baseline.results()) {
+            // 基线必须来自实际运行
+            if(r.requests() <= 0 || r.p50() <= 0 || r.p99() <= 0 || r.p999() <= 0)
+                throw new IllegalArgumentException("Baseline entry was not measured: " + r.key());
+            expected.put(r.key(), r);
+        }
+        List<String> regressions = new ArrayList<>();
+        for(Result r : results) {
+            if(r.errors() > 0)
+                regressions.add(r.key() + ": " + r.errors() + " errors");
+            Result base = expected.get(r.key());
+            if(base == null)
+                continue;
+            // 开环的吞吐量由速率决定，只比较闭环
+            if(r.mode().equals("closed") && r.throughput() < base.throughput() * (1 - tolerance))
+                regressions.add(String.format("%s: throughput %.0f req/s, baseline %.0f req/s", r.key(), r.throughput(), base.throughput()));
+            if(r.p50() > base.p50() * (1 + tolerance))
+                regressions.add(String.format("%s: p50 %.1f us, baseline %.1f us", r.key(), r.p50(), base.p50()));
+            if(r.p99() > base.p99() * (1 + tolerance))
+                regressions.add(String.format("%s: p99 %.1f us, baseline %.1f us", r.key(), r.p99(), base.p99()));
+            if(r.p999() > base.p999() * (1 + tailTolerance))
+                regressions.add(String.format("%s: p999 %.1f us, baseline %.1f us", r.key(), r.p999(), base.p999()));
+        }
+        return regressions;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for(String arg : args) {
+            int n = arg.indexOf('=');
+            options.put(n < 0 ? arg : arg.substring(0, n), n < 0 ? "true" : arg.substring(n + 1));
+        }
+        var test = new LoadTest(options);
+        boolean updateBaseline = options.containsKey("update-baseline");
+        List<Result> results = test.run();
+        for(int i = 1; i < test.repeat; i++) {
+            List<Result> round = test.run();
+            for(int j = 0; j < results.size(); j++)
+                results.set(j, updateBaseline ? results.get(j).worst(round.get(j)) : results.get(j).best(round.get(j)));
+        }
+
+        var writer = JsonUtils.OBJECT_MAPPER.writer(SerializationFeature.INDENT_OUTPUT);
+        Path output = Path.of(options.getOrDefault("output", "target/loadtest/results.json"));
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        var report = new Report(test.tolerance, test.tailTolerance, test.runParameters(), results);
+        writer.writeValue(output.toFile(), report);
+        Path baselinePath = Path.of(options.getOrDefault("baseline", "src/loadtest/baseline.json"));
+        if(updateBaseline) {
+            writer.writeValue(baselinePath.toFile(), report);
+            System.err.println("Baseline updated: " + baselinePath);
+            return;
+        }
+        if(!Files.exists(baselinePath)) {
+            System.err.println("Baseline not found: " + baselinePath);
+            return;
+        }
+        Report baseline = readBaseline(baselinePath);
+        if(!report.run().comparable(baseline.run()))
+            System.err.println("Warning: run parameters differ from the baseline, results are not comparable:\n  run      "
+                    + report.run() + "\n  baseline " + baseline.run());
+        List<String> regressions = test.compare(results, baseline);
+        if(!regressions.isEmpty()) {
+            System.err.println("Regressions against " + baselinePath + ":");
+            regressions.forEach(s -> System.err.println("  " + s));
+            System.exit(1);
+        }
+        System.err.println("No regression against " + baselinePath);
+    }
+
+    static Report readBaseline(Path path) throws IOException {
+        try(var input = Files.newInputStream(path)) {
+            return JsonUtils.OBJECT_MAPPER.readValue(input, Report.class);
+        }
+    }
+
+    /**
+     * 结果文件和基线文件的内容
+     */
+    record Report(double tolerance, double tailTolerance, Run run, List<Result> results) {
+    }
+
+    /**
+     * 运行参数和机器，时间单位为秒
+     */
+    record Run(int duration, int warmup, int concurrency, double rate, int connections, int repeat,
+               int processors, String jvm, String os) {
+
+        // 轮数只影响结果的取值方式，其余参数相同才能比较
+        boolean comparable(Run other) {
+            return other != null && this.duration == other.duration && this.warmup == other.warmup
+                    && this.concurrency == other.concurrency && this.rate == other.rate && this.connections == other.connections
+                    && this.processors == other.processors && this.jvm.equals(other.jvm) && this.os.equals(other.os);
+        }
+    }
+
+    /**
+     * 一个场景在一种负载模式下的结果，耗时单位为微秒；开环时 concurrency 为连接数
+     */
+    record Result(String scenario, String mode, int concurrency, double rate, long requests, long errors,
+                  double throughput, double p50, double p99, double p999, double max) {
+
+        static Result of(String scenario, String mode, int concurrency, double rate, LoadGenerator.Stats stats) {
+            LatencyHistogram.Snapshot s = stats.histogram.snapshot();
+            return new Result(scenario, mode, concurrency, rate, s.count(), stats.errors.sum(),
+                    Math.round(s.count() * 1e10 / stats.elapsed) / 10.0, micros(s.percentile(0.5)), micros(s.percentile(0.99)),
+                    micros(s.percentile(0.999)), micros(s.max()));
+        }
+
+        // 两轮结果中较差的值，请求数和错误数累加
+        Result worst(Result other) {
+            return new Result(this.scenario, this.mode, this.concurrency, this.rate, this.requests + other.requests,
+                    this.errors + other.errors, Math.min(this.throughput, other.throughput), Math.max(this.p50, other.p50),
+                    Math.max(this.p99, other.p99), Math.max(this.p999, other.p999), Math.max(this.max, other.max));
+        }
+
+        // 两轮结果中较好的值
+        Result best(Result other) {
+            return new Result(this.scenario, this.mode, this.concurrency, this.rate, this.requests + other.requests,
+                    this.errors + other.errors, Math.max(this.throughput, other.throughput), Math.min(this.p50, other.p50),
+                    Math.min(this.p99, other.p99), Math.min(this.p999, other.p999), Math.min(this.max, other.max));
+        }
+
+        static double micros(long nanos) {
+            return Math.round(nanos / 100.0) / 10.0;
+        }
+
+        String key() {
+            return this.scenario + "/" + this.mode;
+        }
+    }
+}
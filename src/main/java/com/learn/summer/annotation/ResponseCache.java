@@ -0,0 +1,23 @@
+package com.learn.summer.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 缓存 GET 处理方法序列化后的响应，缓存键由路径变量、@RequestParam 的值和 headers 指定的请求头组成。
+ * 命中时不再解析参数、调用方法和序列化。只能用于参数全部为 @PathVariable / @RequestParam 的 REST 处理方法
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ResponseCache {
+    // 有效期，毫秒
+    long ttl() default 5000;
+
+    // 过期后在该时间内仍返回旧响应，同时在后台刷新，毫秒
+    long staleWhileRevalidate() default 0;
+
+    // 参与缓存键的请求头
+    String[] headers() default {};
+}
@@ -0,0 +1,17 @@
+package com.learn.summer.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 合并相同的并发 GET 请求：路径变量和 @RequestParam 相同的请求只调用一次处理方法，其余请求等待并共享序列化后的结果。
+ * 结果只在调用期间共享，调用结束即丢弃。参数限制与 @ResponseCache 相同
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SingleFlight {
+    // 等待的最长时间，毫秒，超时后自己调用处理方法
+    long timeout() default 3000;
+}
@@ -0,0 +1,13 @@
+package com.learn.summer.web;
+
+/**
+ * 将 @PathVariable / @RequestParam 的字符串值转换为参数类型。
+ * 定义为 Bean 即可注册，会覆盖内置的同类型转换器。
+ */
+public interface Converter<T> {
+    // 支持转换的目标类型
+    Class<T> getTargetType();
+
+    // 转换失败时抛出 IllegalArgumentException，请求将以 400 响应
+    T convert(String s);
+}
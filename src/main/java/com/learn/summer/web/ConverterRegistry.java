@@ -0,0 +1,116 @@
+package com.learn.summer.web;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.*;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 按类型缓存 Converter，支持内置类型、枚举、数组以及用户定义的 Converter Bean
+ */
+public class ConverterRegistry {
+
+    final Map<Class<?>, Converter<?>> converters = new ConcurrentHashMap<>();
+
+    public ConverterRegistry(List<Converter> customConverters) {
+        register(String.class, s -> s);
+        register(boolean.class, Boolean::valueOf);
+        register(Boolean.class, Boolean::valueOf);
+        // 直接解析为基本类型，再通过 valueOf 装箱（可复用缓存的小整数）
+        register(byte.class, s -> Byte.valueOf(Byte.parseByte(s)));
+        register(Byte.class, s -> Byte.valueOf(Byte.parseByte(s)));
+        register(short.class, s -> Short.valueOf(Short.parseShort(s)));
+        register(Short.class, s -> Short.valueOf(Short.parseShort(s)));
+        register(int.class, s -> Integer.valueOf(Integer.parseInt(s)));
+        register(Integer.class, s -> Integer.valueOf(Integer.parseInt(s)));
+        register(long.class, s -> Long.valueOf(Long.parseLong(s)));
+        register(Long.class, s -> Long.valueOf(Long.parseLong(s)));
+        register(float.class, s -> Float.valueOf(Float.parseFloat(s)));
+        register(Float.class, s -> Float.valueOf(Float.parseFloat(s)));
+        register(double.class, s -> Double.valueOf(Double.parseDouble(s)));
+        register(Double.class, s -> Double.valueOf(Double.parseDouble(s)));
+        register(char.class, ConverterRegistry::toChar);
+        register(Character.class, ConverterRegistry::toChar);
+        register(BigDecimal.class, BigDecimal::new);
+        register(BigInteger.class, BigInteger::new);
+        register(UUID.class, UUID::fromString);
+        register(LocalDate.class, LocalDate::parse);
+        register(LocalTime.class, LocalTime::parse);
+        register(LocalDateTime.class, LocalDateTime::parse);
+        register(OffsetDateTime.class, OffsetDateTime::parse);
+        register(ZonedDateTime.class, ZonedDateTime::parse);
+        register(Instant.class, Instant::parse);
+        register(Duration.class, Duration::parse);
+        if(customConverters != null) {
+            for(Converter<?> converter : customConverters)
+                this.converters.put(converter.getTargetType(), converter);
+        }
+    }
+
+    // 获取指定类型的 Converter，不支持时返回 null
+    @SuppressWarnings("unchecked")
+    public <T> Converter<T> getConverter(Class<T> type) {
+        Converter<?> converter = this.converters.get(type);
+        if(converter == null) {
+            converter = createConverter(type);
+            if(converter == null)
+                return null;
+            Converter<?> exist = this.converters.putIfAbsent(type, converter);
+            if(exist != null)
+                converter = exist;
+        }
+        return (Converter<T>) converter;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Converter<?> createConverter(Class<?> type) {
+        if(type.isEnum()) {
+            Class<? extends Enum> enumType = (Class<? extends Enum>) type;
+            return of(type, s -> Enum.valueOf(enumType, s));
+        }
+        if(type.isArray()) {
+            // 逗号分隔的数组，如 1,2,3
+            Converter<?> component = getConverter(type.getComponentType());
+            if(component == null)
+                return null;
+            return of(type, s -> {
+                String[] values = s.isEmpty() ? new String[0] : s.split(",");
+                Object array = Array.newInstance(type.getComponentType(), values.length);
+                for(int i = 0; i < values.length; i++)
+                    Array.set(array, i, component.convert(values[i].trim()));
+                return array;
+            });
+        }
+        return null;
+    }
+
+    <T> void register(Class<T> type, Function<String, T> fn) {
+        this.converters.put(type, of(type, fn));
+    }
+
+    static <T> Converter<T> of(Class<?> type, Function<String, T> fn) {
+        return new Converter<T>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public Class<T> getTargetType() {
+                return (Class<T>) type;
+            }
+
+            @Override
+            public T convert(String s) {
+                return fn.apply(s);
+            }
+        };
+    }
+
+    static Character toChar(String s) {
+        if(s.length() != 1)
+            throw new IllegalArgumentException("Could not convert to char: " + s);
+        return s.charAt(0);
+    }
+}
@@ -1,5 +1,10 @@
 package com.learn.summer.web;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.learn.summer.annotation.*;
 import com.learn.summer.context.ApplicationContext;
 import com.learn.summer.context.ConfigurableApplicationContext;
@@ -9,9 +14,17 @@ import com.learn.summer.exception.ServerErrorException;
 import com.learn.summer.exception.ServerWebInputException;
 import com.learn.summer.io.PropertyResolver;
 import com.learn.summer.utils.ClassUtils;
+import com.learn.summer.web.utils.BoundedCache;
+import com.learn.summer.web.utils.BoundedInputStream;
+import com.learn.summer.web.utils.BufferPool;
+import com.learn.summer.web.utils.BufferedResponseWrapper;
 import com.learn.summer.web.utils.JsonUtils;
 import com.learn.summer.web.utils.PathUtils;
+import com.learn.summer.web.utils.RouteTrie;
 import com.learn.summer.web.utils.WebUtils;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletOutputStream;
@@ -22,21 +35,53 @@ import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.text.ParseException;
+import java.time.DateTimeException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
 
 public class DispatcherServlet extends HttpServlet {
+    static final String NDJSON = "application/x-ndjson";
+
     final Logger logger = LoggerFactory.getLogger(getClass());
 
     ApplicationContext applicationContext;
@@ -44,22 +89,120 @@ public class DispatcherServlet extends HttpServlet {
 
     String resourcePath;
     String faviconPath;
+    ResourceHandler resourceHandler;
+    // 超过该大小且类型匹配的响应使用 gzip 压缩，小于 0 表示不压缩
+    int compressionMinSize;
+    Set<String> compressionMimeTypes;
+    // 小于该大小的响应完整缓冲后一次写出并设置 Content-Length
+    int responseBufferSize;
+    BufferPool bufferPool;
+    // @ResponseCache 缓存的响应
+    BoundedCache<CachedResponse> responseCache;
+    // @SingleFlight 正在进行的调用
+    final Map<String, CompletableFuture<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+    // 请求计数和耗时，summer.web.metrics.enabled=false 时为 null
+    WebMetrics metrics;
+    // 指标的输出路径，为空表示不提供
+    String metricsPath;
+    // 记录各阶段耗时，关闭时不创建 RequestTiming
+    boolean timingEnabled;
+    // 按比例或携带 X-Server-Timing-Token 的请求输出 Server-Timing 响应头
+    double timingSampleRate;
+    byte[] timingToken;
+    // 按需开始/结束 JFR 记录的管理路径，为空表示不提供
+    String flightRecordingPath;
+    byte[] adminToken;
+    FlightRecording flightRecording;
+    String handlerInvoker;
+    // 使用编译时生成的 RouteRegistry，关闭时总是反射扫描
+    boolean routeRegistryEnabled;
+    ConverterRegistry converters;
+    long maxBodySize;
+    long asyncTimeout;
+    int asyncTimeoutStatus;
+    // summer.web.executor=virtual 时所有处理方法都在虚拟线程中执行
+    boolean virtualThreadByDefault;
+    VirtualThreadExecutor virtualThreadExecutor;
+    Duration pinnedThreshold;
+    int streamFlushSize;
+    long sseHeartbeat;
+    ScheduledExecutorService sseScheduler;
+    final Set<SseEmitter> sseEmitters = ConcurrentHashMap.newKeySet();
 
-    List<Dispatcher> getDispatchers = new ArrayList<>();
-    List<Dispatcher> postDispatchers = new ArrayList<>();
+    // 路由表快照，注册或移除处理方法时整体替换，请求线程无锁读取
+    volatile Routes routes = new Routes(new RouteTrie<>(), new RouteTrie<>());
+    // 串行化路由表的修改，保证检查重复路径时基于最新的快照
+    final Object routesLock = new Object();
+    // init() 时加载的编译期路由表，运行时注册 Controller 时同样使用
+    Map<Class<?>, List<RouteRegistry.Route>> generatedRoutes = Map.of();
 
     public DispatcherServlet(ApplicationContext applicationContext, PropertyResolver propertyResolver) {
         this.applicationContext = applicationContext;
         this.viewResolver = applicationContext.getBean(ViewResolver.class);
         this.resourcePath = propertyResolver.getProperty("${summer.web.static-path:/static/}");
         this.faviconPath = propertyResolver.getProperty("${summer.web.favicon-path:/favicon.ico}");
+        this.handlerInvoker = propertyResolver.getProperty("${summer.web.handler-invoker:generated}");
+        this.routeRegistryEnabled = propertyResolver.getProperty("${summer.web.route-registry.enabled:true}", boolean.class);
+        this.converters = new ConverterRegistry(applicationContext.getBeans(Converter.class));
+        this.maxBodySize = propertyResolver.getProperty("${summer.web.max-body-size:10485760}", long.class);
+        this.asyncTimeout = propertyResolver.getProperty("${summer.web.async.timeout:30000}", long.class);
+        this.asyncTimeoutStatus = propertyResolver.getProperty("${summer.web.async.timeout-status:503}", int.class);
+        String executor = propertyResolver.getProperty("${summer.web.executor:platform}");
+        if(!"platform".equals(executor) && !"virtual".equals(executor))
+            throw new IllegalArgumentException("Unsupported summer.web.executor: " + executor);
+        this.virtualThreadByDefault = "virtual".equals(executor);
+        this.streamFlushSize = propertyResolver.getProperty("${summer.web.stream.flush-size:100}", int.class);
+        this.sseHeartbeat = propertyResolver.getProperty("${summer.web.sse.heartbeat:15000}", long.class);
+        this.pinnedThreshold = Duration.ofMillis(
+                propertyResolver.getProperty("${summer.web.executor.pinned-threshold:20}", long.class));
         if(!this.resourcePath.endsWith("/"))
             this.resourcePath += "/";
+        this.resourceHandler = new ResourceHandler(
+                propertyResolver.getProperty("${summer.web.static-cache.max-size:16777216}", long.class),
+                propertyResolver.getProperty("${summer.web.static-cache.max-entry-size:1048576}", long.class),
+                propertyResolver.getProperty("${summer.web.static-cache.cache-control:no-cache}"),
+                propertyResolver.getProperty("${summer.web.static-cache.precompressed:true}", boolean.class),
+                propertyResolver.getProperty("${summer.web.static-cache.compress-min-size:1024}", long.class),
+                propertyResolver.getProperty("${summer.web.static-cache.check-modified:true}", boolean.class));
+        this.compressionMinSize = propertyResolver.getProperty("${summer.web.compression.min-size:1024}", int.class);
+        this.compressionMimeTypes = Set.of(propertyResolver.getProperty(
+                "${summer.web.compression.mime-types:text/html,text/plain,text/css,text/javascript,application/javascript,application/json,application/x-ndjson,application/xml}")
+                .split("\\s*,\\s*"));
+        this.responseBufferSize = propertyResolver.getProperty("${summer.web.response-buffer.size:16384}", int.class);
+        this.bufferPool = new BufferPool(Math.max(this.responseBufferSize, this.compressionMinSize),
+                propertyResolver.getProperty("${summer.web.response-buffer.pool-size:64}", int.class));
+        this.responseCache = new BoundedCache<>(
+                propertyResolver.getProperty("${summer.web.response-cache.max-size:33554432}", long.class));
+        this.timingEnabled = propertyResolver.getProperty("${summer.web.timing.enabled:false}", boolean.class);
+        this.timingSampleRate = propertyResolver.getProperty("${summer.web.timing.sample-rate:0}", double.class);
+        String token = propertyResolver.getProperty("${summer.web.timing.token:}");
+        this.timingToken = token == null || token.isEmpty() ? null : token.getBytes(StandardCharsets.UTF_8);
+        if(propertyResolver.getProperty("${summer.web.metrics.enabled:true}", boolean.class)) {
+            this.metrics = new WebMetrics(this.timingEnabled);
+            String path = propertyResolver.getProperty("${summer.web.metrics.path:}");
+            this.metricsPath = path == null || path.isEmpty() ? null : path;
+        }
+        String jfrPath = propertyResolver.getProperty("${summer.web.jfr.path:}");
+        if(jfrPath != null && !jfrPath.isEmpty()) {
+            this.flightRecordingPath = jfrPath;
+            String directory = propertyResolver.getProperty("${summer.web.jfr.directory:}");
+            this.flightRecording = new FlightRecording(
+                    Path.of(directory == null || directory.isEmpty() ? System.getProperty("java.io.tmpdir") : directory),
+                    propertyResolver.getProperty("${summer.web.jfr.settings:default}"),
+                    propertyResolver.getProperty("${summer.web.jfr.max-size:104857600}", long.class),
+                    Duration.ofMillis(propertyResolver.getProperty("${summer.web.jfr.max-age:600000}", long.class)),
+                    Duration.ofMillis(propertyResolver.getProperty("${summer.web.jfr.max-duration:600000}", long.class)));
+            String adminToken = propertyResolver.getProperty("${summer.web.admin.token:}");
+            this.adminToken = adminToken == null || adminToken.isEmpty() ? null : adminToken.getBytes(StandardCharsets.UTF_8);
+        }
     }
 
     @Override
     public void init() throws ServletException {
         logger.info("init {}", getClass().getName());
+        // 编译时生成的路由表，按 Controller 类型分组
+        if(this.routeRegistryEnabled)
+            this.generatedRoutes = RouteRegistry.load(getClassLoader());
         // scan @Controller and @RestController
         for(var def : ((ConfigurableApplicationContext)this.applicationContext).findBeanDefinitions(Object.class)) {
             Class<?> beanClass = def.getBeanClass();
@@ -70,38 +213,195 @@ public class DispatcherServlet extends HttpServlet {
                 throw new ServletException("@Controller and @RestController on both define in class: " + beanClass.getName());
             }
             if(controller != null)
-                addController(false, def.getName(), bean);
+                addController(false, def.getName(), bean, this.generatedRoutes.get(beanClass));
             if(restController != null)
-                addController(true, def.getName(), bean);
+                addController(true, def.getName(), bean, this.generatedRoutes.get(beanClass));
+        }
+    }
+
+    /**
+     * 运行时注册 Controller 实例的所有处理方法，实例类型需标注 @Controller 或 @RestController。
+     * 所有路由一次发布，与已有路由冲突的方法被忽略，返回实际注册的路由数。
+     */
+    public int registerController(Object controller) throws ServletException {
+        Class<?> type = controller.getClass();
+        boolean isMvc = type.isAnnotationPresent(Controller.class);
+        boolean isRest = type.isAnnotationPresent(RestController.class);
+        if(isMvc == isRest)
+            throw new ServletException("Exactly one of @Controller and @RestController is required on class: " + type.getName());
+        return addController(isRest, type.getName(), controller, this.generatedRoutes.get(type));
+    }
+
+    // 移除该实例的所有处理方法，返回移除的路由数
+    public int unregisterController(Object controller) {
+        return removeDispatchers(dispatcher -> dispatcher.controller == controller);
+    }
+
+    /**
+     * 运行时把 controller 的 method 映射到 httpMethod（GET / POST）和 path，不要求方法上有 @GetMapping / @PostMapping。
+     * 路径已被占用时返回 false。
+     */
+    public boolean registerHandler(String httpMethod, String path, Object controller, Method method) throws ServletException {
+        if(!"GET".equals(httpMethod) && !"POST".equals(httpMethod))
+            throw new ServletException("Unsupported HTTP method: " + httpMethod);
+        if(!method.getDeclaringClass().isInstance(controller))
+            throw new ServletException("Method " + method + " is not declared in " + controller.getClass().getName());
+        checkMethod(method);
+        boolean isRest = controller.getClass().isAnnotationPresent(RestController.class);
+        // 已有同一路径（变量名可以不同）时不再解析处理方法，其参数可能与该路径的变量名不符
+        if(this.routes.of(httpMethod).get(path) != null) {
+            logger.warn("ignore duplicate mapping {} to {}", path, method);
+            return false;
         }
+        return addDispatchers(List.of(new Dispatcher(httpMethod, isRest, controller, method, path, null, this))) == 1;
+    }
+
+    // 移除 httpMethod 和 path 对应的处理方法，路径中变量名可以不同
+    public boolean unregisterHandler(String httpMethod, String path) throws ServletException {
+        synchronized (this.routesLock) {
+            Routes routes = this.routes;
+            RouteTrie<Dispatcher> dispatchers = routes.of(httpMethod);
+            Dispatcher exist = dispatchers == null ? null : dispatchers.get(path);
+            if(exist == null)
+                return false;
+            this.routes = routes.with(httpMethod, dispatchers.without(path));
+            removed(exist);
+            return true;
+        }
+    }
+
+    static ClassLoader getClassLoader() {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        return cl == null ? DispatcherServlet.class.getClassLoader() : cl;
     }
 
     @Override
     public void destroy() {
+        if(this.flightRecording != null)
+            this.flightRecording.close();
+        if(this.virtualThreadExecutor != null)
+            this.virtualThreadExecutor.close();
+        if(this.sseScheduler != null) {
+            this.sseScheduler.shutdownNow();
+            // 停止时不等待慢速客户端写完
+            this.sseEmitters.forEach(emitter -> emitter.close(true));
+        }
         this.applicationContext.close();
     }
 
-    void addController(boolean isRest, String name, Object instance) throws ServletException{
+    int addController(boolean isRest, String name, Object instance, List<RouteRegistry.Route> routes) throws ServletException{
         logger.info("add {}controller '{}':{}", isRest ? "REST" : "MVC", name, instance.getClass().getName());
-        addMethods(isRest, name, instance, instance.getClass());
+        List<Dispatcher> dispatchers = new ArrayList<>();
+        if(routes != null) {
+            // 先找到所有处理方法，路由表与类不一致（如未重新编译）时整体退回反射扫描
+            Method[] methods = new Method[routes.size()];
+            try {
+                for(int i = 0; i < methods.length; i++) {
+                    var route = routes.get(i);
+                    methods[i] = route.declaringClass().getDeclaredMethod(route.methodName(), route.parameterTypes());
+                }
+            } catch (NoSuchMethodException e) {
+                logger.warn("generated routes of {} are out of date, fallback to reflection: {}", name, e.getMessage());
+                methods = null;
+            }
+            if(methods != null) {
+                for(int i = 0; i < methods.length; i++) {
+                    var route = routes.get(i);
+                    checkMethod(methods[i]);
+                    dispatchers.add(new Dispatcher(route.httpMethod(), isRest, instance, methods[i], route.path(), route, this));
+                }
+                return addDispatchers(dispatchers);
+            }
+        }
+        addMethods(isRest, instance, instance.getClass(), dispatchers);
+        return addDispatchers(dispatchers);
     }
 
-    void addMethods(boolean isRest, String name, Object instance, Class<?> type) throws ServletException{
+    void addMethods(boolean isRest, Object instance, Class<?> type, List<Dispatcher> dispatchers) throws ServletException{
         for(Method m : type.getDeclaredMethods()) {
             GetMapping get = m.getAnnotation(GetMapping.class);
             if(get != null) {
                 checkMethod(m);
-                this.getDispatchers.add(new Dispatcher("GET", isRest, instance, m, get.value()));
+                dispatchers.add(new Dispatcher("GET", isRest, instance, m, get.value(), null, this));
             }
             PostMapping post = m.getAnnotation(PostMapping.class);
             if(post != null) {
                 checkMethod(m);
-                this.postDispatchers.add(new Dispatcher("POST", isRest, instance, m, post.value()));
+                dispatchers.add(new Dispatcher("POST", isRest, instance, m, post.value(), null, this));
             }
         }
         Class<?> superClass = type.getSuperclass();
         if(superClass != null)
-            addMethods(isRest, name, instance, superClass);
+            addMethods(isRest, instance, superClass, dispatchers);
+    }
+
+    // 在当前快照上逐个添加后一次发布，只复制新路由所在的路径；返回实际添加的数量
+    int addDispatchers(List<Dispatcher> dispatchers) throws ServletException{
+        synchronized (this.routesLock) {
+            Routes routes = this.routes;
+            int added = 0;
+            for(Dispatcher dispatcher : dispatchers) {
+                RouteTrie<Dispatcher> trie = routes.of(dispatcher.httpMethod);
+                // 同一路径只保留先注册的方法（子类方法先于父类方法注册）
+                Dispatcher exist = trie.get(dispatcher.path);
+                if(exist != null) {
+                    logger.warn("ignore duplicate mapping {} to {}, already mapped to {}", dispatcher.path,
+                            dispatcher.handlerMethod, exist.handlerMethod);
+                    continue;
+                }
+                // 发布之前准备好请求处理时需要的资源
+                if((dispatcher.isVirtualThread || dispatcher.cacheStale > 0) && this.virtualThreadExecutor == null) {
+                    this.virtualThreadExecutor = new VirtualThreadExecutor(this.pinnedThreshold);
+                    if(this.metrics != null)
+                        this.metrics.setVirtualThreadPinned(this.virtualThreadExecutor::getPinnedCount);
+                }
+                if(dispatcher.isSse && this.sseScheduler == null && this.sseHeartbeat > 0) {
+                    this.sseScheduler = Executors.newSingleThreadScheduledExecutor(
+                            Thread.ofPlatform().daemon().name("summer-sse-heartbeat").factory());
+                    this.sseScheduler.scheduleWithFixedDelay(this::sendSseHeartbeats, this.sseHeartbeat, this.sseHeartbeat,
+                            TimeUnit.MILLISECONDS);
+                }
+                if(this.metrics != null)
+                    dispatcher.metrics = this.metrics.register(dispatcher.httpMethod, dispatcher.path);
+                routes = routes.with(dispatcher.httpMethod, trie.with(dispatcher.path, dispatcher));
+                added++;
+            }
+            this.routes = routes;
+            return added;
+        }
+    }
+
+    // 移除满足条件的处理方法后一次发布，返回移除的数量
+    int removeDispatchers(Predicate<Dispatcher> predicate) {
+        synchronized (this.routesLock) {
+            Routes routes = this.routes;
+            List<Dispatcher> removed = new ArrayList<>();
+            for(String httpMethod : List.of("GET", "POST")) {
+                RouteTrie<Dispatcher> trie = routes.of(httpMethod);
+                for(Dispatcher dispatcher : trie.handlers()) {
+                    if(predicate.test(dispatcher)) {
+                        try {
+                            trie = trie.without(dispatcher.path);
+                        } catch (ServletException e) {
+                            // 已注册的路径一定合法
+                            throw new IllegalStateException(e);
+                        }
+                        removed.add(dispatcher);
+                    }
+                }
+                routes = routes.with(httpMethod, trie);
+            }
+            this.routes = routes;
+            removed.forEach(this::removed);
+            return removed.size();
+        }
+    }
+
+    // 处理方法已从路由表移除，进行中的请求仍可正常完成
+    void removed(Dispatcher dispatcher) {
+        logger.info("remove mapping {} {} to {}", dispatcher.httpMethod, dispatcher.path, dispatcher.handlerMethod);
+        if(dispatcher.metrics != null)
+            this.metrics.unregister(dispatcher.metrics);
     }
 
     void checkMethod(Method m) throws ServletException{
@@ -115,254 +415,977 @@ public class DispatcherServlet extends HttpServlet {
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String url = req.getRequestURI();
         if(url.equals(this.faviconPath) || url.startsWith(this.resourcePath)) {
+            long start = System.nanoTime();
+            WebEvents.ResourceEvent event = new WebEvents.ResourceEvent();
+            event.begin();
             doResource(url, req, resp);
+            if(this.metrics != null)
+                this.metrics.resources.record(resp.getStatus(), System.nanoTime() - start);
+            event.end();
+            if(event.shouldCommit()) {
+                event.uri = url;
+                event.status = resp.getStatus();
+                event.responseBytes = contentLength(resp);
+                event.commit();
+            }
+        } else if(url.equals(this.metricsPath)) {
+            writeMetrics(req, resp);
+        } else if(url.equals(this.flightRecordingPath)) {
+            doFlightRecording(req, resp);
         } else {
-            doService(req, resp, this.getDispatchers);
+            doService(req, resp, this.routes.getDispatchers());
         }
     }
 
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-        doService(req, resp, this.postDispatchers);
+        if(req.getRequestURI().equals(this.flightRecordingPath)) {
+            doFlightRecording(req, resp);
+        } else {
+            doService(req, resp, this.routes.postDispatchers());
+        }
     }
 
-    void doService(HttpServletRequest req, HttpServletResponse resp, List<Dispatcher> dispatchers) throws ServletException, IOException{
+    // GET 查看 JFR 记录状态，POST action=start / stop 开始或结束记录
+    void doFlightRecording(HttpServletRequest req, HttpServletResponse resp) throws IOException{
+        if(!isAdmin(req)) {
+            resp.sendError(403, "Forbidden");
+            return;
+        }
+        Path file;
+        if("POST".equals(req.getMethod())) {
+            String action = req.getParameter("action");
+            if("start".equals(action)) {
+                try {
+                    file = this.flightRecording.start();
+                } catch (IllegalStateException e) {
+                    resp.sendError(409, e.getMessage());
+                    return;
+                } catch (ParseException e) {
+                    throw new IOException("Invalid JFR settings.", e);
+                }
+            } else if("stop".equals(action)) {
+                file = this.flightRecording.stop();
+                if(file == null) {
+                    resp.sendError(409, "Flight recording not started.");
+                    return;
+                }
+            } else {
+                resp.sendError(400, "Unsupported action: " + action);
+                return;
+            }
+        } else {
+            file = this.flightRecording.getFile();
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("recording", this.flightRecording.isRecording());
+        status.put("file", file == null ? null : file.toString());
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-store");
+        JsonUtils.writeJson(resp.getWriter(), status);
+    }
+
+    // 配置了 summer.web.admin.token 时需在 X-Admin-Token 中携带，否则只允许本机访问
+    boolean isAdmin(HttpServletRequest req) {
+        if(this.adminToken != null) {
+            String token = req.getHeader("X-Admin-Token");
+            return token != null && MessageDigest.isEqual(this.adminToken, token.getBytes(StandardCharsets.UTF_8));
+        }
+        String address = req.getRemoteAddr();
+        return "127.0.0.1".equals(address) || "0:0:0:0:0:0:0:1".equals(address) || "::1".equals(address);
+    }
+
+    void doService(HttpServletRequest req, HttpServletResponse resp, RouteTrie<Dispatcher> dispatchers) throws ServletException, IOException{
         String url = req.getRequestURI();
+        long start = System.nanoTime();
+        // JFR 未记录该事件时不创建，请求结束时也不必为它进入 complete()
+        WebEvents.DispatchEvent event = null;
+        if(WebEvents.isDispatchEnabled()) {
+            event = new WebEvents.DispatchEvent();
+            event.begin();
+        }
+        // 在路由树中查找 URL 对应的 Dispatcher
+        RouteTrie.Match<Dispatcher> match = dispatchers.match(url);
+        if(match == null) {
+            // 未匹配到任何 Dispatcher
+            resp.sendError(404, "Not Found");
+            if(this.metrics != null)
+                this.metrics.unmatched.record(404, System.nanoTime() - start);
+            return;
+        }
+        Dispatcher dispatcher = match.handler();
+        RequestTiming timing = null;
+        if(this.timingEnabled) {
+            timing = new RequestTiming(start, isTimingVisible(req));
+            timing.add(RequestTiming.Phase.ROUTE, System.nanoTime() - start);
+            req.setAttribute(RequestTiming.ATTRIBUTE, timing);
+        }
+        // 处理方法抛出的非 ErrorResponseException 异常交给容器，按 500 记录
+        int error = 500;
         try {
-            doService(url, req, resp, dispatchers);
+            doService(url, dispatcher, match.variables(), req, resp);
+            error = 0;
         } catch (ErrorResponseException e) {
-            logger.warn("process request failed with status " + e.statusCode + " : " + url, e);
-            if(!resp.isCommitted()) {
-                resp.resetBuffer();
-                resp.sendError(e.statusCode);
-            }
+            error = 0;
+            sendError(url, e, resp);
         } catch (RuntimeException | ServletException | IOException e) {
             logger.warn("process request failed: " + url, e);
             throw e;
         } catch (Exception e) {
             logger.warn("process request failed: " + url, e);
             throw new NestedRuntimeException(e);
+        } finally {
+            if(dispatcher.metrics != null || event != null)
+                complete(dispatcher, start, error, timing, event, req, resp);
         }
     }
 
-    void doService(String url, HttpServletRequest req, HttpServletResponse resp, List<Dispatcher> dispatchers) throws Exception{
-        // 依次匹配每个 Dispatcher 的 URL
-        for(Dispatcher dispatcher : dispatchers) {
-            Result result = dispatcher.process(url, req, resp);
-            // 匹配成功并处理后
-            if(result.processed()) {
-                // 对结果进行处理
-                Object r = result.returnObject();
-                if(dispatcher.isRest) {
-                    // 发送 rest 响应
-                    if(!resp.isCommitted()) {
-                        resp.setContentType("application/json");
-                    }
-                    if(dispatcher.isResponseBody) {
-                        if(r instanceof String s) {
-                            PrintWriter pw = resp.getWriter();
-                            pw.write(s);
-                            pw.flush();
-                        } else if (r instanceof byte[] data){
-                            ServletOutputStream output = resp.getOutputStream();
-                            output.write(data);
-                            output.flush();
-                        } else {
-                            throw new ServletException("Unable to process REST result when handle url: " + url);
-                        }
-                    } else if (!dispatcher.isVoid) {
-                        PrintWriter pw = resp.getWriter();
-                        logger.info("r is others: {}", r);
-                        JsonUtils.writeJson(pw, r);
-                        pw.flush();
-                    }
+    // 是否向该请求输出 Server-Timing：携带正确的令牌或被抽样
+    boolean isTimingVisible(HttpServletRequest req) {
+        if(this.timingToken != null) {
+            String token = req.getHeader("X-Server-Timing-Token");
+            if(token != null && MessageDigest.isEqual(this.timingToken, token.getBytes(StandardCharsets.UTF_8)))
+                return true;
+        }
+        return this.timingSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < this.timingSampleRate;
+    }
+
+    void doService(String url, Dispatcher dispatcher, String[] pathVariables,
+                   HttpServletRequest req, HttpServletResponse resp) throws Exception{
+        if(dispatcher.cacheTtl > 0 || dispatcher.singleFlightTimeout > 0) {
+            processShared(url, dispatcher, pathVariables, req, resp);
+            return;
+        }
+        if(dispatcher.isVirtualThread) {
+            dispatchOnVirtualThread(url, dispatcher, pathVariables, req, resp);
+            return;
+        }
+        Object r = dispatcher.process(pathVariables, req, resp);
+        if(r instanceof SseEmitter emitter) {
+            startSse(url, emitter, req, resp);
+        } else if(dispatcher.isAsync && r instanceof CompletionStage<?> stage) {
+            handleAsyncResult(url, dispatcher, stage, new AsyncRequest(url, req, resp), req, resp);
+        } else {
+            handleResult(url, dispatcher, r, req, resp);
+        }
+    }
+
+    // 同步请求在返回时记录，异步请求（CompletionStage、虚拟线程、SSE）在完成时记录；event 为 null 表示 JFR 未记录该事件
+    void complete(Dispatcher dispatcher, long start, int error, RequestTiming timing, WebEvents.DispatchEvent event,
+                  HttpServletRequest req, HttpServletResponse resp) {
+        if(error == 0 && req.isAsyncStarted()) {
+            req.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent e) {
+                    record(dispatcher, start, resp.getStatus(), timing, event, true, req, resp);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent e) {
+                }
+
+                @Override
+                public void onError(AsyncEvent e) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent e) {
+                }
+            });
+        } else {
+            record(dispatcher, start, error == 0 ? resp.getStatus() : error, timing, event, false, req, resp);
+        }
+    }
+
+    void record(Dispatcher dispatcher, long start, int status, RequestTiming timing, WebEvents.DispatchEvent event,
+                boolean async, HttpServletRequest req, HttpServletResponse resp) {
+        if(dispatcher.metrics != null) {
+            dispatcher.metrics.record(status, System.nanoTime() - start);
+            if(timing != null)
+                dispatcher.metrics.record(timing);
+        }
+        if(event == null)
+            return;
+        event.end();
+        if(event.shouldCommit()) {
+            event.method = dispatcher.httpMethod;
+            event.route = dispatcher.path;
+            event.uri = req.getRequestURI();
+            event.handler = dispatcher.handlerName;
+            event.status = status;
+            event.requestBytes = req.getContentLengthLong();
+            event.responseBytes = contentLength(resp);
+            event.async = async;
+            event.commit();
+        }
+    }
+
+    // 已设置的 Content-Length，流式输出时为 -1
+    static long contentLength(HttpServletResponse resp) {
+        String length = resp.getHeader("Content-Length");
+        if(length == null)
+            return -1;
+        try {
+            return Long.parseLong(length);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // 输出指标，默认为 Prometheus 文本格式，?format=json 或 Accept 为 application/json 时输出 JSON
+    void writeMetrics(HttpServletRequest req, HttpServletResponse resp) throws IOException{
+        String accept = req.getHeader("Accept");
+        boolean json = "json".equals(req.getParameter("format"))
+                || (accept != null && accept.contains("application/json"));
+        resp.setHeader("Cache-Control", "no-store");
+        if(json) {
+            // 与其它 JSON 响应一致，按 UTF-8 写出字节，Content-Type 不带 charset；写完后 writer 已关闭
+            resp.setContentType("application/json");
+            this.metrics.writeJson(new OutputStreamWriter(resp.getOutputStream(), StandardCharsets.UTF_8));
+        } else {
+            resp.setContentType("text/plain;version=0.0.4");
+            resp.setCharacterEncoding("UTF-8");
+            this.metrics.writePrometheus(resp.getWriter());
+            resp.getWriter().flush();
+        }
+    }
+
+    // 处理结果以序列化字节共享的方法（@ResponseCache / @SingleFlight）：
+    // 未命中时调用并缓存，过期但在 staleWhileRevalidate 内时返回旧响应并在后台刷新
+    void processShared(String url, Dispatcher dispatcher, String[] pathVariables,
+                       HttpServletRequest req, HttpServletResponse resp) throws Exception{
+        String key = dispatcher.cacheKey(pathVariables, req);
+        if(dispatcher.cacheTtl == 0) {
+            writeCached(processSingleFlight(key, dispatcher, pathVariables, req, resp), req, resp);
+            return;
+        }
+        CachedResponse cached = this.responseCache.get(key);
+        long age = cached == null ? Long.MAX_VALUE : System.nanoTime() - cached.createdAt;
+        if(age >= dispatcher.cacheTtl + dispatcher.cacheStale) {
+            cached = dispatcher.singleFlightTimeout > 0 ? processSingleFlight(key, dispatcher, pathVariables, req, resp)
+                    : processAndSerialize(dispatcher, pathVariables, req, resp);
+            this.responseCache.put(key, cached, cached.size(key));
+        } else if(age >= dispatcher.cacheTtl && cached.refreshing.compareAndSet(false, true)) {
+            // 参数在请求线程中解析，请求结束后不能再访问 req
+            Object[] arguments = dispatcher.arguments(pathVariables, req, resp);
+            CachedResponse stale = cached;
+            this.virtualThreadExecutor.submit(() -> {
+                try {
+                    cacheResult(key, dispatcher, dispatcher.invoker.invoke(arguments));
+                } catch (Exception e) {
+                    logger.warn("refresh cached response failed: " + url, e);
+                    stale.refreshing.set(false);
+                }
+            });
+        }
+        writeCached(cached, req, resp);
+    }
+
+    // 同一 key 只有一个请求调用处理方法，其余请求等待其结果，等待超时则自己调用
+    CachedResponse processSingleFlight(String key, Dispatcher dispatcher, String[] pathVariables,
+                                       HttpServletRequest req, HttpServletResponse resp) throws Exception{
+        CompletableFuture<CachedResponse> flight = new CompletableFuture<>();
+        CompletableFuture<CachedResponse> leader = this.inFlight.putIfAbsent(key, flight);
+        if(leader == null) {
+            CachedResponse result;
+            try {
+                result = processAndSerialize(dispatcher, pathVariables, req, resp);
+            } catch (Exception e) {
+                this.inFlight.remove(key, flight);
+                flight.completeExceptionally(e);
+                throw e;
+            }
+            // 先移除再通知，结果不会被调用结束后到达的请求使用
+            this.inFlight.remove(key, flight);
+            flight.complete(result);
+            return result;
+        }
+        try {
+            return leader.get(dispatcher.singleFlightTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return processAndSerialize(dispatcher, pathVariables, req, resp);
+        } catch (ExecutionException e) {
+            // 与发起调用的请求得到相同的错误
+            if(e.getCause() instanceof Exception cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    // 在请求线程中调用处理方法并序列化结果，与 handleResult 一样记录 serialize 阶段
+    CachedResponse processAndSerialize(Dispatcher dispatcher, String[] pathVariables,
+                                       HttpServletRequest req, HttpServletResponse resp) throws Exception{
+        Object r = dispatcher.process(pathVariables, req, resp);
+        RequestTiming timing = dispatcher.timing ? RequestTiming.get(req) : null;
+        if(timing == null)
+            return serialize(dispatcher, r);
+        long t = System.nanoTime();
+        CachedResponse cached = serialize(dispatcher, r);
+        timing.add(RequestTiming.Phase.SERIALIZE, System.nanoTime() - t);
+        return cached;
+    }
+
+    CachedResponse cacheResult(String key, Dispatcher dispatcher, Object r) throws Exception{
+        CachedResponse cached = serialize(dispatcher, r);
+        this.responseCache.put(key, cached, cached.size(key));
+        return cached;
+    }
+
+    CachedResponse serialize(Dispatcher dispatcher, Object r) throws Exception{
+        byte[] body;
+        String contentType = "application/json";
+        if(dispatcher.isResponseBody) {
+            if(r instanceof String s) {
+                body = s.getBytes(StandardCharsets.UTF_8);
+                contentType = "application/json;charset=UTF-8";
+            } else if(r instanceof byte[] data) {
+                body = data;
+            } else {
+                throw new ServletException("Unable to process REST result when handle url: " + dispatcher.path);
+            }
+        } else {
+            body = dispatcher.jsonWriter.writeValueAsBytes(r);
+        }
+        return new CachedResponse(contentType, body, System.nanoTime());
+    }
+
+    void writeCached(CachedResponse cached, HttpServletRequest req, HttpServletResponse resp) throws IOException{
+        boolean compressible = this.compressionMinSize >= 0 && this.compressionMimeTypes.contains("application/json");
+        boolean gzip = compressible && cached.body.length >= this.compressionMinSize
+                && ResourceHandler.quality(req.getHeader("Accept-Encoding"), "gzip") > 0;
+        String etag = gzip ? cached.gzipETag : cached.etag;
+        resp.setContentType(cached.contentType);
+        resp.setHeader("ETag", etag);
+        if(compressible)
+            resp.addHeader("Vary", "Accept-Encoding");
+        // 命中缓存时没有 bind / invoke / serialize 阶段
+        RequestTiming timing = RequestTiming.get(req);
+        if(timing != null)
+            timing.writeHeader(resp);
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if(ifNoneMatch != null && ResourceHandler.matchesETag(ifNoneMatch, etag)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        byte[] body = cached.body;
+        if(gzip) {
+            body = cached.gzipped();
+            resp.setHeader("Content-Encoding", "gzip");
+        }
+        resp.setContentLength(body.length);
+        ServletOutputStream output = resp.getOutputStream();
+        output.write(body);
+        output.flush();
+    }
+
+    // 释放容器线程，待 CompletionStage 完成后再处理结果
+    void handleAsyncResult(String url, Dispatcher dispatcher, CompletionStage<?> stage, AsyncRequest async,
+                           HttpServletRequest req, HttpServletResponse resp) {
+        if(stage instanceof Future<?> future)
+            async.cancelOnTimeout(future);
+        stage.whenComplete((result, error) -> {
+            if(!async.tryFinish())
+                return;
+            try {
+                if(error != null) {
+                    sendError(url, error, resp);
                 } else {
-                    // 处理 MVC
-                    if(!resp.isCommitted()) {
-                        resp.setContentType("text/html");
-                    }
-                    if(r instanceof String s) {
-                        if(dispatcher.isResponseBody) {
-                            PrintWriter pw = resp.getWriter();
-                            pw.write(s);
-                            pw.flush();
-                        } else if (s.startsWith("redirect:")) {
-                            resp.sendRedirect(s.substring(9));
-                        } else {
-                            throw new ServletException("Unable to process String result when handle url: " + url);
-                        }
-                    } else if (r instanceof byte[] data) {
-                        if(dispatcher.isResponseBody) {
-                            ServletOutputStream output = resp.getOutputStream();
-                            output.write(data);
-                            output.flush();
-                        } else {
-                            throw new ServletException("Unable to process String result when handle url: " + url);
-                        }
-                    } else if (r instanceof ModelAndView mv) {
-                        String view = mv.getViewName();
-                        if(view.startsWith("redirect:")) {
-                            resp.sendRedirect(view.substring(9));
-                        } else {
-                            this.viewResolver.render(view, mv.getModel(), req, resp);
-                        }
-                    } else if(!dispatcher.isVoid && r != null) {
-                        throw new ServletException("Unable to process " + r.getClass().getName() + " result when handle url: " + url);
-                    }
+                    handleResult(url, dispatcher, result, req, resp);
+                }
+            } catch (Exception e) {
+                sendError(url, e, resp);
+            } finally {
+                async.complete();
+            }
+        });
+    }
+
+    // 在虚拟线程中调用处理方法并写出结果
+    void dispatchOnVirtualThread(String url, Dispatcher dispatcher, String[] pathVariables,
+                                 HttpServletRequest req, HttpServletResponse resp) {
+        AsyncRequest async = new AsyncRequest(url, req, resp);
+        async.cancelOnTimeout(this.virtualThreadExecutor.submit(() -> {
+            try {
+                Object r = dispatcher.process(pathVariables, req, resp);
+                if(dispatcher.isAsync && r instanceof CompletionStage<?> stage) {
+                    handleAsyncResult(url, dispatcher, stage, async, req, resp);
+                    return;
+                }
+                if(!async.tryFinish())
+                    return;
+                try {
+                    handleResult(url, dispatcher, r, req, resp);
+                } finally {
+                    async.complete();
+                }
+            } catch (Exception e) {
+                if(async.tryFinish()) {
+                    sendError(url, e, resp);
+                    async.complete();
+                }
+            }
+        }));
+    }
+
+    // 保持连接打开并以 text/event-stream 发送事件
+    void startSse(String url, SseEmitter emitter, HttpServletRequest req, HttpServletResponse resp) throws IOException{
+        AsyncContext context = req.startAsync(req, resp);
+        context.setTimeout(emitter.timeout);
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                emitter.close(false);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                emitter.close(true);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                logger.debug("sse connection error: {}", url, event.getThrowable());
+                emitter.close(true);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        resp.setContentType("text/event-stream");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        this.sseEmitters.add(emitter);
+        emitter.onCompletion(() -> this.sseEmitters.remove(emitter));
+        emitter.attach(context, resp.getOutputStream());
+    }
+
+    // 定时向所有 SSE 连接发送注释行，保持连接并及时发现已断开的客户端
+    void sendSseHeartbeats() {
+        for(SseEmitter emitter : this.sseEmitters)
+            emitter.heartbeat();
+    }
+
+    // 逐个序列化 Stream / Iterator / Iterable 中的元素，按 Accept 输出 JSON 数组或 NDJSON
+    void writeJsonStream(Dispatcher dispatcher, Object r, HttpServletRequest req, HttpServletResponse resp) throws IOException{
+        Iterator<?> iterator = r instanceof Stream<?> stream ? stream.iterator()
+                : r instanceof Iterable<?> iterable ? iterable.iterator() : (Iterator<?>) r;
+        try {
+            String accept = req.getHeader("Accept");
+            boolean ndjson = accept != null && accept.contains(NDJSON);
+            if(ndjson && !resp.isCommitted())
+                resp.setContentType(NDJSON);
+            ServletOutputStream output = resp.getOutputStream();
+            if(iterator == null) {
+                dispatcher.jsonWriter.writeValue(output, null);
+                output.flush();
+                return;
+            }
+            // 元素可能是声明类型的子类，SequenceWriter 按每个元素的运行时类型缓存序列化器
+            ObjectWriter elementWriter = dispatcher.jsonWriter.dynamic();
+            SequenceWriter writer = ndjson ? elementWriter.withRootValueSeparator("\n").writeValues(output)
+                    : elementWriter.writeValuesAsArray(output);
+            int count = 0;
+            while(iterator.hasNext()) {
+                writer.write(iterator.next());
+                if(++count % this.streamFlushSize == 0)
+                    writer.flush();
+            }
+            if(ndjson) {
+                writer.flush();
+                if(count > 0)
+                    output.write('\n');
+            }
+            writer.close();
+            output.flush();
+        } finally {
+            if(r instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    logger.warn("close stream result failed.", e);
                 }
+            }
+        }
+    }
+
+    // 以 ErrorResponseException 的状态码响应，其他异常按 500 处理
+    void sendError(String url, Throwable t, HttpServletResponse resp) {
+        if(t instanceof CompletionException && t.getCause() != null)
+            t = t.getCause();
+        int status = 500;
+        if(t instanceof ErrorResponseException e) {
+            status = e.statusCode;
+            logger.warn("process request failed with status " + status + " : " + url, t);
+        } else {
+            logger.warn("process request failed: " + url, t);
+        }
+        if(!resp.isCommitted()) {
+            resp.resetBuffer();
+            try {
+                resp.sendError(status);
+            } catch (IOException e) {
+                logger.warn("send error failed: " + url, e);
+            }
+        }
+    }
+
+    // 对处理方法的返回结果进行处理
+    void handleResult(String url, Dispatcher dispatcher, Object r, HttpServletRequest req, HttpServletResponse resp) throws Exception{
+        boolean gzip = this.compressionMinSize >= 0 && ResourceHandler.quality(req.getHeader("Accept-Encoding"), "gzip") > 0;
+        // 流式结果只在需要判断是否压缩时暂存
+        int limit = dispatcher.isStream ? (gzip ? this.compressionMinSize : 0)
+                : Math.max(this.responseBufferSize, gzip ? this.compressionMinSize : 0);
+        RequestTiming timing = dispatcher.timing ? RequestTiming.get(req) : null;
+        if((limit <= 0 && !gzip) || r instanceof Path || r instanceof File) {
+            if(timing == null) {
+                writeResult(url, dispatcher, r, req, resp);
                 return;
             }
+            // 不缓冲时响应随写出提交，Server-Timing 只能包含写出前的阶段
+            timing.writeHeader(resp);
+            long t = System.nanoTime();
+            try {
+                writeResult(url, dispatcher, r, req, resp);
+            } finally {
+                timing.add(dispatcher.isRest ? RequestTiming.Phase.SERIALIZE : RequestTiming.Phase.RENDER, System.nanoTime() - t);
+            }
+            return;
+        }
+        BufferedResponseWrapper buffered = new BufferedResponseWrapper(resp, this.bufferPool, limit,
+                this.compressionMinSize, this.compressionMimeTypes, gzip);
+        try {
+            long t = timing == null ? 0 : System.nanoTime();
+            writeResult(url, dispatcher, r, req, buffered);
+            if(timing != null) {
+                timing.add(dispatcher.isRest ? RequestTiming.Phase.SERIALIZE : RequestTiming.Phase.RENDER, System.nanoTime() - t);
+                // 超过缓冲大小时响应已提交，不再输出
+                timing.writeHeader(resp);
+            }
+            // 出现异常时不调用 finish()，暂存的内容丢弃，由 sendError 输出错误
+            buffered.finish();
+        } finally {
+            buffered.release();
         }
-        // 未匹配到任何 Dispatcher
-        resp.sendError(404, "Not Found");
     }
 
-    void doResource(String url, HttpServletRequest req, HttpServletResponse resp) throws IOException{
-        ServletContext ctx = req.getServletContext();
-        try(InputStream input = ctx.getResourceAsStream(url)) {
-            if(input == null) {
-                resp.sendError(404, "Not Found");
-            } else {
-                // 猜 content type
-                String file = url;
-                int n = url.lastIndexOf("/");
-                if(n >= 0)
-                    file = url.substring(n + 1);
-                String mime = ctx.getMimeType(file);
-                if(mime == null)
-                    mime = "application/octet-stream";
-                resp.setContentType(mime);
+    void writeResult(String url, Dispatcher dispatcher, Object r, HttpServletRequest req, HttpServletResponse resp) throws Exception{
+        if(r instanceof SseEmitter)
+            throw new ServletException("SseEmitter must be returned directly when handle url: " + url);
+        if(r instanceof Path || r instanceof File) {
+            // 文件交给 ResourceHandler 输出，支持 Range 和 sendfile
+            this.resourceHandler.handleFile(r instanceof File f ? f.toPath() : (Path) r, req, resp);
+            return;
+        }
+        if(dispatcher.isRest) {
+            // 发送 rest 响应
+            if(!resp.isCommitted()) {
+                resp.setContentType("application/json");
+            }
+            if(dispatcher.isResponseBody) {
+                if(r instanceof String s) {
+                    PrintWriter pw = resp.getWriter();
+                    pw.write(s);
+                    pw.flush();
+                } else if (r instanceof byte[] data){
+                    ServletOutputStream output = resp.getOutputStream();
+                    output.write(data);
+                    output.flush();
+                } else {
+                    throw new ServletException("Unable to process REST result when handle url: " + url);
+                }
+            } else if (dispatcher.isStream) {
+                writeJsonStream(dispatcher, r, req, resp);
+            } else if (!dispatcher.isVoid) {
+                // 直接以 UTF-8 字节写出，跳过 Writer 的字符编码
                 ServletOutputStream output = resp.getOutputStream();
-                input.transferTo(output);
+                dispatcher.jsonWriter.writeValue(output, r);
                 output.flush();
             }
+        } else {
+            // 处理 MVC
+            if(!resp.isCommitted()) {
+                resp.setContentType("text/html");
+            }
+            if(r instanceof String s) {
+                if(dispatcher.isResponseBody) {
+                    PrintWriter pw = resp.getWriter();
+                    pw.write(s);
+                    pw.flush();
+                } else if (s.startsWith("redirect:")) {
+                    resp.sendRedirect(s.substring(9));
+                } else {
+                    throw new ServletException("Unable to process String result when handle url: " + url);
+                }
+            } else if (r instanceof byte[] data) {
+                if(dispatcher.isResponseBody) {
+                    ServletOutputStream output = resp.getOutputStream();
+                    output.write(data);
+                    output.flush();
+                } else {
+                    throw new ServletException("Unable to process String result when handle url: " + url);
+                }
+            } else if (r instanceof ModelAndView mv) {
+                String view = mv.getViewName();
+                if(view.startsWith("redirect:")) {
+                    resp.sendRedirect(view.substring(9));
+                } else {
+                    this.viewResolver.render(view, mv.getModel(), req, resp);
+                }
+            } else if(!dispatcher.isVoid && r != null) {
+                throw new ServletException("Unable to process " + r.getClass().getName() + " result when handle url: " + url);
+            }
+        }
+    }
+
+    void doResource(String url, HttpServletRequest req, HttpServletResponse resp) throws IOException{
+        this.resourceHandler.handle(url, req, resp);
+    }
+
+    /**
+     * 一次异步处理的请求，超时与处理完成只有先到的一方写出响应
+     */
+    class AsyncRequest implements AsyncListener {
+        final String url;
+        final HttpServletResponse resp;
+        final AsyncContext context;
+        final AtomicBoolean done = new AtomicBoolean(false);
+        volatile Future<?> task;
+
+        AsyncRequest(String url, HttpServletRequest req, HttpServletResponse resp) {
+            this.url = url;
+            this.resp = resp;
+            this.context = req.startAsync(req, resp);
+            this.context.setTimeout(asyncTimeout);
+            this.context.addListener(this);
+        }
+
+        // 超时后取消仍在执行的任务
+        void cancelOnTimeout(Future<?> task) {
+            this.task = task;
+        }
+
+        boolean tryFinish() {
+            return this.done.compareAndSet(false, true);
+        }
+
+        void complete() {
+            this.context.complete();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if(tryFinish()) {
+                Future<?> t = this.task;
+                if(t != null)
+                    t.cancel(true);
+                sendError(this.url, new ErrorResponseException(asyncTimeoutStatus, "Async request timeout."), this.resp);
+                complete();
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            this.done.set(true);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * 某一时刻的路由表，GET 和 POST 一起替换；RouteTrie 不可变，可以被请求线程直接读取
+     */
+    record Routes(RouteTrie<Dispatcher> getDispatchers, RouteTrie<Dispatcher> postDispatchers) {
+
+        RouteTrie<Dispatcher> of(String httpMethod) {
+            return switch (httpMethod) {
+                case "GET" -> this.getDispatchers;
+                case "POST" -> this.postDispatchers;
+                default -> null;
+            };
+        }
+
+        Routes with(String httpMethod, RouteTrie<Dispatcher> dispatchers) {
+            return "GET".equals(httpMethod) ? new Routes(dispatchers, this.postDispatchers)
+                    : new Routes(this.getDispatchers, dispatchers);
         }
     }
 
     static class Dispatcher {
-        final Logger logger = LoggerFactory.getLogger(getClass());
+        static final AtomicLong IDS = new AtomicLong();
 
-        final static Result NOT_PROCESSED = new Result(false, null);
+        final Logger logger = LoggerFactory.getLogger(getClass());
+        // 区分同一路径先后注册的处理方法，避免重新注册后命中旧的缓存
+        final long id = IDS.incrementAndGet();
 
         boolean isRest;
         boolean isResponseBody;
         boolean isVoid;
-        Pattern urlPattern;
+        // 返回 CompletionStage，以 Servlet 异步方式处理
+        boolean isAsync;
+        // 在虚拟线程中执行
+        boolean isVirtualThread;
+        // 返回 Stream / Iterator / Iterable（Collection 除外），逐个元素序列化
+        boolean isStream;
+        // 返回 SseEmitter
+        boolean isSse;
+        String httpMethod;
+        String path;
         Object controller;
         Method handlerMethod;
+        HandlerInvoker invoker;
         Param[] methodParameters;
+        // 按返回类型预先创建，REST 结果序列化时复用
+        JsonUtils.TypedWriter jsonWriter;
+        // @ResponseCache 的有效期和 staleWhileRevalidate，纳秒，cacheTtl 为 0 表示不缓存
+        long cacheTtl;
+        long cacheStale;
+        String[] cacheHeaders = new String[0];
+        // @SingleFlight 的等待时间，毫秒，0 表示不合并
+        long singleFlightTimeout;
+        int pathVariableCount;
+        // 请求数和耗时，未启用指标时为 null
+        WebMetrics.RouteMetrics metrics;
+        // 记录 bind / invoke 阶段耗时
+        boolean timing;
+        // JFR 事件中的处理方法名
+        String handlerName;
 
-        public Dispatcher(String httpMethod, boolean isRest, Object controller, Method method, String path) throws ServletException{
+        // route 为编译时生成的路由信息，为 null 时通过反射读取参数注解
+        public Dispatcher(String httpMethod, boolean isRest, Object controller, Method method, String path,
+                          RouteRegistry.Route route, DispatcherServlet servlet) throws ServletException{
             this.isRest = isRest;
             this.isResponseBody = method.getAnnotation(ResponseBody.class) != null;
-            this.isVoid = method.getReturnType() == void.class;
-            this.urlPattern = PathUtils.compile(path);
+            this.isAsync = CompletionStage.class.isAssignableFrom(method.getReturnType());
+            this.isSse = SseEmitter.class.isAssignableFrom(method.getReturnType());
+            // SseEmitter 需在容器线程中直接返回，事件由其他线程发送
+            this.isVirtualThread = !this.isSse && (servlet.virtualThreadByDefault
+                    || method.isAnnotationPresent(RunOnVirtualThread.class)
+                    || controller.getClass().isAnnotationPresent(RunOnVirtualThread.class));
+            JavaType resultType = resultType(method, this.isAsync);
+            this.isVoid = resultType.hasRawClass(void.class) || resultType.hasRawClass(Void.class);
+            this.httpMethod = httpMethod;
+            this.timing = servlet.timingEnabled;
+            this.handlerName = method.getDeclaringClass().getName() + "." + method.getName();
+            this.path = path;
             this.controller = controller;
             this.handlerMethod = method;
+            if(route != null && HandlerInvoker.GENERATED.equals(servlet.handlerInvoker)) {
+                RouteRegistry.Invoker generated = route.invoker();
+                this.invoker = arguments -> generated.invoke(controller, arguments);
+            } else {
+                this.invoker = HandlerInvoker.create(servlet.handlerInvoker, controller, method);
+            }
+            if(this.isAsync && SseEmitter.class.isAssignableFrom(resultType.getRawClass()))
+                throw new ServletException("SseEmitter must be returned directly at method: " + method);
+            if(isRest && !this.isResponseBody && !this.isSse) {
+                Class<?> streamType = streamType(resultType.getRawClass());
+                if(streamType != null) {
+                    // 预先创建元素类型的 ObjectWriter
+                    this.isStream = true;
+                    JavaType[] params = resultType.findTypeParameters(streamType);
+                    this.jsonWriter = JsonUtils.writerFor(params.length == 1 ? params[0] : Object.class);
+                } else if(!this.isVoid) {
+                    this.jsonWriter = JsonUtils.writerFor(resultType);
+                }
+            }
+            List<String> pathVariables = PathUtils.variableNames(path);
             Parameter[] params = method.getParameters();
-            Annotation[][] annos = method.getParameterAnnotations();
             this.methodParameters = new Param[params.length];
-            for(int i = 0; i < params.length; i++) {
-                this.methodParameters[i] = new Param(httpMethod, method, params[i], annos[i]);
+            if(route != null) {
+                for(int i = 0; i < params.length; i++)
+                    this.methodParameters[i] = new Param(method, params[i], route.params()[i], pathVariables, servlet);
+            } else {
+                Annotation[][] annos = method.getParameterAnnotations();
+                for(int i = 0; i < params.length; i++)
+                    this.methodParameters[i] = new Param(httpMethod, method, params[i], annos[i], pathVariables, servlet);
             }
 
-            logger.atDebug().log("mapping {} to {}.{}", urlPattern, controller.getClass().getName(), method.getName());
+            this.pathVariableCount = pathVariables.size();
+            ResponseCache cache = method.getAnnotation(ResponseCache.class);
+            if(cache != null)
+                initCache(httpMethod, method, cache);
+            SingleFlight singleFlight = method.getAnnotation(SingleFlight.class);
+            if(singleFlight != null)
+                initSingleFlight(httpMethod, method, singleFlight);
+
+            logger.atDebug().log("mapping {} to {}.{}", path, controller.getClass().getName(), method.getName());
             if(logger.isDebugEnabled()) {
                 for(var p : methodParameters)
                     logger.debug("> parameter: {}", p);
             }
         }
 
-        // 调用url对应的处理方法
-        Result process(String url, HttpServletRequest req, HttpServletResponse resp) throws Exception{
-            Matcher matcher = urlPattern.matcher(url);
-            if(matcher.matches()) {
-                Object[] arguments = new Object[this.methodParameters.length];
-                for(int i = 0; i < arguments.length; i++) {
-                    Param param = methodParameters[i];
-                    arguments[i] = switch (param.paramType) {
-                        case PATH_VARIABLE -> {
-                            try {
-                                String s = matcher.group(param.name);
-                                yield convertToType(param.classType, s);
-                            }catch (IllegalArgumentException e) {
-                                throw new ServerWebInputException("Path variable " + param.name + " not found.");
-                            }
-                        }
-                        case REQUEST_BODY -> {
-                            BufferedReader reader = req.getReader();
-                            yield JsonUtils.readJson(reader, param.classType);
-                        }
-                        case REQUEST_PARAM -> {
-                            String s = getOrDefault(req, param.name, param.defaultValue);
-                            yield convertToType(param.classType, s);
-                        }
-                        case SERVLET_VARIABLE -> {
-                            Class<?> classType = param.classType;
-                            if(classType == HttpServletRequest.class) {
-                                yield req;
-                            } else if (classType == HttpServletResponse.class) {
-                                yield resp;
-                            } else if (classType == HttpSession.class) {
-                                yield req.getSession();
-                            } else if (classType == ServletContext.class) {
-                                yield req.getServletContext();
-                            } else {
-                                throw new ServerErrorException("Could not determine argument type " + classType);
-                            }
-                        }
-                    };
+        void initCache(String httpMethod, Method method, ResponseCache cache) throws ServletException{
+            checkShared(httpMethod, method, "@ResponseCache");
+            if(cache.ttl() <= 0 || cache.staleWhileRevalidate() < 0)
+                throw new ServletException("Invalid @ResponseCache at method: " + method);
+            this.cacheTtl = TimeUnit.MILLISECONDS.toNanos(cache.ttl());
+            this.cacheStale = TimeUnit.MILLISECONDS.toNanos(cache.staleWhileRevalidate());
+            this.cacheHeaders = cache.headers();
+            // 未命中时直接在请求线程中调用，后台刷新使用虚拟线程
+            this.isVirtualThread = false;
+        }
+
+        void initSingleFlight(String httpMethod, Method method, SingleFlight singleFlight) throws ServletException{
+            checkShared(httpMethod, method, "@SingleFlight");
+            if(singleFlight.timeout() <= 0)
+                throw new ServletException("Invalid @SingleFlight at method: " + method);
+            this.singleFlightTimeout = singleFlight.timeout();
+            this.isVirtualThread = false;
+        }
+
+        // 共享结果的方法，结果只能由路径变量和 @RequestParam 决定
+        void checkShared(String httpMethod, Method method, String annotation) throws ServletException{
+            if(!"GET".equals(httpMethod) || !this.isRest || this.isVoid || this.isAsync || this.isStream || this.isSse)
+                throw new ServletException(annotation + " is only supported on GET REST method with a result: " + method);
+            for(Param param : this.methodParameters) {
+                if(param.paramType != ParamType.PATH_VARIABLE && param.paramType != ParamType.REQUEST_PARAM)
+                    throw new ServletException(annotation + " method can only have @PathVariable or @RequestParam parameters: " + method);
+            }
+        }
+
+        // 缓存键：路由路径 + 处理方法编号 + 路径变量 + @RequestParam 的原始值 + 指定的请求头，以 \0 分隔
+        String cacheKey(String[] pathVariables, HttpServletRequest req) {
+            StringBuilder sb = new StringBuilder(64).append(this.path).append('\0').append(this.id);
+            for(int i = 0; i < this.pathVariableCount; i++)
+                sb.append('\0').append(pathVariables[i]);
+            for(Param param : this.methodParameters) {
+                if(param.paramType == ParamType.REQUEST_PARAM) {
+                    String[] values = req.getParameterValues(param.name);
+                    sb.append('\0');
+                    if(values == null)
+                        sb.append('\1');
+                    else
+                        sb.append(String.join("\2", values));
+                }
+            }
+            for(String header : this.cacheHeaders) {
+                String value = req.getHeader(header);
+                sb.append('\0').append(value == null ? "\1" : value);
+            }
+            return sb.toString();
+        }
+
+        // 处理方法返回结果的类型，CompletionStage<T> 取 T
+        static JavaType resultType(Method method, boolean isAsync) {
+            JavaType type = JsonUtils.OBJECT_MAPPER.constructType(method.getGenericReturnType());
+            if(isAsync) {
+                JavaType[] params = type.findTypeParameters(CompletionStage.class);
+                type = params.length == 1 ? params[0] : JsonUtils.OBJECT_MAPPER.constructType(Object.class);
+            }
+            return type;
+        }
+
+        // 逐个元素序列化的返回类型；Collection 已全部在内存中，仍整体序列化
+        static Class<?> streamType(Class<?> rawType) {
+            if(Stream.class.isAssignableFrom(rawType))
+                return Stream.class;
+            if(Iterator.class.isAssignableFrom(rawType))
+                return Iterator.class;
+            if(Iterable.class.isAssignableFrom(rawType) && !Collection.class.isAssignableFrom(rawType))
+                return Iterable.class;
+            return null;
+        }
+
+        // 调用url对应的处理方法，pathVariables 为路由匹配得到的路径变量值
+        Object process(String[] pathVariables, HttpServletRequest req, HttpServletResponse resp) throws Exception{
+            RequestTiming timing = this.timing ? RequestTiming.get(req) : null;
+            if(timing == null && !WebEvents.isProcessEnabled())
+                return this.invoker.invoke(arguments(pathVariables, req, resp));
+            WebEvents.BindEvent bindEvent = new WebEvents.BindEvent();
+            bindEvent.begin();
+            long start = System.nanoTime();
+            Object[] arguments = arguments(pathVariables, req, resp);
+            long bound = System.nanoTime();
+            bindEvent.end();
+            if(timing != null)
+                timing.add(RequestTiming.Phase.BIND, bound - start);
+            if(bindEvent.shouldCommit()) {
+                bindEvent.route = this.path;
+                bindEvent.handler = this.handlerName;
+                bindEvent.requestBytes = req.getContentLengthLong();
+                bindEvent.commit();
+            }
+            WebEvents.InvokeEvent invokeEvent = new WebEvents.InvokeEvent();
+            invokeEvent.begin();
+            try {
+                // 返回 CompletionStage 时只包含同步部分
+                return this.invoker.invoke(arguments);
+            } finally {
+                if(timing != null)
+                    timing.add(RequestTiming.Phase.INVOKE, System.nanoTime() - bound);
+                invokeEvent.end();
+                if(invokeEvent.shouldCommit()) {
+                    invokeEvent.route = this.path;
+                    invokeEvent.handler = this.handlerName;
+                    invokeEvent.commit();
                 }
-                Object result = null;
-                try {
-                    result = this.handlerMethod.invoke(controller, arguments);
-                }catch (InvocationTargetException e) {
-                    Throwable t = e.getCause(); // 获得更具体的异常
-                    if(t instanceof Exception ex) {
-                        throw ex;
-                    }
-                    throw e;
-                }catch (ReflectiveOperationException e) {
-                    throw new ServerErrorException(e);
-                }
-                return new Result(true, result);
-            }
-            return NOT_PROCESSED;
-        }
-
-        Object convertToType(Class<?> clazz, String s) {
-            if(clazz == String.class) {
-                return s;
-            } else if(clazz == boolean.class || clazz == Boolean.class) {
-                return Boolean.valueOf(s);
-            } else if(clazz == int.class || clazz == Integer.class) {
-                return Integer.valueOf(s);
-            } else if(clazz == float.class || clazz == Float.class) {
-                return Float.valueOf(s);
-            } else if(clazz == long.class || clazz == Long.class) {
-                return Long.valueOf(s);
-            } else if(clazz == byte.class || clazz == Byte.class) {
-                return Byte.valueOf(s);
-            } else if(clazz == short.class || clazz == Short.class) {
-                return Short.valueOf(s);
-            } else if (clazz == double.class || clazz == Double.class) {
-                return Double.valueOf(s);
-            } else {
-                throw new ServerErrorException("Could not determine argument type: " + clazz);
             }
         }
 
-        String getOrDefault(HttpServletRequest req, String name, String defaultValue) {
-            String s = req.getParameter(name);
-            if(s == null) {
-                if(WebUtils.DEFAULT_PARAM_VALUE.equals(defaultValue))
-                    throw new ServerWebInputException("Request parameter '" + name + "' not found.");
-                return defaultValue;
+        Object[] arguments(String[] pathVariables, HttpServletRequest req, HttpServletResponse resp) throws Exception{
+            Object[] arguments = new Object[this.methodParameters.length];
+            for(int i = 0; i < arguments.length; i++) {
+                arguments[i] = this.methodParameters[i].resolver.resolve(pathVariables, req, resp);
             }
-            return s;
+            return arguments;
         }
     }
 
+    /**
+     * @ResponseCache 缓存或 @SingleFlight 共享的响应，保存序列化后的字节，gzip 版本在首次需要时生成
+     */
+    static final class CachedResponse {
+        final String contentType;
+        final byte[] body;
+        final String etag;
+        final String gzipETag;
+        final long createdAt;
+        // 正在后台刷新，避免同时提交多次刷新
+        final AtomicBoolean refreshing = new AtomicBoolean(false);
+        volatile byte[] gzipped;
+
+        CachedResponse(String contentType, byte[] body, long createdAt) {
+            this.contentType = contentType;
+            this.body = body;
+            this.etag = ResourceHandler.etag(body);
+            this.gzipETag = this.etag.substring(0, this.etag.length() - 1) + "-gzip\"";
+            this.createdAt = createdAt;
+        }
+
+        // 在缓存中占用的大小
+        long size(String key) {
+            return this.body.length + key.length() * 2L + 128;
+        }
+
+        byte[] gzipped() throws IOException {
+            byte[] data = this.gzipped;
+            if(data == null) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(this.body.length / 2);
+                try(GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                    gzip.write(this.body);
+                }
+                data = buffer.toByteArray();
+                this.gzipped = data;
+            }
+            return data;
+        }
+    }
+
+    // 解析处理方法的一个参数
+    @FunctionalInterface
+    interface ArgumentResolver {
+        Object resolve(String[] pathVariables, HttpServletRequest req, HttpServletResponse resp) throws Exception;
+    }
+
     static enum ParamType {
         PATH_VARIABLE, REQUEST_PARAM, REQUEST_BODY, SERVLET_VARIABLE;
     }
@@ -372,8 +1395,13 @@ public class DispatcherServlet extends HttpServlet {
         ParamType paramType;
         Class<?> classType;
         String defaultValue;
+        // 路径变量在路径中的位置
+        int pathVariableIndex = -1;
+        // 启动时根据参数类型预先生成
+        ArgumentResolver resolver;
 
-        public Param(String httpMethod, Method method, Parameter parameter, Annotation[] annotations) throws ServletException{
+        public Param(String httpMethod, Method method, Parameter parameter, Annotation[] annotations,
+                     List<String> pathVariables, DispatcherServlet servlet) throws ServletException{
             PathVariable pv = ClassUtils.getAnnotation(annotations, PathVariable.class);
             RequestParam rp = ClassUtils.getAnnotation(annotations, RequestParam.class);
             RequestBody rb = ClassUtils.getAnnotation(annotations, RequestBody.class);
@@ -392,12 +1420,140 @@ public class DispatcherServlet extends HttpServlet {
                 this.paramType = ParamType.REQUEST_BODY;
             } else {
                 this.paramType = ParamType.SERVLET_VARIABLE;
+            }
+            init(method, parameter, pathVariables, servlet);
+        }
+
+        // 使用编译时生成的参数信息，不再读取参数注解
+        public Param(Method method, Parameter parameter, RouteRegistry.Param param, List<String> pathVariables,
+                     DispatcherServlet servlet) throws ServletException{
+            this.classType = parameter.getType();
+            this.paramType = ParamType.valueOf(param.type());
+            this.name = param.name();
+            this.defaultValue = param.defaultValue();
+            init(method, parameter, pathVariables, servlet);
+        }
+
+        void init(Method method, Parameter parameter, List<String> pathVariables, DispatcherServlet servlet) throws ServletException{
+            if(this.paramType == ParamType.PATH_VARIABLE) {
+                this.pathVariableIndex = pathVariables.indexOf(this.name);
+                if(this.pathVariableIndex < 0)
+                    throw new ServletException("Path variable '" + this.name + "' not found in mapping of method: " + method);
+            } else if (this.paramType == ParamType.SERVLET_VARIABLE) {
                 if(this.classType != HttpServletRequest.class && this.classType != HttpServletResponse.class
                         && this.classType != HttpSession.class && this.classType != ServletContext.class) {
                     throw new ServerErrorException("(Missing annotation?) Unsupported argument type: "
                             + classType + " in method: " + method);
                 }
             }
+            this.resolver = createResolver(method, parameter, servlet);
+        }
+
+        ArgumentResolver createResolver(Method method, Parameter parameter, DispatcherServlet servlet) throws ServletException{
+            final ConverterRegistry converters = servlet.converters;
+            final String name = this.name;
+            final Class<?> classType = this.classType;
+            return switch (this.paramType) {
+                case PATH_VARIABLE -> {
+                    Converter<?> converter = requireConverter(method, classType, converters);
+                    final int index = this.pathVariableIndex;
+                    yield (pathVariables, req, resp) -> convert(converter, pathVariables[index]);
+                }
+                case REQUEST_PARAM -> {
+                    Converter<?> converter = requireConverter(method, classType, converters);
+                    // 默认值在启动时转换一次
+                    final boolean required = WebUtils.DEFAULT_PARAM_VALUE.equals(this.defaultValue);
+                    final Object defaultObject;
+                    try {
+                        defaultObject = required ? null : convert(converter, this.defaultValue);
+                    } catch (ServerWebInputException e) {
+                        throw new ServletException("Invalid default value '" + this.defaultValue + "' at method: " + method, e);
+                    }
+                    if(classType.isArray()) {
+                        // 数组参数取所有同名参数，如 ?id=1&id=2，也支持 ?id=1,2
+                        Converter<?> component = requireConverter(method, classType.getComponentType(), converters);
+                        yield (pathVariables, req, resp) -> {
+                            String[] values = req.getParameterValues(name);
+                            if(values == null)
+                                return missingParameter(name, required, defaultObject);
+                            if(values.length == 1)
+                                return convert(converter, values[0]);
+                            Object array = Array.newInstance(classType.getComponentType(), values.length);
+                            for(int i = 0; i < values.length; i++)
+                                Array.set(array, i, convert(component, values[i]));
+                            return array;
+                        };
+                    }
+                    yield (pathVariables, req, resp) -> {
+                        String s = req.getParameter(name);
+                        return s == null ? missingParameter(name, required, defaultObject) : convert(converter, s);
+                    };
+                }
+                case REQUEST_BODY -> {
+                    final ObjectReader reader = JsonUtils.readerFor(parameter.getParameterizedType());
+                    final long maxBodySize = servlet.maxBodySize;
+                    yield (pathVariables, req, resp) -> readBody(reader, req, maxBodySize);
+                }
+                case SERVLET_VARIABLE -> {
+                    if(classType == HttpServletRequest.class) {
+                        yield (pathVariables, req, resp) -> req;
+                    } else if (classType == HttpServletResponse.class) {
+                        yield (pathVariables, req, resp) -> resp;
+                    } else if (classType == HttpSession.class) {
+                        yield (pathVariables, req, resp) -> req.getSession();
+                    } else {
+                        yield (pathVariables, req, resp) -> req.getServletContext();
+                    }
+                }
+            };
+        }
+
+        Object convert(Converter<?> converter, String s) {
+            try {
+                return converter.convert(s);
+            } catch (IllegalArgumentException | DateTimeException e) {
+                throw new ServerWebInputException("Invalid value for " + (this.paramType == ParamType.PATH_VARIABLE
+                        ? "path variable '" : "request parameter '") + this.name + "': " + s, e);
+            }
+        }
+
+        // 从 InputStream 直接解析 JSON，已知 Content-Length 时一次读入
+        static Object readBody(ObjectReader reader, HttpServletRequest req, long maxBodySize) throws IOException{
+            long length = req.getContentLengthLong();
+            if(length > maxBodySize)
+                throw new ErrorResponseException(413, "Request body exceeds " + maxBodySize + " bytes.");
+            InputStream input = req.getInputStream();
+            String encoding = req.getHeader("Content-Encoding");
+            try {
+                if(encoding != null && !encoding.equalsIgnoreCase("identity")) {
+                    if(!encoding.equalsIgnoreCase("gzip"))
+                        throw new ErrorResponseException(415, "Unsupported Content-Encoding: " + encoding);
+                    // 限制的是解压后的大小，防止压缩炸弹
+                    return reader.readValue(new BoundedInputStream(new GZIPInputStream(input), maxBodySize));
+                }
+                if(length >= 0) {
+                    byte[] data = input.readNBytes((int) length);
+                    if(data.length < length)
+                        throw new ServerWebInputException("Request body is shorter than Content-Length.");
+                    return reader.readValue(data);
+                }
+                return reader.readValue(new BoundedInputStream(input, maxBodySize));
+            } catch (JsonProcessingException | ZipException | EOFException e) {
+                throw new ServerWebInputException("Invalid request body.", e);
+            }
+        }
+
+        static Object missingParameter(String name, boolean required, Object defaultObject) {
+            if(required)
+                throw new ServerWebInputException("Request parameter '" + name + "' not found.");
+            return defaultObject;
+        }
+
+        static Converter<?> requireConverter(Method method, Class<?> type, ConverterRegistry converters) throws ServletException{
+            Converter<?> converter = converters.getConverter(type);
+            if(converter == null)
+                throw new ServletException("Could not determine argument type: " + type + " in method: " + method);
+            return converter;
         }
 
         @Override
@@ -406,6 +1562,4 @@ public class DispatcherServlet extends HttpServlet {
                     + ", defaultValue=" + defaultValue + "]";
         }
     }
-
-    static record Result(boolean processed, Object returnObject) {}
 }
@@ -0,0 +1,112 @@
+package com.learn.summer.web;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按需开始和结束的 JFR 记录，同一时间只有一个。记录的大小、保留时间和最长时长都有上限，
+ * 忘记停止时到时自动结束并写出文件。
+ */
+public class FlightRecording {
+    static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    final Logger logger = LoggerFactory.getLogger(getClass());
+
+    final Path directory;
+    // JFR 内置配置名：default 或 profile
+    final String settings;
+    final long maxSize;
+    final Duration maxAge;
+    final Duration maxDuration;
+
+    Recording recording;
+    Path file;
+
+    public FlightRecording(Path directory, String settings, long maxSize, Duration maxAge, Duration maxDuration) {
+        this.directory = directory;
+        this.settings = settings;
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+        this.maxDuration = maxDuration;
+    }
+
+    // 开始记录并返回结束后写入的文件，已在记录时抛出 IllegalStateException
+    public synchronized Path start() throws IOException, ParseException {
+        if(isRecording())
+            throw new IllegalStateException("Flight recording already started: " + this.file);
+        closeRecording();
+        Files.createDirectories(this.directory);
+        Path file = this.directory.resolve("summer-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+        Recording recording = new Recording(Configuration.getConfiguration(this.settings));
+        recording.setName("summer-web");
+        recording.setToDisk(true);
+        recording.setMaxSize(this.maxSize);
+        recording.setMaxAge(this.maxAge);
+        recording.setDestination(file);
+        recording.start();
+        // 不使用 Recording.setDuration()：JFR 到时先把状态改为 STOPPED 再写出文件，期间 stop() 可能拿到不完整的文件；
+        // 在锁内调用 Recording.stop()，返回时文件已写完
+        CompletableFuture.delayedExecutor(this.maxDuration.toMillis(), TimeUnit.MILLISECONDS)
+                .execute(() -> expire(recording));
+        logger.info("flight recording started: {}", file);
+        this.recording = recording;
+        this.file = file;
+        return file;
+    }
+
+    // 到达最长时长时结束记录并写出文件，保留 recording 以便 stop() 返回该文件
+    synchronized void expire(Recording recording) {
+        if(this.recording != recording || recording.getState() != RecordingState.RUNNING)
+            return;
+        recording.stop();
+        logger.info("flight recording reached max duration: {}", this.file);
+    }
+
+    // 结束记录并返回写出的文件，到达最长时长已自动结束的记录同样关闭并返回文件；未开始记录时返回 null
+    public synchronized Path stop() {
+        if(this.recording == null)
+            return null;
+        closeRecording();
+        logger.info("flight recording stopped: {}", this.file);
+        return this.file;
+    }
+
+    void closeRecording() {
+        Recording recording = this.recording;
+        if(recording == null)
+            return;
+        this.recording = null;
+        try {
+            recording.stop();
+        } catch (IllegalStateException e) {
+            // 到达最长时长时已结束记录并写出文件，只需关闭
+        }
+        recording.close();
+    }
+
+    public synchronized boolean isRecording() {
+        return this.recording != null && this.recording.getState() == RecordingState.RUNNING;
+    }
+
+    // 当前或最近一次记录的文件
+    public synchronized Path getFile() {
+        return this.file;
+    }
+
+    public synchronized void close() {
+        stop();
+    }
+}
@@ -1,6 +1,7 @@
 package com.learn.summer.web;
 
 import com.learn.summer.exception.ServerErrorException;
+import freemarker.cache.StrongCacheStorage;
 import freemarker.core.HTMLOutputFormat;
 import freemarker.ext.jakarta.servlet.WebappTemplateLoader;
 import freemarker.template.*;
@@ -13,22 +14,33 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class FreeMarkerViewResolver implements ViewResolver{
     final Logger logger = LoggerFactory.getLogger(getClass());
 
     final String templatePath;
     final String templateEncoding;
+    // 生产模式：启动时预编译全部模板并永久缓存，不再检查模板更新
+    final boolean production;
 
     final ServletContext servletContext;
 
     Configuration config;
 
     public FreeMarkerViewResolver(ServletContext servletContext, String templatePath, String templateEncoding) {
+        this(servletContext, templatePath, templateEncoding, false);
+    }
+
+    public FreeMarkerViewResolver(ServletContext servletContext, String templatePath, String templateEncoding, boolean production) {
         this.templatePath = templatePath;
         this.templateEncoding = templateEncoding;
         this.servletContext = servletContext;
+        this.production = production;
     }
 
     @Override
@@ -46,7 +58,48 @@ public class FreeMarkerViewResolver implements ViewResolver{
         var ow = new DefaultObjectWrapper(Configuration.VERSION_2_3_33);
         ow.setExposeFields(true);
         cfg.setObjectWrapper(ow);
+        if(this.production) {
+            cfg.setCacheStorage(new StrongCacheStorage());
+            cfg.setTemplateUpdateDelayMilliseconds(Long.MAX_VALUE);
+        }
         this.config = cfg;
+        if(this.production)
+            precompile();
+    }
+
+    // 并行解析模板目录下的全部模板，有语法错误时启动失败
+    void precompile() {
+        List<String> names = new ArrayList<>();
+        String base = this.templatePath.endsWith("/") ? this.templatePath : this.templatePath + "/";
+        findTemplates(base, base, names);
+        Map<String, Exception> errors = new ConcurrentHashMap<>();
+        long start = System.currentTimeMillis();
+        names.parallelStream().forEach(name -> {
+            try {
+                this.config.getTemplate(name);
+            } catch (Exception e) {
+                errors.put(name, e);
+            }
+        });
+        if(!errors.isEmpty()) {
+            errors.forEach((name, e) -> logger.error("failed to compile template: {}", name, e));
+            var e = new IllegalStateException("Failed to compile templates: " + errors.keySet());
+            errors.values().forEach(e::addSuppressed);
+            throw e;
+        }
+        logger.info("precompiled {} templates in {} ms", names.size(), System.currentTimeMillis() - start);
+    }
+
+    void findTemplates(String base, String path, List<String> names) {
+        Set<String> paths = this.servletContext.getResourcePaths(path);
+        if(paths == null)
+            return;
+        for(String p : paths) {
+            if(p.endsWith("/"))
+                findTemplates(base, p, names);
+            else
+                names.add(p.substring(base.length()));
+        }
     }
 
     @Override
@@ -57,6 +110,8 @@ public class FreeMarkerViewResolver implements ViewResolver{
         }catch (Exception e) {
             throw new ServerErrorException("View not found: " + viewName);
         }
+        WebEvents.RenderEvent event = new WebEvents.RenderEvent();
+        event.begin();
         PrintWriter pw = resp.getWriter();
         try {
             tmp.process(model, pw);
@@ -64,6 +119,11 @@ public class FreeMarkerViewResolver implements ViewResolver{
             throw new ServerErrorException(e);
         }
         pw.flush();
+        event.end();
+        if(event.shouldCommit()) {
+            event.view = viewName;
+            event.commit();
+        }
     }
 }
 // FreeMarker 2.3.32 及之前版本需要修改 freemarker.cache.WebappTemplateLoader
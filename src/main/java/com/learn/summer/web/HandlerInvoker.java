@@ -0,0 +1,134 @@
+package com.learn.summer.web;
+
+import com.learn.summer.exception.ServerErrorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * 调用 Controller 中的处理方法，在 DispatcherServlet 初始化时为每个方法绑定一次。
+ * 通过 summer.web.handler-invoker 选择实现：generated（默认）、method-handle 或 reflection。
+ * generated 使用 RouteRegistry 中生成的直接调用，没有生成路由表的方法使用 method-handle。
+ */
+public interface HandlerInvoker {
+
+    String GENERATED = "generated";
+    String METHOD_HANDLE = "method-handle";
+    String REFLECTION = "reflection";
+
+    // 调用处理方法，处理方法抛出的异常原样抛出
+    Object invoke(Object[] arguments) throws Exception;
+
+    static HandlerInvoker create(String type, Object controller, Method method) {
+        if(REFLECTION.equals(type))
+            return new ReflectionInvoker(controller, method);
+        if(!METHOD_HANDLE.equals(type) && !GENERATED.equals(type))
+            throw new IllegalArgumentException("Unsupported handler invoker: " + type);
+        try {
+            return MethodHandleInvoker.define(controller, method);
+        } catch (ReflectiveOperationException e) {
+            // 无法获得 MethodHandle 或定义隐藏类时退回到反射调用
+            LoggerFactory.getLogger(HandlerInvoker.class).warn("fallback to reflection for method: {}", method, e);
+            return new ReflectionInvoker(controller, method);
+        }
+    }
+
+    /**
+     * 绑定 controller 实例后适配为固定的 (Object[])Object 形式。
+     * 实例字段中的 MethodHandle 对 JIT 不是常量，invokeExact 无法内联到处理方法，
+     * 因此以本类为模板，为每个处理方法定义一个隐藏类，MethodHandle 作为 class data 存入其 static final 字段，
+     * JIT 将其视为常量并内联整条调用链。模板本身初始化时 HANDLE 为 null，不会被实例化。
+     */
+    final class MethodHandleInvoker implements HandlerInvoker {
+        static final MethodType INVOKE_TYPE = MethodType.methodType(Object.class, Object[].class);
+        static final MethodHandle HANDLE;
+        static byte[] template;
+
+        static {
+            try {
+                // 在隐藏类中取得定义时传入的 MethodHandle，在模板类中为 null
+                HANDLE = MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, MethodHandle.class);
+            } catch (IllegalAccessException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private MethodHandleInvoker() {
+        }
+
+        static HandlerInvoker define(Object controller, Method method) throws ReflectiveOperationException {
+            // method 已 setAccessible(true)，unreflect 不再做访问检查
+            MethodHandle handle = MethodHandles.lookup().unreflect(method)
+                    .bindTo(controller)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(INVOKE_TYPE);
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClassWithClassData(template(), handle, true);
+            try {
+                return (HandlerInvoker) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+            } catch (ReflectiveOperationException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new ServerErrorException(t);
+            }
+        }
+
+        // 读取本类的 class 文件作为隐藏类的模板
+        static synchronized byte[] template() throws ClassNotFoundException {
+            if(template == null) {
+                String name = MethodHandleInvoker.class.getName();
+                try(InputStream input = MethodHandleInvoker.class.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+                    if(input == null)
+                        throw new ClassNotFoundException("Class file not found: " + name);
+                    template = input.readAllBytes();
+                } catch (IOException e) {
+                    throw new ClassNotFoundException("Cannot read class file: " + name, e);
+                }
+            }
+            return template;
+        }
+
+        @Override
+        public Object invoke(Object[] arguments) throws Exception {
+            try {
+                return (Object) HANDLE.invokeExact(arguments);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new ServerErrorException(t);
+            }
+        }
+    }
+
+    final class ReflectionInvoker implements HandlerInvoker {
+        final Object controller;
+        final Method method;
+
+        ReflectionInvoker(Object controller, Method method) {
+            this.controller = controller;
+            this.method = method;
+        }
+
+        @Override
+        public Object invoke(Object[] arguments) throws Exception {
+            try {
+                return this.method.invoke(this.controller, arguments);
+            } catch (InvocationTargetException e) {
+                Throwable t = e.getCause(); // 获得更具体的异常
+                if(t instanceof Exception ex) {
+                    throw ex;
+                }
+                throw e;
+            } catch (ReflectiveOperationException e) {
+                throw new ServerErrorException(e);
+            }
+        }
+    }
+}
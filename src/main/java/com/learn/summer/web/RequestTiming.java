@@ -0,0 +1,69 @@
+package com.learn.summer.web;
+
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * 一次请求各阶段的耗时，纳秒。启用 summer.web.timing.enabled 时每个请求创建一个，保存在请求属性中。
+ * 异步请求的各阶段由不同线程先后写入，之间已有 CompletionStage / AsyncContext 保证可见性。
+ */
+public final class RequestTiming {
+    static final String ATTRIBUTE = RequestTiming.class.getName();
+
+    public enum Phase {
+        ROUTE, BIND, INVOKE, SERIALIZE, RENDER;
+
+        final String metricName = name().toLowerCase();
+    }
+
+    // 避免每次调用 values() 复制数组
+    static final Phase[] PHASES = Phase.values();
+
+    final long start;
+    // 是否输出 Server-Timing 响应头
+    final boolean header;
+    final long[] durations = new long[PHASES.length];
+    // 已记录的阶段，按 ordinal 置位
+    int recorded;
+
+    RequestTiming(long start, boolean header) {
+        this.start = start;
+        this.header = header;
+    }
+
+    public static RequestTiming get(ServletRequest req) {
+        return (RequestTiming) req.getAttribute(ATTRIBUTE);
+    }
+
+    public void add(Phase phase, long nanos) {
+        this.durations[phase.ordinal()] += nanos;
+        this.recorded |= 1 << phase.ordinal();
+    }
+
+    public long get(Phase phase) {
+        return this.durations[phase.ordinal()];
+    }
+
+    public boolean isRecorded(Phase phase) {
+        return (this.recorded & 1 << phase.ordinal()) != 0;
+    }
+
+    // 响应提交前写出已记录的阶段，单位毫秒
+    void writeHeader(HttpServletResponse resp) {
+        if(!this.header || resp.isCommitted())
+            return;
+        StringBuilder sb = new StringBuilder(96);
+        for(Phase phase : PHASES) {
+            if(isRecorded(phase))
+                appendMetric(sb, phase.metricName, this.durations[phase.ordinal()]);
+        }
+        appendMetric(sb, "total", System.nanoTime() - this.start);
+        resp.setHeader("Server-Timing", sb.toString());
+    }
+
+    static void appendMetric(StringBuilder sb, String name, long nanos) {
+        if(!sb.isEmpty())
+            sb.append(", ");
+        sb.append(name).append(";dur=").append(nanos / 1000 / 1000.0);
+    }
+}
@@ -0,0 +1,507 @@
+package com.learn.summer.web;
+
+import com.learn.summer.web.utils.BoundedCache;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 处理静态资源：按总字节数限制大小的内存缓存（近似 LRU），包含内容、MIME 类型和强 ETag，
+ * 支持 If-None-Match / If-Modified-Since 返回 304。不存在的资源同样缓存，避免 404 反复访问文件系统。
+ * 超过缓存大小的文件在容器支持时交给 sendfile 输出，否则从 FileChannel 经小缓冲写出，并支持 Range / If-Range。
+ * 按 Accept-Encoding 选择 .br / .gz 预压缩版本，每个版本有独立的缓存项和 ETag。
+ * checkModified 为 true 时，命中来自文件的缓存项会检查文件的修改时间，缓存为不存在的资源会检查文件是否已创建，
+ * 变化后重新读取；为 false 时缓存项直到被淘汰都不会更新，适用于静态资源不再变化的生产环境。
+ */
+public class ResourceHandler {
+    static final Resource MISSING = new Resource(null, null, 0, null, null, null, 0, null, null, 0);
+    // 过大且不是文件的资源，缓存该标记避免每次读取 maxEntrySize 字节后丢弃
+    static final Resource TOO_LARGE = new Resource(null, null, 0, null, null, null, 0, null, null, 0);
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    // 不小于该长度的文件片段交给容器的 sendfile 输出
+    static final long SENDFILE_THRESHOLD = 64 * 1024;
+    // 超过该数量的 Range 直接输出完整内容，避免大量小片段放大响应
+    static final int MAX_RANGES = 16;
+    // RFC 1123 要求日期为两位数
+    static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+
+    // 超过该大小的资源不缓存，每次直接读取
+    final long maxEntrySize;
+    final String cacheControl;
+    // 查找 .br / .gz 预压缩文件
+    final boolean precompressed;
+    // 没有预压缩文件时，对不小于该大小的文本资源在内存中 gzip 一次，小于 0 表示不压缩
+    final long compressMinSize;
+    // 命中缓存时检查文件是否变化
+    final boolean checkModified;
+
+    // 缓存总字节数上限为 maxCacheSize，0 表示不缓存
+    final BoundedCache<Resource> cache;
+
+    public ResourceHandler(long maxCacheSize, long maxEntrySize, String cacheControl, boolean precompressed,
+                           long compressMinSize, boolean checkModified) {
+        this.maxEntrySize = maxEntrySize;
+        this.cache = new BoundedCache<>(maxCacheSize);
+        this.cacheControl = cacheControl;
+        this.precompressed = precompressed;
+        this.compressMinSize = compressMinSize;
+        this.checkModified = checkModified;
+    }
+
+    public void handle(String url, HttpServletRequest req, HttpServletResponse resp) throws IOException{
+        if(isProtected(url)) {
+            resp.sendError(404, "Not Found");
+            return;
+        }
+        ServletContext ctx = req.getServletContext();
+        Resource resource = getResource(ctx, url, null);
+        if(resource == MISSING) {
+            resp.sendError(404, "Not Found");
+        } else if(resource != null) {
+            if(this.precompressed) {
+                resp.setHeader("Vary", "Accept-Encoding");
+                Resource encoded = getEncodedResource(ctx, url, req.getHeader("Accept-Encoding"));
+                if(encoded != null)
+                    resource = encoded;
+            }
+            serve(resource, req, resp);
+        } else {
+            // 资源过大且不是文件，直接读取输出
+            try(InputStream input = ctx.getResourceAsStream(url)) {
+                if(input == null) {
+                    resp.sendError(404, "Not Found");
+                    return;
+                }
+                resp.setContentType(mimeType(ctx, url));
+                ServletOutputStream output = resp.getOutputStream();
+                input.transferTo(output);
+                output.flush();
+            }
+        }
+    }
+
+    // WEB-INF、META-INF 下的文件和未规范化的路径不作为静态资源输出
+    static boolean isProtected(String url) {
+        for(String segment : url.split("/")) {
+            if(segment.equalsIgnoreCase("WEB-INF") || segment.equalsIgnoreCase("META-INF")
+                    || segment.equals(".") || segment.equals("..") || segment.indexOf('\\') >= 0)
+                return true;
+        }
+        return false;
+    }
+
+    // 输出处理方法返回的文件，与静态文件一样支持 Range 和 sendfile
+    public void handleFile(Path file, HttpServletRequest req, HttpServletResponse resp) throws IOException{
+        Resource resource = fileResource(file, mimeType(req.getServletContext(), file.toString()), null);
+        if(resource == null) {
+            resp.sendError(404, "Not Found");
+        } else {
+            serve(resource, req, resp);
+        }
+    }
+
+    void serve(Resource resource, HttpServletRequest req, HttpServletResponse resp) throws IOException{
+        writeHeaders(resource, resp);
+        if(isNotModified(resource, req)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        List<long[]> ranges = ranges(resource, req);
+        if(ranges == null) {
+            resp.setContentLengthLong(resource.length);
+            write(resource, 0, resource.length, req, resp);
+        } else if(ranges.isEmpty()) {
+            resp.setHeader("Content-Range", "bytes */" + resource.length);
+            resp.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        } else if(ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            resp.setHeader("Content-Range", contentRange(range, resource.length));
+            resp.setContentLengthLong(range[1] - range[0] + 1);
+            write(resource, range[0], range[1] - range[0] + 1, req, resp);
+        } else {
+            writeMultipart(resource, ranges, resp);
+        }
+    }
+
+    // 多个 Range 以 multipart/byteranges 输出，预先计算 Content-Length
+    void writeMultipart(Resource resource, List<long[]> ranges, HttpServletResponse resp) throws IOException{
+        String boundary = "SUMMER_" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        byte[][] headers = new byte[ranges.size()][];
+        byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        long total = end.length;
+        for(int i = 0; i < headers.length; i++) {
+            long[] range = ranges.get(i);
+            headers[i] = ("\r\n--" + boundary + "\r\nContent-Type: " + resource.mimeType
+                    + "\r\nContent-Range: " + contentRange(range, resource.length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            total += headers[i].length + range[1] - range[0] + 1;
+        }
+        resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        resp.setContentType("multipart/byteranges; boundary=" + boundary);
+        resp.setContentLengthLong(total);
+        ServletOutputStream output = resp.getOutputStream();
+        for(int i = 0; i < headers.length; i++) {
+            long[] range = ranges.get(i);
+            output.write(headers[i]);
+            writeRange(resource, range[0], range[1] - range[0] + 1, output);
+        }
+        output.write(end);
+        output.flush();
+    }
+
+    void write(Resource resource, long start, long length, HttpServletRequest req, HttpServletResponse resp) throws IOException{
+        if(resource.file != null && length >= SENDFILE_THRESHOLD && Boolean.TRUE.equals(req.getAttribute(SENDFILE_SUPPORT))) {
+            // 容器支持 sendfile 时，由容器在 servlet 返回后直接从文件发送
+            req.setAttribute("org.apache.tomcat.sendfile.filename", resource.file.toAbsolutePath().toString());
+            req.setAttribute("org.apache.tomcat.sendfile.start", start);
+            req.setAttribute("org.apache.tomcat.sendfile.end", start + length);
+            return;
+        }
+        ServletOutputStream output = resp.getOutputStream();
+        writeRange(resource, start, length, output);
+        output.flush();
+    }
+
+    static void writeRange(Resource resource, long start, long length, ServletOutputStream output) throws IOException{
+        if(resource.content != null) {
+            output.write(resource.content, (int) start, (int) length);
+            return;
+        }
+        // 通用的 ServletOutputStream.write(ByteBuffer) 会把整个缓冲复制成同样大小的 byte[]，
+        // 这里经 transferTo 以 8 KB 左右的临时缓冲分段写出，不做内存映射
+        try(FileChannel channel = FileChannel.open(resource.file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(output);
+            long end = start + length;
+            while(start < end) {
+                long n = channel.transferTo(start, end - start, target);
+                if(n <= 0 && start >= channel.size())
+                    throw new IOException("Unexpected end of file: " + resource.file);
+                start += n;
+            }
+        }
+    }
+
+    // 解析 Range，返回 null 表示输出完整内容，空列表表示无法满足
+    static List<long[]> ranges(Resource resource, HttpServletRequest req) {
+        String range = req.getHeader("Range");
+        if(range == null || !range.startsWith("bytes=") || !"GET".equals(req.getMethod()))
+            return null;
+        String ifRange = req.getHeader("If-Range");
+        if(ifRange != null && !matchesIfRange(ifRange, resource, req))
+            return null;
+        String[] specs = range.substring(6).split(",");
+        if(specs.length > MAX_RANGES)
+            return null;
+        long length = resource.length;
+        List<long[]> ranges = new ArrayList<>(specs.length);
+        for(String spec : specs) {
+            spec = spec.trim();
+            int n = spec.indexOf('-');
+            if(n < 0)
+                return null;
+            long start, end;
+            try {
+                if(n == 0) {
+                    // -500 表示最后 500 字节
+                    long suffix = Long.parseLong(spec.substring(1));
+                    start = Math.max(0, length - suffix);
+                    end = suffix == 0 ? -1 : length - 1;
+                } else {
+                    start = Long.parseLong(spec.substring(0, n));
+                    if(n == spec.length() - 1) {
+                        // 500- 表示从 500 到结尾，起点超出长度时无法满足
+                        end = length - 1;
+                    } else {
+                        end = Long.parseLong(spec.substring(n + 1));
+                        if(end < start)
+                            return null;
+                        end = Math.min(end, length - 1);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if(start < length && start <= end)
+                ranges.add(new long[] { start, end });
+        }
+        return ranges;
+    }
+
+    // If-Range 只做强比较，或与 Last-Modified 完全相等
+    static boolean matchesIfRange(String ifRange, Resource resource, HttpServletRequest req) {
+        if(ifRange.startsWith("\""))
+            return ifRange.equals(resource.etag);
+        if(ifRange.startsWith("W/") || resource.lastModified <= 0)
+            return false;
+        try {
+            return resource.lastModified == req.getDateHeader("If-Range");
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    static String contentRange(long[] range, long length) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + length;
+    }
+
+    // 按 Accept-Encoding 的 q 值依次查找压缩版本，q 相同时 br 优先；没有可用版本返回 null
+    Resource getEncodedResource(ServletContext ctx, String url, String acceptEncoding) throws IOException{
+        if(acceptEncoding == null || acceptEncoding.isEmpty())
+            return null;
+        float[] q = { quality(acceptEncoding, Encoding.BR.name), quality(acceptEncoding, Encoding.GZIP.name) };
+        Encoding first = q[Encoding.GZIP.ordinal()] > q[Encoding.BR.ordinal()] ? Encoding.GZIP : Encoding.BR;
+        Encoding second = first == Encoding.BR ? Encoding.GZIP : Encoding.BR;
+        for(Encoding encoding : new Encoding[] { first, second }) {
+            if(q[encoding.ordinal()] > 0) {
+                Resource resource = getResource(ctx, url, encoding);
+                if(resource != null && resource != MISSING)
+                    return resource;
+            }
+        }
+        return null;
+    }
+
+    // 返回 Accept-Encoding 中某个编码的 q 值，未列出时按 * 处理，不接受返回 0
+    static float quality(String acceptEncoding, String coding) {
+        if(acceptEncoding == null)
+            return 0;
+        float q = -1;
+        float any = 0;
+        for(String token : acceptEncoding.split(",")) {
+            String[] parts = token.split(";");
+            String name = parts[0].trim();
+            float value = 1;
+            for(int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if(param.startsWith("q=")) {
+                    try {
+                        value = Float.parseFloat(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        value = 0;
+                    }
+                }
+            }
+            if(name.equalsIgnoreCase(coding))
+                q = value;
+            else if(name.equals("*"))
+                any = value;
+        }
+        return q < 0 ? any : q;
+    }
+
+    // 返回缓存的资源，不存在返回 MISSING，过大且不是文件返回 null
+    Resource getResource(ServletContext ctx, String url, Encoding encoding) throws IOException{
+        // 压缩版本使用单独的键，不与直接请求 .gz / .br 文件的缓存项混用
+        String key = encoding == null ? url : url + '\0' + encoding.name();
+        Resource resource = this.cache.get(key);
+        if(resource != null && !(this.checkModified && isModified(ctx, url, encoding, resource)))
+            return resource == TOO_LARGE ? null : resource;
+        resource = loadResource(ctx, url, encoding);
+        // 文件每次重新读取属性，不缓存
+        if(resource.file == null)
+            this.cache.put(key, resource, resource.content == null ? 64 + key.length() * 2L : resource.length);
+        else
+            this.cache.remove(key);
+        return resource == TOO_LARGE ? null : resource;
+    }
+
+    // 缓存的文件内容已变化（或文件已删除），或缓存为不存在的资源对应的文件已创建
+    static boolean isModified(ServletContext ctx, String url, Encoding encoding, Resource resource) {
+        if(resource == MISSING) {
+            String realPath = ctx.getRealPath(encoding == null ? url : url + encoding.extension);
+            return realPath != null && Files.exists(Path.of(realPath));
+        }
+        if(resource.source == null)
+            return false;
+        try {
+            return Files.getLastModifiedTime(resource.source).toMillis() != resource.sourceModified;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    Resource loadResource(ServletContext ctx, String url, Encoding encoding) throws IOException{
+        // 压缩版本的 Content-Type 仍按原始文件确定
+        String mimeType = mimeType(ctx, url);
+        String encodingName = encoding == null ? null : encoding.name;
+        if(encoding != null)
+            url = url + encoding.extension;
+        // 对应真实文件且超过缓存大小时，直接按文件输出，不读入内存
+        String realPath = ctx.getRealPath(url);
+        Resource file = realPath == null ? null : fileResource(Path.of(realPath), mimeType, encodingName);
+        if(file != null && file.length > this.maxEntrySize)
+            return file;
+        byte[] content;
+        try(InputStream input = ctx.getResourceAsStream(url)) {
+            if(input == null)
+                return encoding == Encoding.GZIP ? compress(ctx, url.substring(0, url.length() - encoding.extension.length())) : MISSING;
+            content = input.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, this.maxEntrySize + 1));
+            if(content.length > this.maxEntrySize)
+                return TOO_LARGE;
+        }
+        long lastModified = lastModified(ctx, url);
+        // 记录读取时文件的修改时间，用于 checkModified
+        return new Resource(content, null, content.length, mimeType, encodingName, etag(content), lastModified,
+                lastModified > 0 ? formatDate(lastModified) : null,
+                file == null ? null : file.source, file == null ? 0 : file.sourceModified);
+    }
+
+    // 没有 .gz 文件时，将已缓存的文本资源压缩一次并缓存，压缩效果不明显则不使用
+    Resource compress(ServletContext ctx, String url) throws IOException{
+        if(this.compressMinSize < 0)
+            return MISSING;
+        Resource original = getResource(ctx, url, null);
+        if(original == null || original.content == null || original.length < this.compressMinSize
+                || !isCompressible(original.mimeType))
+            return MISSING;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(original.content.length / 2);
+        try(GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(original.content);
+        }
+        byte[] content = buffer.toByteArray();
+        if(content.length > original.length / 10 * 9)
+            return MISSING;
+        return new Resource(content, null, content.length, original.mimeType, Encoding.GZIP.name, etag(content),
+                original.lastModified, original.lastModifiedHeader, original.source, original.sourceModified);
+    }
+
+    static boolean isCompressible(String mimeType) {
+        return mimeType.startsWith("text/") || mimeType.endsWith("javascript") || mimeType.endsWith("json")
+                || mimeType.endsWith("xml") || mimeType.startsWith("image/svg");
+    }
+
+    static Resource fileResource(Path file, String mimeType, String encoding) throws IOException{
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if(!attrs.isRegularFile())
+            return null;
+        long modified = attrs.lastModifiedTime().toMillis();
+        long lastModified = modified / 1000 * 1000;
+        // 以长度和修改时间作为 ETag，无需读取文件内容
+        String etag = "\"" + Long.toHexString(attrs.size()) + "-" + Long.toHexString(modified) + "\"";
+        return new Resource(null, file, attrs.size(), mimeType, encoding, etag, lastModified, formatDate(lastModified),
+                file, modified);
+    }
+
+    boolean isNotModified(Resource resource, HttpServletRequest req) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if(ifNoneMatch != null)
+            return matchesETag(ifNoneMatch, resource.etag);
+        if(resource.lastModified > 0) {
+            try {
+                long since = req.getDateHeader("If-Modified-Since");
+                return since >= 0 && resource.lastModified <= since;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    void writeHeaders(Resource resource, HttpServletResponse resp) {
+        resp.setContentType(resource.mimeType);
+        if(resource.encoding != null)
+            resp.setHeader("Content-Encoding", resource.encoding);
+        resp.setHeader("ETag", resource.etag);
+        if(resource.lastModifiedHeader != null)
+            resp.setHeader("Last-Modified", resource.lastModifiedHeader);
+        if(this.cacheControl != null && !this.cacheControl.isEmpty())
+            resp.setHeader("Cache-Control", this.cacheControl);
+        resp.setHeader("Accept-Ranges", "bytes");
+    }
+
+    // If-None-Match 可能包含多个 ETag 或 *，按弱比较匹配
+    static boolean matchesETag(String ifNoneMatch, String etag) {
+        for(String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if(tag.startsWith("W/"))
+                tag = tag.substring(2);
+            if(tag.equals("*") || tag.equals(etag))
+                return true;
+        }
+        return false;
+    }
+
+    static String mimeType(ServletContext ctx, String url) {
+        // 猜 content type
+        String file = url;
+        int n = url.lastIndexOf("/");
+        if(n >= 0)
+            file = url.substring(n + 1);
+        String mime = ctx.getMimeType(file);
+        return mime == null ? "application/octet-stream" : mime;
+    }
+
+    static long lastModified(ServletContext ctx, String url) {
+        try {
+            URL resource = ctx.getResource(url);
+            if(resource != null) {
+                // HTTP 日期精确到秒
+                return resource.openConnection().getLastModified() / 1000 * 1000;
+            }
+        } catch (IOException e) {
+            // 无法获取修改时间
+        }
+        return 0;
+    }
+
+    static String etag(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String formatDate(long millis) {
+        return HTTP_DATE.format(Instant.ofEpochMilli(millis).atOffset(ZoneOffset.UTC));
+    }
+
+    enum Encoding {
+        BR("br", ".br"), GZIP("gzip", ".gz");
+
+        final String name;
+        final String extension;
+
+        Encoding(String name, String extension) {
+            this.name = name;
+            this.extension = extension;
+        }
+    }
+
+    // file 不为 null 时按文件输出；source 为内容读取自的文件，sourceModified 为读取时的修改时间（毫秒）
+    record Resource(byte[] content, Path file, long length, String mimeType, String encoding, String etag, long lastModified,
+                    String lastModifiedHeader, Path source, long sourceModified) {}
+}
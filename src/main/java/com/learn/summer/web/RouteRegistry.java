@@ -0,0 +1,58 @@
+package com.learn.summer.web;
+
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * 编译时由 RouteProcessor 为 @Controller / @RestController 生成的路由表，通过 ServiceLoader 加载。
+ * DispatcherServlet 初始化时优先使用其中的路径、参数信息和直接调用的 Invoker，
+ * 不在路由表中的 Controller 仍通过反射扫描。
+ */
+public interface RouteRegistry {
+
+    List<Route> routes();
+
+    // 按 Controller 类型分组加载所有路由表，加载失败时返回已加载的部分
+    static Map<Class<?>, List<Route>> load(ClassLoader classLoader) {
+        Map<Class<?>, List<Route>> routes = new LinkedHashMap<>();
+        var loader = ServiceLoader.load(RouteRegistry.class, classLoader).iterator();
+        try {
+            while(loader.hasNext()) {
+                for(Route route : loader.next().routes())
+                    routes.computeIfAbsent(route.controllerClass(), k -> new ArrayList<>()).add(route);
+            }
+        } catch (ServiceConfigurationError | LinkageError e) {
+            LoggerFactory.getLogger(RouteRegistry.class).warn("load generated route registry failed.", e);
+        }
+        return routes;
+    }
+
+    /**
+     * 生成代码直接调用处理方法，处理方法抛出的异常原样抛出
+     */
+    @FunctionalInterface
+    interface Invoker {
+        Object invoke(Object controller, Object[] arguments) throws Exception;
+    }
+
+    /**
+     * 一个处理方法的映射，declaringClass 与 controllerClass 不同时为继承的方法。
+     * 同一 Controller 的路由按子类方法在前的顺序排列，与反射扫描一致。
+     */
+    record Route(String httpMethod, String path, Class<?> controllerClass, Class<?> declaringClass,
+                 String methodName, Class<?>[] parameterTypes, Param[] params, Invoker invoker) {
+    }
+
+    /**
+     * 参数信息，type 为 PATH_VARIABLE / REQUEST_PARAM / REQUEST_BODY / SERVLET_VARIABLE，
+     * name 和 defaultValue 取自 @PathVariable / @RequestParam，没有时为 null
+     */
+    record Param(String type, String name, String defaultValue) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.learn.summer.web;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 向所有订阅的 SseEmitter 推送同一事件，事件只编码一次，各连接写出相同的字节。
+ * 事件只放入各连接的发送队列，慢速客户端不影响其它连接；连接关闭（包括队列溢出）后自动取消订阅。
+ */
+public class SseBroadcaster {
+    final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+
+    public SseEmitter subscribe(SseEmitter emitter) {
+        this.emitters.add(emitter);
+        emitter.onCompletion(() -> this.emitters.remove(emitter));
+        return emitter;
+    }
+
+    public int broadcast(Object data) {
+        return broadcast(null, data);
+    }
+
+    // 返回成功放入发送队列的连接数
+    public int broadcast(String event, Object data) {
+        byte[] frame = SseEmitter.frame(event, null, data);
+        int sent = 0;
+        for(SseEmitter emitter : this.emitters) {
+            try {
+                emitter.sendFrame(frame);
+                sent++;
+            } catch (IOException e) {
+                // 客户端已断开或队列已满，emitter 关闭时会自动移除
+            }
+        }
+        return sent;
+    }
+
+    public int size() {
+        return this.emitters.size();
+    }
+}
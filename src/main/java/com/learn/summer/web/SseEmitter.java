@@ -0,0 +1,239 @@
+package com.learn.summer.web;
+
+import com.learn.summer.web.utils.JsonUtils;
+import jakarta.servlet.AsyncContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 处理方法返回 SseEmitter 后，连接以 text/event-stream 保持打开，可在任意线程中发送事件。
+ * 返回前发送的事件会先缓存，连接建立后依次写出。
+ * <p>
+ * 连接建立后 send 只把事件放入有界队列，由该连接自己的虚拟线程写出，慢速客户端不会阻塞发送方、
+ * 广播和心跳；队列已满时视为客户端无法跟上，关闭连接。
+ */
+public class SseEmitter {
+    static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+    static final int DEFAULT_MAX_QUEUED = 256;
+
+    // 连接超时时间（毫秒），0 表示不超时
+    final long timeout;
+    // 等待写出的最大事件数
+    final int maxQueued;
+    final List<Runnable> completionCallbacks = new CopyOnWriteArrayList<>();
+
+    // 以下字段由 this 保护，持有锁时不做 I/O
+    final ArrayDeque<byte[]> queue = new ArrayDeque<>();
+    // 写线程已取出、尚未写完的事件数，与队列一起计入 maxQueued
+    int inFlight = 0;
+    AsyncContext context;
+    OutputStream output;
+    // 写线程正在运行（或 attach 正在写出连接建立前的事件）
+    boolean writing = false;
+    // 已调用 complete()，队列写完后关闭
+    boolean completing = false;
+    volatile boolean closed = false;
+
+    public SseEmitter() {
+        this(0);
+    }
+
+    public SseEmitter(long timeout) {
+        this(timeout, DEFAULT_MAX_QUEUED);
+    }
+
+    public SseEmitter(long timeout, int maxQueued) {
+        this.timeout = timeout;
+        this.maxQueued = maxQueued;
+    }
+
+    public void send(Object data) throws IOException {
+        sendFrame(frame(null, null, data));
+    }
+
+    public void send(String event, Object data) throws IOException {
+        sendFrame(frame(event, null, data));
+    }
+
+    public void send(String event, String id, Object data) throws IOException {
+        sendFrame(frame(event, id, data));
+    }
+
+    // 写完已发送的事件后结束事件流并关闭连接
+    public void complete() {
+        synchronized (this) {
+            if(this.closed)
+                return;
+            // 还有事件未写出（包括连接建立前发送的），由写线程或 attach 写完后关闭
+            if(this.writing || !this.queue.isEmpty()) {
+                this.completing = true;
+                return;
+            }
+        }
+        close(true);
+    }
+
+    // 连接关闭（正常结束、超时、队列溢出或客户端断开）时回调
+    public void onCompletion(Runnable callback) {
+        this.completionCallbacks.add(callback);
+        if(this.closed && this.completionCallbacks.remove(callback))
+            callback.run();
+    }
+
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    // 放入发送队列，不等待写出；队列已满时关闭连接
+    void sendFrame(byte[] frame) throws IOException {
+        synchronized (this) {
+            if(this.closed || this.completing)
+                throw new IOException("SseEmitter is closed.");
+            if(this.queue.size() + this.inFlight < this.maxQueued) {
+                this.queue.add(frame);
+                if(this.output != null && !this.writing) {
+                    this.writing = true;
+                    Thread.ofVirtual().name("summer-sse-writer").start(this::drain);
+                }
+                return;
+            }
+        }
+        close(true);
+        throw new IOException("SseEmitter queue is full, client is too slow.");
+    }
+
+    // 已有事件等待写出时无需心跳
+    void heartbeat() {
+        synchronized (this) {
+            if(this.output == null || this.writing || !this.queue.isEmpty())
+                return;
+        }
+        try {
+            sendFrame(HEARTBEAT);
+        } catch (IOException e) {
+            // 已关闭
+        }
+    }
+
+    // 写线程：每次取出队列中的全部事件写出后 flush，队列为空时退出
+    void drain() {
+        while(true) {
+            byte[][] frames;
+            boolean complete = false;
+            synchronized (this) {
+                this.inFlight = 0;
+                if(this.closed || this.queue.isEmpty()) {
+                    this.writing = false;
+                    complete = !this.closed && this.completing;
+                    frames = null;
+                } else {
+                    frames = this.queue.toArray(new byte[0][]);
+                    this.queue.clear();
+                    this.inFlight = frames.length;
+                }
+            }
+            if(frames == null) {
+                if(complete)
+                    close(true);
+                return;
+            }
+            try {
+                for(byte[] frame : frames)
+                    this.output.write(frame);
+                this.output.flush();
+            } catch (IOException e) {
+                // 写出失败视为客户端已断开
+                close(true);
+                return;
+            }
+        }
+    }
+
+    // 由 DispatcherServlet 在建立异步连接后调用，在容器线程中写出连接建立前发送的事件
+    void attach(AsyncContext context, OutputStream output) throws IOException {
+        byte[][] frames;
+        synchronized (this) {
+            this.context = context;
+            this.output = output;
+            this.writing = true;
+            frames = this.queue.toArray(new byte[0][]);
+            this.queue.clear();
+            this.inFlight = frames.length;
+        }
+        try {
+            for(byte[] frame : frames)
+                output.write(frame);
+            output.flush();
+        } catch (IOException e) {
+            close(true);
+            throw e;
+        }
+        boolean complete;
+        synchronized (this) {
+            this.inFlight = 0;
+            this.writing = !this.closed && !this.queue.isEmpty();
+            if(this.writing)
+                Thread.ofVirtual().name("summer-sse-writer").start(this::drain);
+            complete = !this.closed && !this.writing && this.completing;
+            if(this.closed)
+                context.complete();
+        }
+        if(complete)
+            close(true);
+    }
+
+    // complete 为 false 时表示容器已结束该请求，无需再调用 AsyncContext.complete()；未写出的事件被丢弃
+    void close(boolean complete) {
+        synchronized (this) {
+            if(this.closed)
+                return;
+            this.closed = true;
+            this.queue.clear();
+            if(complete && this.context != null) {
+                try {
+                    this.context.complete();
+                } catch (IllegalStateException e) {
+                    // 请求已结束
+                }
+            }
+        }
+        for(Runnable callback : this.completionCallbacks) {
+            if(this.completionCallbacks.remove(callback))
+                callback.run();
+        }
+    }
+
+    // 按 text/event-stream 格式编码事件，非字符串数据以 JSON 输出；数据按 \r\n、\r 或 \n 分为多行 data
+    static byte[] frame(String event, String id, Object data) {
+        StringBuilder sb = new StringBuilder(64);
+        if(id != null)
+            sb.append("id: ").append(checkField("id", id)).append('\n');
+        if(event != null)
+            sb.append("event: ").append(checkField("event", event)).append('\n');
+        String text = data instanceof String s ? s : JsonUtils.writeJson(data);
+        int start = 0;
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c == '\r' || c == '\n') {
+                sb.append("data: ").append(text, start, i).append('\n');
+                if(c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n')
+                    i++;
+                start = i + 1;
+            }
+        }
+        sb.append("data: ").append(text, start, text.length()).append("\n\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // 事件名和 id 只能占一行，否则客户端会把其余部分解析为其它字段
+    static String checkField(String name, String value) {
+        if(value.indexOf('\r') >= 0 || value.indexOf('\n') >= 0)
+            throw new IllegalArgumentException("SSE " + name + " must not contain CR or LF: " + value);
+        return value;
+    }
+}
@@ -0,0 +1,92 @@
+package com.learn.summer.web;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 为每个请求创建虚拟线程，并通过 JFR 事件 jdk.VirtualThreadPinned 统计虚拟线程被钉住（pinned）的次数，
+ * 次数由 WebMetrics 导出。同一位置只在第一次 pinned 时输出 WARN，之后只计数。
+ */
+public class VirtualThreadExecutor implements AutoCloseable {
+    final Logger logger = LoggerFactory.getLogger(getClass());
+
+    final ExecutorService executor;
+    // 最多记录的 pinned 位置数，超过后不再输出 WARN
+    static final int MAX_PINNED_SITES = 1024;
+
+    final LongAdder pinnedCount = new LongAdder();
+    // 已输出过 WARN 的位置
+    final Set<String> pinnedSites = ConcurrentHashMap.newKeySet();
+    RecordingStream pinnedEvents;
+
+    public VirtualThreadExecutor(Duration pinnedThreshold) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("summer-web-", 0).factory());
+        try {
+            RecordingStream rs = new RecordingStream();
+            rs.enable("jdk.VirtualThreadPinned").withThreshold(pinnedThreshold).withStackTrace();
+            rs.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+            rs.startAsync();
+            this.pinnedEvents = rs;
+        } catch (RuntimeException e) {
+            // JFR 不可用时仅关闭 pinned 统计
+            logger.warn("could not monitor virtual thread pinning: {}", e.getMessage());
+        }
+    }
+
+    public Future<?> submit(Runnable task) {
+        return this.executor.submit(task);
+    }
+
+    // 超过阈值的 pinned 次数
+    public long getPinnedCount() {
+        return this.pinnedCount.sum();
+    }
+
+    void onPinned(RecordedEvent event) {
+        this.pinnedCount.increment();
+        String site = callerFrame(event);
+        if(firstPinnedAt(site)) {
+            logger.warn("virtual thread pinned for {} ms at {}, further pinning here is only counted",
+                    event.getDuration().toMillis(), site);
+        } else if(logger.isDebugEnabled()) {
+            logger.debug("virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), site);
+        }
+    }
+
+    // 该位置第一次 pinned 时返回 true
+    boolean firstPinnedAt(String site) {
+        return this.pinnedSites.size() < MAX_PINNED_SITES && this.pinnedSites.add(site);
+    }
+
+    // 跳过 JDK 内部的 park/wait 等栈帧，定位到应用代码
+    static String callerFrame(RecordedEvent event) {
+        if(event.getStackTrace() == null)
+            return "unknown";
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        for(RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if(!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun."))
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+        }
+        return frames.isEmpty() ? "unknown" : frames.get(0).getMethod().getType().getName();
+    }
+
+    @Override
+    public void close() {
+        if(this.pinnedEvents != null)
+            this.pinnedEvents.close();
+        this.executor.shutdown();
+    }
+}
@@ -0,0 +1,118 @@
+package com.learn.summer.web;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * summer-web 的 JFR 事件，在 JMC 中归入 Summer Web 分类，可与 GC、锁等事件按时间对照。
+ * 事件对象在 JFR 未启用时由 JIT 消除，isXxxEnabled() 用于跳过只为事件准备字段的代码。
+ */
+public final class WebEvents {
+    static final DispatchEvent DISPATCH = new DispatchEvent();
+    static final BindEvent BIND = new BindEvent();
+    static final InvokeEvent INVOKE = new InvokeEvent();
+
+    private WebEvents() {
+    }
+
+    static boolean isDispatchEnabled() {
+        return DISPATCH.isEnabled();
+    }
+
+    static boolean isProcessEnabled() {
+        return BIND.isEnabled() || INVOKE.isEnabled();
+    }
+
+    @Name("summer.web.Dispatch")
+    @Label("HTTP Dispatch")
+    @Description("A request dispatched to a controller method, until the response is complete.")
+    @Category({ "Summer Web" })
+    @StackTrace(false)
+    public static final class DispatchEvent extends Event {
+        @Label("HTTP Method")
+        String method;
+
+        @Label("Route")
+        String route;
+
+        @Label("URI")
+        String uri;
+
+        @Label("Controller Method")
+        String handler;
+
+        @Label("Status")
+        int status;
+
+        @Label("Request Bytes")
+        @DataAmount
+        long requestBytes;
+
+        @Label("Response Bytes")
+        @DataAmount
+        long responseBytes;
+
+        @Label("Async")
+        boolean async;
+    }
+
+    @Name("summer.web.Bind")
+    @Label("Argument Binding")
+    @Description("Resolving controller method arguments, including @RequestBody decoding.")
+    @Category({ "Summer Web" })
+    @StackTrace(false)
+    public static final class BindEvent extends Event {
+        @Label("Route")
+        String route;
+
+        @Label("Controller Method")
+        String handler;
+
+        @Label("Request Bytes")
+        @DataAmount
+        long requestBytes;
+    }
+
+    @Name("summer.web.Invoke")
+    @Label("Controller Invocation")
+    @Description("The synchronous part of a controller method call.")
+    @Category({ "Summer Web" })
+    @StackTrace(false)
+    public static final class InvokeEvent extends Event {
+        @Label("Route")
+        String route;
+
+        @Label("Controller Method")
+        String handler;
+    }
+
+    @Name("summer.web.Resource")
+    @Label("Static Resource")
+    @Category({ "Summer Web" })
+    @StackTrace(false)
+    public static final class ResourceEvent extends Event {
+        @Label("URI")
+        String uri;
+
+        @Label("Status")
+        int status;
+
+        @Label("Response Bytes")
+        @DataAmount
+        long responseBytes;
+    }
+
+    @Name("summer.web.Render")
+    @Label("View Rendering")
+    @Category({ "Summer Web" })
+    @StackTrace(false)
+    public static final class RenderEvent extends Event {
+        @Label("View")
+        String view;
+    }
+}
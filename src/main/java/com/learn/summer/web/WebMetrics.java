@@ -0,0 +1,255 @@
+package com.learn.summer.web;
+
+import com.learn.summer.web.utils.JsonUtils;
+import com.learn.summer.web.utils.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * 每个路由的请求数、按状态码的计数和耗时直方图，另有静态资源和未匹配路由的汇总，
+ * 以及虚拟线程被钉住（pinned）的次数。记录时不分配对象，导出为 Prometheus 文本格式或 JSON。
+ */
+public class WebMetrics {
+    // Prometheus 直方图的桶，秒
+    static final double[] BUCKETS = { 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+    // 是否记录各阶段耗时（summer.web.timing.enabled）
+    final boolean phases;
+    final List<RouteMetrics> routes = new CopyOnWriteArrayList<>();
+    final RouteMetrics resources = new RouteMetrics("GET", "static", false);
+    final RouteMetrics unmatched = new RouteMetrics("*", "unmatched", false);
+    // 创建 VirtualThreadExecutor 后设置，为 null 时不导出
+    volatile LongSupplier virtualThreadPinned;
+
+    public WebMetrics() {
+        this(false);
+    }
+
+    public WebMetrics(boolean phases) {
+        this.phases = phases;
+    }
+
+    public RouteMetrics register(String method, String route) {
+        RouteMetrics metrics = new RouteMetrics(method, route, this.phases);
+        this.routes.add(metrics);
+        return metrics;
+    }
+
+    public void unregister(RouteMetrics metrics) {
+        this.routes.remove(metrics);
+    }
+
+    public List<RouteMetrics> getRoutes() {
+        return List.copyOf(this.routes);
+    }
+
+    public RouteMetrics getResources() {
+        return this.resources;
+    }
+
+    public RouteMetrics getUnmatched() {
+        return this.unmatched;
+    }
+
+    public void setVirtualThreadPinned(LongSupplier virtualThreadPinned) {
+        this.virtualThreadPinned = virtualThreadPinned;
+    }
+
+    List<RouteMetrics> all() {
+        List<RouteMetrics> all = new ArrayList<>(this.routes);
+        all.add(this.resources);
+        all.add(this.unmatched);
+        return all;
+    }
+
+    public void writePrometheus(Writer writer) throws IOException {
+        List<RouteMetrics> all = all();
+        List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>(all.size());
+        for(RouteMetrics metrics : all)
+            snapshots.add(metrics.latency.snapshot());
+        writer.write("# HELP summer_web_requests_total Total number of requests by route and status.\n");
+        writer.write("# TYPE summer_web_requests_total counter\n");
+        for(RouteMetrics metrics : all) {
+            String labels = metrics.labels();
+            for(int status = 0; status < RouteMetrics.MAX_STATUS; status++) {
+                long n = metrics.statuses.get(status);
+                if(n > 0)
+                    writer.write("summer_web_requests_total{" + labels + ",status=\"" + status + "\"} " + n + "\n");
+            }
+        }
+        writer.write("# HELP summer_web_request_duration_seconds Request processing time by route.\n");
+        writer.write("# TYPE summer_web_request_duration_seconds histogram\n");
+        for(int i = 0; i < all.size(); i++) {
+            writeHistogram(writer, "summer_web_request_duration_seconds", all.get(i).labels(), snapshots.get(i));
+        }
+        LongSupplier pinned = this.virtualThreadPinned;
+        if(pinned != null) {
+            writer.write("# HELP summer_web_virtual_thread_pinned_total Virtual thread pinning events longer than the threshold.\n");
+            writer.write("# TYPE summer_web_virtual_thread_pinned_total counter\n");
+            writer.write("summer_web_virtual_thread_pinned_total " + pinned.getAsLong() + "\n");
+        }
+        if(!this.phases)
+            return;
+        writer.write("# HELP summer_web_request_phase_seconds Time spent in each processing phase by route.\n");
+        writer.write("# TYPE summer_web_request_phase_seconds histogram\n");
+        for(RouteMetrics metrics : this.routes) {
+            for(RequestTiming.Phase phase : RequestTiming.PHASES) {
+                LatencyHistogram.Snapshot snapshot = metrics.phases[phase.ordinal()].snapshot();
+                if(snapshot.count() == 0)
+                    continue;
+                String labels = metrics.labels() + ",phase=\"" + phase.metricName + "\"";
+                writeHistogram(writer, "summer_web_request_phase_seconds", labels, snapshot);
+            }
+        }
+    }
+
+    static void writeHistogram(Writer writer, String name, String labels, LatencyHistogram.Snapshot snapshot) throws IOException {
+        for(double le : BUCKETS) {
+            writer.write(name + "_bucket{" + labels + ",le=\"" + le + "\"} "
+                    + snapshot.countAtMost((long) (le * 1e9)) + "\n");
+        }
+        writer.write(name + "_bucket{" + labels + ",le=\"+Inf\"} " + snapshot.count() + "\n");
+        writer.write(name + "_sum{" + labels + "} " + snapshot.sum() / 1e9 + "\n");
+        writer.write(name + "_count{" + labels + "} " + snapshot.count() + "\n");
+    }
+
+    public void writeJson(Writer writer) throws IOException {
+        List<Map<String, Object>> routes = new ArrayList<>();
+        for(RouteMetrics metrics : this.routes)
+            routes.add(metrics.toMap());
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("routes", routes);
+        map.put("resources", this.resources.toMap());
+        map.put("unmatched", this.unmatched.toMap());
+        LongSupplier pinned = this.virtualThreadPinned;
+        if(pinned != null)
+            map.put("virtualThreadPinned", pinned.getAsLong());
+        JsonUtils.writeJson(writer, map);
+    }
+
+    /**
+     * 一个路由的指标，状态码计数以数组下标记录，耗时为整个分发过程（异步请求到完成为止）
+     */
+    public static final class RouteMetrics {
+        static final int MAX_STATUS = 600;
+
+        final String method;
+        final String route;
+        final AtomicLongArray statuses = new AtomicLongArray(MAX_STATUS);
+        final LatencyHistogram latency = new LatencyHistogram();
+        // 按 Phase.ordinal 存放各阶段耗时，未启用时为 null
+        final LatencyHistogram[] phases;
+
+        RouteMetrics(String method, String route, boolean phases) {
+            this.method = method;
+            this.route = route;
+            if(phases) {
+                this.phases = new LatencyHistogram[RequestTiming.PHASES.length];
+                for(int i = 0; i < this.phases.length; i++)
+                    this.phases[i] = new LatencyHistogram();
+            } else {
+                this.phases = null;
+            }
+        }
+
+        public void record(int status, long nanos) {
+            this.statuses.incrementAndGet(status > 0 && status < MAX_STATUS ? status : 0);
+            this.latency.record(nanos);
+        }
+
+        // 只记录请求实际经过的阶段
+        public void record(RequestTiming timing) {
+            if(this.phases == null)
+                return;
+            for(RequestTiming.Phase phase : RequestTiming.PHASES) {
+                if(timing.isRecorded(phase))
+                    this.phases[phase.ordinal()].record(timing.get(phase));
+            }
+        }
+
+        public String getMethod() {
+            return this.method;
+        }
+
+        public String getRoute() {
+            return this.route;
+        }
+
+        public long getCount(int status) {
+            return status >= 0 && status < MAX_STATUS ? this.statuses.get(status) : 0;
+        }
+
+        // 状态码不小于 400 的请求数
+        public long getErrorCount() {
+            long n = this.statuses.get(0);
+            for(int status = 400; status < MAX_STATUS; status++)
+                n += this.statuses.get(status);
+            return n;
+        }
+
+        public LatencyHistogram.Snapshot getLatency() {
+            return this.latency.snapshot();
+        }
+
+        public LatencyHistogram.Snapshot getLatency(RequestTiming.Phase phase) {
+            return this.phases == null ? null : this.phases[phase.ordinal()].snapshot();
+        }
+
+        String labels() {
+            return "method=\"" + escape(this.method) + "\",route=\"" + escape(this.route) + "\"";
+        }
+
+        Map<String, Object> toMap() {
+            LatencyHistogram.Snapshot snapshot = this.latency.snapshot();
+            Map<String, Long> statuses = new LinkedHashMap<>();
+            for(int status = 0; status < MAX_STATUS; status++) {
+                long n = this.statuses.get(status);
+                if(n > 0)
+                    statuses.put(String.valueOf(status), n);
+            }
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("method", this.method);
+            map.put("route", this.route);
+            map.put("count", snapshot.count());
+            map.put("errors", getErrorCount());
+            map.put("statuses", statuses);
+            map.put("latency", latencyMap(snapshot));
+            if(this.phases != null) {
+                Map<String, Object> phases = new LinkedHashMap<>();
+                for(RequestTiming.Phase phase : RequestTiming.PHASES) {
+                    LatencyHistogram.Snapshot s = this.phases[phase.ordinal()].snapshot();
+                    if(s.count() > 0) {
+                        Map<String, Object> latency = latencyMap(s);
+                        latency.put("count", s.count());
+                        phases.put(phase.metricName, latency);
+                    }
+                }
+                map.put("phases", phases);
+            }
+            return map;
+        }
+
+        // 耗时以毫秒输出
+        static Map<String, Object> latencyMap(LatencyHistogram.Snapshot snapshot) {
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("mean", snapshot.mean() / 1e6);
+            latency.put("p50", snapshot.percentile(0.5) / 1e6);
+            latency.put("p90", snapshot.percentile(0.9) / 1e6);
+            latency.put("p99", snapshot.percentile(0.99) / 1e6);
+            latency.put("max", snapshot.max() / 1e6);
+            return latency;
+        }
+
+        static String escape(String s) {
+            return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+    }
+}
@@ -12,8 +12,8 @@ import java.util.Objects;
 public class WebMvcConfiguration {
     private static ServletContext servletContext = null;
 
-    // 由 Web Listener 设置
-    static void setServletContext(ServletContext ctx) {
+    // 由 Web Listener 或嵌入式服务器设置
+    public static void setServletContext(ServletContext ctx) {
         servletContext = ctx;
     }
 
@@ -21,8 +21,11 @@ public class WebMvcConfiguration {
     ViewResolver viewResolver(
             @Autowired ServletContext servletContext,
             @Value("${summer.web.freemarker.template-path:/WEB-INF/templates}") String templatePath,
-            @Value("${summer.web.freemarker.template-encoding:UTF-8}") String templateEncoding) {
-        return new FreeMarkerViewResolver(servletContext, templatePath, templateEncoding);
+            @Value("${summer.web.freemarker.template-encoding:UTF-8}") String templateEncoding,
+            @Value("${summer.web.freemarker.mode:dev}") String mode) {
+        if(!"dev".equals(mode) && !"production".equals(mode))
+            throw new IllegalArgumentException("Unsupported summer.web.freemarker.mode: " + mode);
+        return new FreeMarkerViewResolver(servletContext, templatePath, templateEncoding, "production".equals(mode));
     }
 
     @Bean
@@ -0,0 +1,260 @@
+package com.learn.summer.web.processor;
+
+import com.learn.summer.annotation.*;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * 编译时为 @Controller / @RestController 生成 RouteRegistry：每个包一个 GeneratedRouteRegistry，
+ * 记录路径、参数信息和直接调用处理方法的 Invoker，并写入 META-INF/services 供 DispatcherServlet 加载。
+ * <p>
+ * 生成的类与 Controller 位于同一个包，可以调用包级可见的处理方法；有 private / static 处理方法、
+ * 参数注解冲突或引用了不可访问类型的 Controller 不生成，运行时由反射扫描处理（并报告同样的错误）。
+ */
+@SupportedAnnotationTypes({ "com.learn.summer.annotation.Controller", "com.learn.summer.annotation.RestController" })
+public class RouteProcessor extends AbstractProcessor {
+    static final String SERVICE_FILE = "META-INF/services/com.learn.summer.web.RouteRegistry";
+    static final String CLASS_NAME = "GeneratedRouteRegistry";
+    static final int ROUTES_PER_METHOD = 50;
+
+    // 已生成的路由表类名，最后一轮写入服务文件
+    final List<String> registries = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if(roundEnv.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+        // 按包分组，包内按类名排序使生成的代码稳定
+        Map<String, List<TypeElement>> packages = new TreeMap<>();
+        Set<Element> controllers = new LinkedHashSet<>(roundEnv.getElementsAnnotatedWith(Controller.class));
+        controllers.addAll(roundEnv.getElementsAnnotatedWith(RestController.class));
+        for(Element e : controllers) {
+            if(e.getKind() != ElementKind.CLASS)
+                continue;
+            TypeElement type = (TypeElement) e;
+            packages.computeIfAbsent(packageOf(type), k -> new ArrayList<>()).add(type);
+        }
+        for(var entry : packages.entrySet()) {
+            entry.getValue().sort(Comparator.comparing(t -> t.getQualifiedName().toString()));
+            generate(entry.getKey(), entry.getValue());
+        }
+        return false;
+    }
+
+    void generate(String pkg, List<TypeElement> controllers) {
+        List<String> routes = new ArrayList<>();
+        for(TypeElement controller : controllers) {
+            List<String> r = routes(pkg, controller);
+            if(r == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                        "Route registry skipped, use reflection at runtime: " + controller.getQualifiedName());
+                continue;
+            }
+            routes.addAll(r);
+        }
+        if(routes.isEmpty())
+            return;
+        // 同一个包的 Controller 出现在多轮处理中时使用不同的类名
+        String simpleName = CLASS_NAME;
+        String name = pkg.isEmpty() ? simpleName : pkg + "." + simpleName;
+        for(int i = 2; this.registries.contains(name); i++) {
+            simpleName = CLASS_NAME + i;
+            name = pkg.isEmpty() ? simpleName : pkg + "." + simpleName;
+        }
+        StringBuilder sb = new StringBuilder();
+        if(!pkg.isEmpty())
+            sb.append("package ").append(pkg).append(";\n\n");
+        sb.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n");
+        sb.append("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+        sb.append("public final class ").append(simpleName).append(" implements com.learn.summer.web.RouteRegistry {\n\n");
+        // 每个方法最多添加 ROUTES_PER_METHOD 个路由，避免超过方法大小限制
+        int methods = (routes.size() + ROUTES_PER_METHOD - 1) / ROUTES_PER_METHOD;
+        sb.append("    @Override\n");
+        sb.append("    public java.util.List<Route> routes() {\n");
+        sb.append("        java.util.List<Route> routes = new java.util.ArrayList<>(").append(routes.size()).append(");\n");
+        for(int i = 0; i < methods; i++)
+            sb.append("        routes").append(i).append("(routes);\n");
+        sb.append("        return java.util.List.copyOf(routes);\n");
+        sb.append("    }\n");
+        for(int i = 0; i < methods; i++) {
+            sb.append("\n    static void routes").append(i).append("(java.util.List<Route> routes) {\n");
+            for(String route : routes.subList(i * ROUTES_PER_METHOD, Math.min(routes.size(), (i + 1) * ROUTES_PER_METHOD)))
+                sb.append("        routes.add(").append(route).append(");\n");
+            sb.append("    }\n");
+        }
+        sb.append("}\n");
+        Element[] origins = controllers.toArray(new Element[0]);
+        try(Writer writer = processingEnv.getFiler().createSourceFile(name, origins).openWriter()) {
+            writer.write(sb.toString());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + name + ": " + e);
+            return;
+        }
+        this.registries.add(name);
+    }
+
+    // Controller 及其父类中的处理方法，子类在前；无法生成时返回 null
+    List<String> routes(String pkg, TypeElement controller) {
+        if(controller.getAnnotation(Controller.class) != null && controller.getAnnotation(RestController.class) != null)
+            return null;
+        if(!isAccessible(controller, pkg) || controller.getModifiers().contains(Modifier.ABSTRACT))
+            return null;
+        String controllerName = controller.getQualifiedName().toString();
+        List<String> routes = new ArrayList<>();
+        for(TypeElement type = controller; type != null; type = superclass(type)) {
+            for(ExecutableElement m : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                GetMapping get = m.getAnnotation(GetMapping.class);
+                PostMapping post = m.getAnnotation(PostMapping.class);
+                if(get == null && post == null)
+                    continue;
+                if(!isAccessible(type, pkg) || !isAccessible(m, type, pkg))
+                    return null;
+                String body = route(controllerName, type, m, pkg);
+                if(body == null)
+                    return null;
+                if(get != null)
+                    routes.add("new Route(\"GET\", " + literal(get.value()) + ", " + body + ")");
+                if(post != null)
+                    routes.add("new Route(\"POST\", " + literal(post.value()) + ", " + body + ")");
+            }
+        }
+        return routes;
+    }
+
+    // Route 构造参数中 path 之后的部分
+    String route(String controllerName, TypeElement type, ExecutableElement m, String pkg) {
+        for(TypeMirror thrown : m.getThrownTypes()) {
+            if(!isSubtype(thrown, "java.lang.Exception") && !isSubtype(thrown, "java.lang.Error"))
+                return null;
+        }
+        List<String> types = new ArrayList<>();
+        List<String> params = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        List<? extends VariableElement> parameters = m.getParameters();
+        for(int i = 0; i < parameters.size(); i++) {
+            VariableElement p = parameters.get(i);
+            TypeMirror erasure = processingEnv.getTypeUtils().erasure(p.asType());
+            if(!isAccessible(erasure, pkg))
+                return null;
+            String typeName = erasure.toString();
+            PathVariable pv = p.getAnnotation(PathVariable.class);
+            RequestParam rp = p.getAnnotation(RequestParam.class);
+            RequestBody rb = p.getAnnotation(RequestBody.class);
+            if((pv == null ? 0 : 1) + (rp == null ? 0 : 1) + (rb == null ? 0 : 1) > 1)
+                return null;
+            String param;
+            if(pv != null)
+                param = "new Param(\"PATH_VARIABLE\", " + literal(pv.value()) + ", null)";
+            else if(rp != null)
+                param = "new Param(\"REQUEST_PARAM\", " + literal(rp.value()) + ", " + literal(rp.defaultValue()) + ")";
+            else if(rb != null)
+                param = "new Param(\"REQUEST_BODY\", null, null)";
+            else
+                param = "new Param(\"SERVLET_VARIABLE\", null, null)";
+            types.add(typeName + ".class");
+            params.add(param);
+            args.add("(" + typeName + ") a[" + i + "]");
+        }
+        String call = "((" + controllerName + ") c)." + m.getSimpleName() + "(" + String.join(", ", args) + ")";
+        String invoker = m.getReturnType().getKind() == TypeKind.VOID
+                ? "(c, a) -> { " + call + "; return null; }"
+                : "(c, a) -> " + call;
+        return controllerName + ".class, " + type.getQualifiedName() + ".class, " + literal(m.getSimpleName().toString())
+                + ",\n                new Class<?>[] " + array(types)
+                + ",\n                new Param[] " + array(params)
+                + ",\n                " + invoker;
+    }
+
+    static String array(List<String> elements) {
+        return elements.isEmpty() ? "{}" : "{ " + String.join(", ", elements) + " }";
+    }
+
+    void writeServiceFile() {
+        if(this.registries.isEmpty())
+            return;
+        Filer filer = processingEnv.getFiler();
+        try(Writer writer = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE).openWriter()) {
+            for(String name : this.registries)
+                writer.write(name + "\n");
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + SERVICE_FILE + ": " + e);
+        }
+    }
+
+    TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if(superclass.getKind() != TypeKind.DECLARED)
+            return null;
+        TypeElement e = (TypeElement) ((DeclaredType) superclass).asElement();
+        return e.getQualifiedName().contentEquals("java.lang.Object") ? null : e;
+    }
+
+    boolean isSubtype(TypeMirror type, String name) {
+        var types = processingEnv.getTypeUtils();
+        TypeElement e = processingEnv.getElementUtils().getTypeElement(name);
+        return types.isSubtype(types.erasure(type), e.asType());
+    }
+
+    // 生成的类所在包 pkg 中能否引用该类型
+    boolean isAccessible(TypeMirror type, String pkg) {
+        if(type.getKind().isPrimitive())
+            return true;
+        if(type instanceof ArrayType array)
+            return isAccessible(array.getComponentType(), pkg);
+        if(type instanceof DeclaredType declared)
+            return isAccessible((TypeElement) declared.asElement(), pkg);
+        return false;
+    }
+
+    boolean isAccessible(TypeElement type, String pkg) {
+        for(Element e = type; e instanceof TypeElement t; e = t.getEnclosingElement()) {
+            NestingKind kind = t.getNestingKind();
+            if(kind == NestingKind.LOCAL || kind == NestingKind.ANONYMOUS)
+                return false;
+            Set<Modifier> modifiers = t.getModifiers();
+            if(modifiers.contains(Modifier.PRIVATE))
+                return false;
+            if(!modifiers.contains(Modifier.PUBLIC) && !packageOf(t).equals(pkg))
+                return false;
+        }
+        return true;
+    }
+
+    // 生成的类通过 Controller 类型调用方法：public 方法，或同一个包中非 private 的方法
+    boolean isAccessible(ExecutableElement m, TypeElement declaringType, String pkg) {
+        Set<Modifier> modifiers = m.getModifiers();
+        if(modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC))
+            return false;
+        return modifiers.contains(Modifier.PUBLIC) || packageOf(declaringType).equals(pkg);
+    }
+
+    String packageOf(Element e) {
+        return processingEnv.getElementUtils().getPackageOf(e).getQualifiedName().toString();
+    }
+
+    String literal(String s) {
+        return processingEnv.getElementUtils().getConstantExpression(s);
+    }
+}
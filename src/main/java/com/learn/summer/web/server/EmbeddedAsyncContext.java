@@ -0,0 +1,154 @@
+package com.learn.summer.web.server;
+
+import jakarta.servlet.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步请求。连接线程在 Servlet 返回后调用 await() 等待 complete()，超时时通知监听器，
+ * 与 Tomcat 一致，onComplete 总在 Servlet 返回之后由连接线程触发。不支持 dispatch。
+ */
+class EmbeddedAsyncContext implements AsyncContext {
+    static final long DEFAULT_TIMEOUT = 30_000;
+
+    final Logger logger = LoggerFactory.getLogger(getClass());
+
+    final EmbeddedRequest request;
+    final EmbeddedResponse response;
+    final ServletRequest suppliedRequest;
+    final ServletResponse suppliedResponse;
+    final List<Registered> listeners = new CopyOnWriteArrayList<>();
+    final CountDownLatch completed = new CountDownLatch(1);
+    volatile long timeout = DEFAULT_TIMEOUT;
+    // 写出失败等错误，在 await() 中通知 onError
+    volatile Throwable error;
+
+    EmbeddedAsyncContext(EmbeddedRequest request, EmbeddedResponse response,
+                         ServletRequest suppliedRequest, ServletResponse suppliedResponse) {
+        this.request = request;
+        this.response = response;
+        this.suppliedRequest = suppliedRequest;
+        this.suppliedResponse = suppliedResponse;
+    }
+
+    // 等待请求完成，超时或出错时先通知监听器，监听器未结束请求则返回 500
+    void await() throws InterruptedException {
+        long t = this.timeout;
+        boolean done = t <= 0 ? awaitForever() : this.completed.await(t, TimeUnit.MILLISECONDS);
+        if(this.error != null) {
+            fire(Kind.ERROR, this.error);
+        } else if(!done) {
+            fire(Kind.TIMEOUT, null);
+            if(this.completed.getCount() > 0)
+                this.response.sendErrorIfPossible(500);
+        }
+        complete();
+        fire(Kind.COMPLETE, null);
+    }
+
+    boolean awaitForever() throws InterruptedException {
+        this.completed.await();
+        return true;
+    }
+
+    // 连接断开或写出失败，唤醒连接线程
+    void fail(Throwable e) {
+        if(this.error == null)
+            this.error = e;
+        complete();
+    }
+
+    void fire(Kind kind, Throwable e) {
+        for(Registered reg : this.listeners) {
+            var event = new AsyncEvent(this, reg.request, reg.response, e);
+            try {
+                switch (kind) {
+                    case TIMEOUT -> reg.listener.onTimeout(event);
+                    case ERROR -> reg.listener.onError(event);
+                    case COMPLETE -> reg.listener.onComplete(event);
+                }
+            } catch (IOException | RuntimeException ex) {
+                logger.warn("async listener {} failed.", reg.listener.getClass().getName(), ex);
+            }
+        }
+    }
+
+    @Override
+    public ServletRequest getRequest() {
+        return this.suppliedRequest;
+    }
+
+    @Override
+    public ServletResponse getResponse() {
+        return this.suppliedResponse;
+    }
+
+    @Override
+    public boolean hasOriginalRequestAndResponse() {
+        return this.suppliedRequest == this.request && this.suppliedResponse == this.response;
+    }
+
+    @Override
+    public void dispatch() {
+        throw new UnsupportedOperationException("Async dispatch is not supported.");
+    }
+
+    @Override
+    public void dispatch(String path) {
+        throw new UnsupportedOperationException("Async dispatch is not supported.");
+    }
+
+    @Override
+    public void dispatch(ServletContext context, String path) {
+        throw new UnsupportedOperationException("Async dispatch is not supported.");
+    }
+
+    // 可重复调用，只有第一次生效
+    @Override
+    public void complete() {
+        this.completed.countDown();
+    }
+
+    @Override
+    public void start(Runnable run) {
+        Thread.ofVirtual().name("summer-async").start(run);
+    }
+
+    @Override
+    public void addListener(AsyncListener listener) {
+        addListener(listener, this.suppliedRequest, this.suppliedResponse);
+    }
+
+    @Override
+    public void addListener(AsyncListener listener, ServletRequest servletRequest, ServletResponse servletResponse) {
+        this.listeners.add(new Registered(listener, servletRequest, servletResponse));
+    }
+
+    @Override
+    public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException {
+        return EmbeddedServletContext.newInstance(clazz);
+    }
+
+    @Override
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public long getTimeout() {
+        return this.timeout;
+    }
+
+    enum Kind {
+        TIMEOUT, ERROR, COMPLETE
+    }
+
+    record Registered(AsyncListener listener, ServletRequest request, ServletResponse response) {
+    }
+}
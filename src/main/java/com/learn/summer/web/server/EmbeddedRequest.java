@@ -0,0 +1,660 @@
+package com.learn.summer.web.server;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.security.Principal;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 由连接解析出的 HTTP 请求。Session 由 EmbeddedSessionManager 管理；没有登录机制、multipart 配置和请求转发，
+ * 相应方法按规范返回未认证、null 或抛出异常。
+ */
+class EmbeddedRequest implements HttpServletRequest {
+    static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+    static final String[] EMPTY = new String[0];
+
+    final HttpConnection connection;
+    final EmbeddedServletContext servletContext;
+    final String method;
+    final String requestURI;
+    final String queryString;
+    final String protocol;
+    // 请求头名称小写作为 key，保持首次出现时的原始名称
+    final Map<String, List<String>> headers;
+    final Map<String, String> headerNames;
+    final HttpInput.BodyInputStream body;
+    final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    // 由 Servlet 和经过的 Filter 是否都支持异步决定
+    boolean asyncSupported = false;
+
+    String characterEncoding;
+    Map<String, String[]> parameters;
+    // 0 未读取，1 getInputStream()，2 getReader()
+    int bodyUsage = 0;
+    BufferedReader reader;
+    volatile EmbeddedAsyncContext asyncContext;
+    // Servlet 返回后到 onComplete 之间仍视为异步请求
+    volatile boolean asyncStarted = false;
+    // 本次请求关联的 Session，以及 Cookie 中提交的 Session ID（没有时为空字符串）
+    EmbeddedSessionManager.Session session;
+    boolean sessionLookedUp = false;
+    String requestedSessionId;
+
+    EmbeddedRequest(HttpConnection connection, String method, String requestURI, String queryString, String protocol,
+                    Map<String, List<String>> headers, Map<String, String> headerNames,
+                    HttpInput.BodyInputStream body) {
+        this.connection = connection;
+        this.servletContext = connection.server.servletContext;
+        this.method = method;
+        this.requestURI = requestURI;
+        this.queryString = queryString;
+        this.protocol = protocol;
+        this.headers = headers;
+        this.headerNames = headerNames;
+        this.body = body;
+        this.characterEncoding = contentTypeCharset(getContentType());
+        if(this.characterEncoding == null)
+            this.characterEncoding = this.servletContext.getRequestCharacterEncoding();
+    }
+
+    static String contentTypeCharset(String contentType) {
+        if(contentType == null)
+            return null;
+        for(String part : contentType.split(";")) {
+            part = part.trim();
+            if(part.regionMatches(true, 0, "charset=", 0, 8)) {
+                String charset = part.substring(8).trim();
+                if(charset.length() > 1 && charset.startsWith("\"") && charset.endsWith("\""))
+                    charset = charset.substring(1, charset.length() - 1);
+                return charset.isEmpty() ? null : charset;
+            }
+        }
+        return null;
+    }
+
+    Charset charset() {
+        if(this.characterEncoding != null) {
+            try {
+                return Charset.forName(this.characterEncoding);
+            } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                // 使用默认编码
+            }
+        }
+        return StandardCharsets.ISO_8859_1;
+    }
+
+    // 解析查询参数，以及 POST 的表单请求体
+    Map<String, String[]> parameters() {
+        if(this.parameters != null)
+            return this.parameters;
+        Map<String, List<String>> params = new LinkedHashMap<>();
+        Charset charset = charset();
+        parseParameters(this.queryString, charset, params);
+        String contentType = getContentType();
+        if("POST".equals(this.method) && this.bodyUsage == 0 && contentType != null
+                && contentType.regionMatches(true, 0, FORM_CONTENT_TYPE, 0, FORM_CONTENT_TYPE.length())) {
+            try {
+                byte[] form = this.body.readNBytes(this.connection.server.maxFormSize + 1);
+                if(form.length > this.connection.server.maxFormSize)
+                    throw new IllegalStateException("Form body exceeds " + this.connection.server.maxFormSize + " bytes.");
+                parseParameters(new String(form, StandardCharsets.ISO_8859_1), charset, params);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read form body.", e);
+            }
+        }
+        Map<String, String[]> map = new LinkedHashMap<>(params.size() * 2);
+        params.forEach((k, v) -> map.put(k, v.toArray(EMPTY)));
+        this.parameters = Collections.unmodifiableMap(map);
+        return this.parameters;
+    }
+
+    static void parseParameters(String s, Charset charset, Map<String, List<String>> params) {
+        if(s == null || s.isEmpty())
+            return;
+        for(String pair : s.split("&")) {
+            if(pair.isEmpty())
+                continue;
+            int n = pair.indexOf('=');
+            String name = decode(n < 0 ? pair : pair.substring(0, n), charset);
+            String value = n < 0 ? "" : decode(pair.substring(n + 1), charset);
+            if(name != null && value != null)
+                params.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+        }
+    }
+
+    // 表单编码使用请求编码，非法的百分号编码忽略该参数
+    static String decode(String s, Charset charset) {
+        if(s.indexOf('%') < 0 && s.indexOf('+') < 0)
+            return s;
+        try {
+            return URLDecoder.decode(s, charset);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return this.attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(this.attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object o) {
+        if(o == null)
+            this.attributes.remove(name);
+        else
+            this.attributes.put(name, o);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        this.attributes.remove(name);
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return this.characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String env) throws UnsupportedEncodingException {
+        if(this.bodyUsage == 2)
+            return;
+        try {
+            if(Charset.isSupported(env)) {
+                this.characterEncoding = env;
+                return;
+            }
+        } catch (IllegalCharsetNameException e) {
+            // 按不支持处理
+        }
+        throw new UnsupportedEncodingException(env);
+    }
+
+    @Override
+    public int getContentLength() {
+        long length = getContentLengthLong();
+        return length > Integer.MAX_VALUE ? -1 : (int) length;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        String value = getHeader("Content-Length");
+        if(value == null)
+            return -1;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader("Content-Type");
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if(this.bodyUsage == 2)
+            throw new IllegalStateException("getReader() has already been called.");
+        this.bodyUsage = 1;
+        return this.body;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if(this.bodyUsage == 1)
+            throw new IllegalStateException("getInputStream() has already been called.");
+        if(this.reader == null) {
+            this.bodyUsage = 2;
+            this.reader = new BufferedReader(new InputStreamReader(this.body, charset()));
+        }
+        return this.reader;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters().get(name);
+        return values == null ? null : values[0];
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters().keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        String[] values = parameters().get(name);
+        return values == null ? null : values.clone();
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return parameters();
+    }
+
+    @Override
+    public String getProtocol() {
+        return this.protocol;
+    }
+
+    @Override
+    public String getScheme() {
+        return "http";
+    }
+
+    @Override
+    public String getServerName() {
+        String host = getHeader("Host");
+        if(host == null || host.isEmpty())
+            return getLocalName();
+        // IPv6 地址形如 [::1]:8080
+        int end = host.startsWith("[") ? host.indexOf(']') + 1 : host.indexOf(':');
+        return end <= 0 ? host : host.substring(0, end);
+    }
+
+    @Override
+    public int getServerPort() {
+        String host = getHeader("Host");
+        if(host != null) {
+            int n = host.lastIndexOf(':');
+            if(n > host.lastIndexOf(']')) {
+                try {
+                    return Integer.parseInt(host.substring(n + 1));
+                } catch (NumberFormatException e) {
+                    // 使用本地端口
+                }
+            } else {
+                return 80;
+            }
+        }
+        return getLocalPort();
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        return address(this.connection.remoteAddress);
+    }
+
+    @Override
+    public String getRemoteHost() {
+        return getRemoteAddr();
+    }
+
+    @Override
+    public int getRemotePort() {
+        return this.connection.remoteAddress == null ? -1 : this.connection.remoteAddress.getPort();
+    }
+
+    @Override
+    public String getLocalName() {
+        return this.connection.localAddress == null ? null : this.connection.localAddress.getHostString();
+    }
+
+    @Override
+    public String getLocalAddr() {
+        return address(this.connection.localAddress);
+    }
+
+    @Override
+    public int getLocalPort() {
+        return this.connection.localAddress == null ? -1 : this.connection.localAddress.getPort();
+    }
+
+    static String address(InetSocketAddress address) {
+        if(address == null)
+            return null;
+        return address.getAddress() == null ? address.getHostString() : address.getAddress().getHostAddress();
+    }
+
+    @Override
+    public Locale getLocale() {
+        return getLocales().nextElement();
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+        String value = getHeader("Accept-Language");
+        if(value != null) {
+            try {
+                List<Locale> locales = Locale.LanguageRange.parse(value).stream()
+                        .filter(range -> !range.getRange().equals("*"))
+                        .map(range -> Locale.forLanguageTag(range.getRange()))
+                        .toList();
+                if(!locales.isEmpty())
+                    return Collections.enumeration(locales);
+            } catch (IllegalArgumentException e) {
+                // 格式错误时使用默认值
+            }
+        }
+        return Collections.enumeration(List.of(Locale.getDefault()));
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(String path) {
+        return null;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return this.servletContext;
+    }
+
+    @Override
+    public AsyncContext startAsync() throws IllegalStateException {
+        return startAsync(this, this.connection.response);
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) throws IllegalStateException {
+        if(!this.asyncSupported)
+            throw new IllegalStateException("Async is not supported by this request.");
+        if(this.asyncContext != null)
+            throw new IllegalStateException("Async already started.");
+        this.asyncContext = new EmbeddedAsyncContext(this, this.connection.response, servletRequest, servletResponse);
+        this.asyncStarted = true;
+        return this.asyncContext;
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        return this.asyncStarted;
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return this.asyncSupported;
+    }
+
+    @Override
+    public AsyncContext getAsyncContext() {
+        if(this.asyncContext == null)
+            throw new IllegalStateException("Async not started.");
+        return this.asyncContext;
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    @Override
+    public String getRequestId() {
+        return this.connection.id + "-" + this.connection.requests;
+    }
+
+    @Override
+    public String getProtocolRequestId() {
+        return "";
+    }
+
+    @Override
+    public ServletConnection getServletConnection() {
+        return this.connection;
+    }
+
+    @Override
+    public String getAuthType() {
+        return null;
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+        List<String> values = this.headers.get("cookie");
+        if(values == null)
+            return null;
+        List<Cookie> cookies = new ArrayList<>();
+        for(String value : values) {
+            for(String pair : value.split(";")) {
+                int n = pair.indexOf('=');
+                if(n <= 0)
+                    continue;
+                String name = pair.substring(0, n).trim();
+                String v = pair.substring(n + 1).trim();
+                if(v.length() > 1 && v.startsWith("\"") && v.endsWith("\""))
+                    v = v.substring(1, v.length() - 1);
+                try {
+                    cookies.add(new Cookie(name, v));
+                } catch (IllegalArgumentException e) {
+                    // 忽略名称不合法的 Cookie
+                }
+            }
+        }
+        return cookies.isEmpty() ? null : cookies.toArray(Cookie[]::new);
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        String value = getHeader(name);
+        if(value == null)
+            return -1;
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date header " + name + ": " + value);
+        }
+    }
+
+    @Override
+    public String getHeader(String name) {
+        List<String> values = this.headers.get(name.toLowerCase(Locale.ROOT));
+        return values == null ? null : values.getFirst();
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        List<String> values = this.headers.get(name.toLowerCase(Locale.ROOT));
+        return Collections.enumeration(values == null ? List.of() : values);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(this.headerNames.values());
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String value = getHeader(name);
+        return value == null ? -1 : Integer.parseInt(value.trim());
+    }
+
+    @Override
+    public String getMethod() {
+        return this.method;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getPathTranslated() {
+        return null;
+    }
+
+    @Override
+    public String getContextPath() {
+        return "";
+    }
+
+    @Override
+    public String getQueryString() {
+        return this.queryString;
+    }
+
+    // 没有配置登录机制，请求总是未认证
+    @Override
+    public boolean authenticate(HttpServletResponse response) throws IOException {
+        response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+        return false;
+    }
+
+    @Override
+    public void login(String username, String password) throws ServletException {
+        throw new ServletException("No login mechanism is configured for the embedded server.");
+    }
+
+    @Override
+    public void logout() {
+        // 没有已登录的用户
+    }
+
+    // 与 Tomcat 在 Servlet 没有 multipart 配置时一致
+    @Override
+    public Collection<Part> getParts() {
+        throw new IllegalStateException("Multipart is not supported by the embedded server.");
+    }
+
+    @Override
+    public Part getPart(String name) {
+        throw new IllegalStateException("Multipart is not supported by the embedded server.");
+    }
+
+    @Override
+    public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass) throws ServletException {
+        throw new ServletException("HTTP upgrade is not supported by the embedded server.");
+    }
+
+    @Override
+    public String getRemoteUser() {
+        return null;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return false;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return null;
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+        if(this.requestedSessionId == null) {
+            this.requestedSessionId = "";
+            String name = this.servletContext.sessionCookieConfig.getName();
+            Cookie[] cookies = getCookies();
+            if(cookies != null) {
+                for(Cookie cookie : cookies) {
+                    if(cookie.getName().equals(name)) {
+                        this.requestedSessionId = cookie.getValue();
+                        break;
+                    }
+                }
+            }
+        }
+        return this.requestedSessionId.isEmpty() ? null : this.requestedSessionId;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return this.requestURI;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        StringBuffer sb = new StringBuffer(64).append(getScheme()).append("://");
+        String host = getHeader("Host");
+        if(host != null && !host.isEmpty())
+            sb.append(host);
+        else
+            sb.append(getLocalName()).append(':').append(getLocalPort());
+        return sb.append(this.requestURI);
+    }
+
+    // 映射到默认 Servlet "/"，servletPath 为解码后的完整路径
+    @Override
+    public String getServletPath() {
+        try {
+            return URLDecoder.decode(this.requestURI.replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return this.requestURI;
+        }
+    }
+
+    // 先查找 Cookie 中的 Session（每个请求只查找一次），新建时在响应中写入 Cookie
+    @Override
+    public HttpSession getSession(boolean create) {
+        if(this.session != null && this.session.valid)
+            return this.session;
+        var sessions = this.servletContext.sessions;
+        if(!this.sessionLookedUp) {
+            this.sessionLookedUp = true;
+            this.session = sessions.find(getRequestedSessionId());
+            if(this.session != null)
+                return this.session;
+        }
+        this.session = null;
+        if(!create)
+            return null;
+        if(this.servletContext.sessionTrackingModes.isEmpty())
+            throw new IllegalStateException("Session tracking is disabled.");
+        if(this.connection.response.isCommitted())
+            throw new IllegalStateException("Cannot create a session after the response has been committed.");
+        this.session = sessions.create();
+        this.connection.response.addCookie(sessions.cookie(this.session.id));
+        return this.session;
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return getSession(true);
+    }
+
+    @Override
+    public String changeSessionId() {
+        var session = (EmbeddedSessionManager.Session) getSession(false);
+        if(session == null)
+            throw new IllegalStateException("No session is associated with this request.");
+        String id = this.servletContext.sessions.changeId(session);
+        this.connection.response.addCookie(this.servletContext.sessions.cookie(id));
+        return id;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+        String id = getRequestedSessionId();
+        HttpSession session = getSession(false);
+        return id != null && session != null && id.equals(session.getId());
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromCookie() {
+        return getRequestedSessionId() != null;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromURL() {
+        return false;
+    }
+}
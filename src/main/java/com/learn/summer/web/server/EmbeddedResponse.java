@@ -0,0 +1,676 @@
+package com.learn.summer.web.server;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * 写回连接的 HTTP 响应。响应体先写入缓冲，缓冲满或 flush 时提交：
+ * 结束前未提交的响应带 Content-Length，否则 HTTP/1.1 使用 chunked 编码，HTTP/1.0 写完后关闭连接。
+ * 不支持 trailer 和非阻塞写出。
+ */
+class EmbeddedResponse implements HttpServletResponse {
+    static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    static final byte[] CRLF = { '\r', '\n' };
+    static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    // Date 头每秒格式化一次
+    static volatile long cachedSecond;
+    static volatile String cachedDate;
+
+    final HttpConnection connection;
+    final boolean head;
+    final boolean http11;
+    // 请求是否允许保持连接
+    final boolean keepAliveRequested;
+    // 名称不区分大小写，保持首次设置时的原始名称
+    final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    final Output output;
+
+    int status = 200;
+    String contentType;
+    String characterEncoding;
+    // 显式设置过编码时 Content-Type 带上 charset
+    boolean charsetSet = false;
+    long contentLength = -1;
+    Locale locale = Locale.getDefault();
+    PrintWriter writer;
+    // 0 未使用，1 getOutputStream()，2 getWriter()
+    int outputUsage = 0;
+    boolean committed = false;
+    boolean chunked = false;
+    boolean closeConnection = false;
+    // sendError / sendRedirect 之后忽略应用写出的内容
+    boolean suspended = false;
+
+    EmbeddedResponse(HttpConnection connection, boolean head, boolean http11, boolean keepAliveRequested) {
+        this.connection = connection;
+        this.head = head;
+        this.http11 = http11;
+        this.keepAliveRequested = keepAliveRequested;
+        this.characterEncoding = connection.server.servletContext.getResponseCharacterEncoding();
+        this.output = new Output(new byte[connection.server.responseBufferSize]);
+    }
+
+    // 结束响应，返回连接是否可以继续使用
+    boolean finish() throws IOException {
+        synchronized (this.output) {
+            // 只把 Writer 中的字符写入缓冲，不提交，使短响应可以带上 Content-Length
+            this.output.finishing = true;
+            if(this.writer != null)
+                this.writer.flush();
+            this.output.finish();
+        }
+        return !this.closeConnection;
+    }
+
+    // 按 sendfile 属性直接从文件写出，由 ResourceHandler 在 Servlet 返回前设置
+    boolean sendFile(String filename, long start, long end) throws IOException {
+        synchronized (this.output) {
+            if(this.output.bodyBytes > 0 || this.suspended)
+                return false;
+            if(this.contentLength < 0)
+                this.contentLength = end - start;
+            this.output.flushBuffer(false);
+            if(!this.head && bodyAllowed()) {
+                try(FileChannel file = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+                    this.connection.transferFrom(file, start, end - start);
+                }
+            }
+            this.output.bodyBytes = end - start;
+            this.output.closed = true;
+            return true;
+        }
+    }
+
+    // 出错时尽量返回错误状态，已提交则只能关闭连接
+    void sendErrorIfPossible(int sc) {
+        synchronized (this.output) {
+            if(this.committed) {
+                this.closeConnection = true;
+                return;
+            }
+            try {
+                sendError(sc);
+            } catch (IOException | IllegalStateException e) {
+                this.closeConnection = true;
+            }
+        }
+    }
+
+    boolean bodyAllowed() {
+        return this.status >= 200 && this.status != 204 && this.status != 304;
+    }
+
+    // 生成状态行和响应头，确定响应体的长度或编码方式
+    ByteBuffer commit(boolean last) {
+        this.committed = true;
+        if(!this.keepAliveRequested || this.connection.server.isStopping())
+            this.closeConnection = true;
+        String connectionHeader = getHeader("Connection");
+        if(connectionHeader != null && connectionHeader.equalsIgnoreCase("close"))
+            this.closeConnection = true;
+        boolean bodyAllowed = bodyAllowed();
+        if(bodyAllowed && this.contentLength < 0) {
+            if(last)
+                this.contentLength = this.output.bodyBytes;
+            else if(this.http11)
+                this.chunked = true;
+            else
+                this.closeConnection = true;
+        }
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("HTTP/1.1 ").append(this.status).append(' ').append(reason(this.status)).append("\r\n");
+        String type = getContentType();
+        if(type != null)
+            sb.append("Content-Type: ").append(type).append("\r\n");
+        if(bodyAllowed) {
+            if(this.chunked)
+                sb.append("Transfer-Encoding: chunked\r\n");
+            else if(this.contentLength >= 0)
+                sb.append("Content-Length: ").append(this.contentLength).append("\r\n");
+        }
+        for(var e : this.headers.entrySet()) {
+            String name = e.getKey();
+            if(name.equalsIgnoreCase("Connection") || name.equalsIgnoreCase("Content-Length")
+                    || name.equalsIgnoreCase("Transfer-Encoding"))
+                continue;
+            for(String value : e.getValue())
+                sb.append(name).append(": ").append(value).append("\r\n");
+        }
+        if(!this.headers.containsKey("Date"))
+            sb.append("Date: ").append(currentDate()).append("\r\n");
+        if(this.closeConnection)
+            sb.append("Connection: close\r\n");
+        else if(!this.http11)
+            sb.append("Connection: keep-alive\r\n");
+        sb.append("\r\n");
+        return ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    static String currentDate() {
+        long second = System.currentTimeMillis() / 1000;
+        String date = cachedDate;
+        if(date == null || second != cachedSecond) {
+            date = HTTP_DATE.format(Instant.ofEpochSecond(second));
+            cachedDate = date;
+            cachedSecond = second;
+        }
+        return date;
+    }
+
+    static String reason(int status) {
+        return switch (status) {
+            case 100 -> "Continue";
+            case 101 -> "Switching Protocols";
+            case 200 -> "OK";
+            case 201 -> "Created";
+            case 202 -> "Accepted";
+            case 204 -> "No Content";
+            case 206 -> "Partial Content";
+            case 301 -> "Moved Permanently";
+            case 302 -> "Found";
+            case 303 -> "See Other";
+            case 304 -> "Not Modified";
+            case 307 -> "Temporary Redirect";
+            case 308 -> "Permanent Redirect";
+            case 400 -> "Bad Request";
+            case 401 -> "Unauthorized";
+            case 403 -> "Forbidden";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 406 -> "Not Acceptable";
+            case 408 -> "Request Timeout";
+            case 409 -> "Conflict";
+            case 410 -> "Gone";
+            case 411 -> "Length Required";
+            case 412 -> "Precondition Failed";
+            case 413 -> "Content Too Large";
+            case 415 -> "Unsupported Media Type";
+            case 416 -> "Range Not Satisfiable";
+            case 417 -> "Expectation Failed";
+            case 429 -> "Too Many Requests";
+            case 431 -> "Request Header Fields Too Large";
+            case 500 -> "Internal Server Error";
+            case 501 -> "Not Implemented";
+            case 502 -> "Bad Gateway";
+            case 503 -> "Service Unavailable";
+            case 504 -> "Gateway Timeout";
+            case 505 -> "HTTP Version Not Supported";
+            default -> "Unknown";
+        };
+    }
+
+    void checkNotCommitted() {
+        if(this.committed)
+            throw new IllegalStateException("Response already committed.");
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        StringBuilder sb = new StringBuilder().append(cookie.getName()).append('=').append(cookie.getValue());
+        Map<String, String> attributes = cookie.getAttributes();
+        if(attributes != null) {
+            attributes.forEach((name, value) -> {
+                sb.append("; ").append(name);
+                if(value != null && !value.isEmpty())
+                    sb.append('=').append(value);
+            });
+        }
+        addHeader("Set-Cookie", sb.toString());
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return this.headers.containsKey(name) || (name.equalsIgnoreCase("Content-Type") && this.contentType != null)
+                || (name.equalsIgnoreCase("Content-Length") && this.contentLength >= 0);
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        synchronized (this.output) {
+            checkNotCommitted();
+            resetBuffer();
+            this.status = sc;
+            this.contentType = "text/html";
+            this.characterEncoding = "UTF-8";
+            this.charsetSet = true;
+            this.contentLength = -1;
+            String text = sc + " " + reason(sc);
+            String body = "<!doctype html><html><head><title>" + text + "</title></head><body><h1>" + text + "</h1>"
+                    + (msg == null || msg.isEmpty() ? "" : "<p>" + escape(msg) + "</p>") + "</body></html>";
+            this.output.writeInternal(body.getBytes(StandardCharsets.UTF_8));
+            this.suspended = true;
+        }
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        sendError(sc, null);
+    }
+
+    static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '&' -> sb.append("&amp;");
+                case '"' -> sb.append("&quot;");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void sendRedirect(String location, int sc, boolean clearBuffer) throws IOException {
+        synchronized (this.output) {
+            checkNotCommitted();
+            if(clearBuffer)
+                resetBuffer();
+            this.status = sc;
+            setHeader("Location", location);
+            this.suspended = true;
+        }
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, HTTP_DATE.format(Instant.ofEpochMilli(date)));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        addHeader(name, HTTP_DATE.format(Instant.ofEpochMilli(date)));
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if(this.committed || setSpecialHeader(name, value))
+            return;
+        if(value == null)
+            this.headers.remove(name);
+        else {
+            List<String> values = new ArrayList<>(1);
+            values.add(value);
+            this.headers.remove(name);
+            this.headers.put(name, values);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if(this.committed || value == null || setSpecialHeader(name, value))
+            return;
+        this.headers.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+    }
+
+    // Content-Type 和 Content-Length 单独保存
+    boolean setSpecialHeader(String name, String value) {
+        if(name.equalsIgnoreCase("Content-Type")) {
+            setContentType(value);
+            return true;
+        }
+        if(name.equalsIgnoreCase("Content-Length")) {
+            try {
+                setContentLengthLong(value == null ? -1 : Long.parseLong(value.trim()));
+            } catch (NumberFormatException e) {
+                // 忽略非法值
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        if(!this.committed)
+            this.status = sc;
+    }
+
+    @Override
+    public int getStatus() {
+        return this.status;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        if(name.equalsIgnoreCase("Content-Type"))
+            return getContentType();
+        if(name.equalsIgnoreCase("Content-Length"))
+            return this.contentLength < 0 ? null : Long.toString(this.contentLength);
+        List<String> values = this.headers.get(name);
+        return values == null ? null : values.getFirst();
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        String special = name.equalsIgnoreCase("Content-Type") || name.equalsIgnoreCase("Content-Length") ? getHeader(name) : null;
+        if(special != null)
+            return List.of(special);
+        List<String> values = this.headers.get(name);
+        return values == null ? List.of() : List.copyOf(values);
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        Set<String> names = new LinkedHashSet<>(this.headers.keySet());
+        if(this.contentType != null)
+            names.add("Content-Type");
+        if(this.contentLength >= 0)
+            names.add("Content-Length");
+        return names;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return this.characterEncoding == null ? "ISO-8859-1" : this.characterEncoding;
+    }
+
+    @Override
+    public String getContentType() {
+        if(this.contentType == null)
+            return null;
+        if(this.charsetSet || (this.outputUsage == 2 && this.characterEncoding != null))
+            return this.contentType + ";charset=" + getCharacterEncoding();
+        return this.contentType;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if(this.outputUsage == 2)
+            throw new IllegalStateException("getWriter() has already been called.");
+        this.outputUsage = 1;
+        return this.output;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if(this.outputUsage == 1)
+            throw new IllegalStateException("getOutputStream() has already been called.");
+        if(this.writer == null) {
+            this.outputUsage = 2;
+            this.writer = new PrintWriter(new OutputStreamWriter(this.output, Charset.forName(getCharacterEncoding())), false);
+        }
+        return this.writer;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        if(this.committed || this.outputUsage == 2)
+            return;
+        this.characterEncoding = charset;
+        this.charsetSet = charset != null;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if(!this.committed)
+            this.contentLength = len;
+    }
+
+    @Override
+    public void setContentType(String type) {
+        if(this.committed)
+            return;
+        if(type == null) {
+            this.contentType = null;
+            return;
+        }
+        String charset = EmbeddedRequest.contentTypeCharset(type);
+        int n = type.indexOf(';');
+        if(charset != null) {
+            // charset 参数单独保存，getWriter() 之后不再改变编码
+            StringBuilder sb = new StringBuilder(type.substring(0, n).trim());
+            for(String part : type.substring(n + 1).split(";")) {
+                part = part.trim();
+                if(!part.isEmpty() && !part.regionMatches(true, 0, "charset=", 0, 8))
+                    sb.append(';').append(part);
+            }
+            this.contentType = sb.toString();
+            setCharacterEncoding(charset);
+        } else {
+            this.contentType = type.trim();
+        }
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        synchronized (this.output) {
+            if(this.committed || this.output.count > 0)
+                throw new IllegalStateException("Content has already been written.");
+            if(size > this.output.buffer.length)
+                this.output.buffer = new byte[size];
+        }
+    }
+
+    @Override
+    public int getBufferSize() {
+        return this.output.buffer.length;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        synchronized (this.output) {
+            if(this.writer != null)
+                this.writer.flush();
+            this.output.flush();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        synchronized (this.output) {
+            checkNotCommitted();
+            this.output.count = 0;
+            this.output.bodyBytes = 0;
+            this.suspended = false;
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return this.committed;
+    }
+
+    @Override
+    public void reset() {
+        synchronized (this.output) {
+            resetBuffer();
+            this.status = 200;
+            this.headers.clear();
+            this.contentType = null;
+            this.contentLength = -1;
+            this.charsetSet = false;
+            this.characterEncoding = this.connection.server.servletContext.getResponseCharacterEncoding();
+            this.writer = null;
+            this.outputUsage = 0;
+        }
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+        if(!this.committed && loc != null)
+            this.locale = loc;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return this.locale;
+    }
+
+    /**
+     * 响应体输出。异步请求（如 SSE）可能在其他线程写出，所有操作以自身为锁。
+     */
+    class Output extends ServletOutputStream {
+        byte[] buffer;
+        int count = 0;
+        // 已写入的响应体字节数，包括缓冲中的部分
+        long bodyBytes = 0;
+        boolean finishing = false;
+        boolean closed = false;
+
+        Output(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            if(suspended || this.closed)
+                return;
+            if(head) {
+                this.bodyBytes++;
+                return;
+            }
+            if(this.count == this.buffer.length)
+                flushBuffer(false);
+            this.buffer[this.count++] = (byte) b;
+            this.bodyBytes++;
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if(suspended || this.closed)
+                return;
+            writeInternal(b, off, len);
+        }
+
+        void writeInternal(byte[] b) throws IOException {
+            writeInternal(b, 0, b.length);
+        }
+
+        void writeInternal(byte[] b, int off, int len) throws IOException {
+            this.bodyBytes += len;
+            // HEAD 请求只统计长度
+            if(head)
+                return;
+            if(len <= this.buffer.length - this.count) {
+                System.arraycopy(b, off, this.buffer, this.count, len);
+                this.count += len;
+                return;
+            }
+            // 大块数据与缓冲内容一起直接写出
+            flushBuffer(false, ByteBuffer.wrap(b, off, len));
+        }
+
+        // 内存映射的文件等直接写出，不复制到缓冲
+        @Override
+        public synchronized void write(ByteBuffer data) throws IOException {
+            if(suspended || this.closed)
+                return;
+            int len = data.remaining();
+            if(head) {
+                this.bodyBytes += len;
+                return;
+            }
+            if(len <= this.buffer.length - this.count) {
+                data.get(this.buffer, this.count, len);
+                this.count += len;
+                this.bodyBytes += len;
+                return;
+            }
+            this.bodyBytes += len;
+            flushBuffer(false, data);
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if(this.closed || this.finishing)
+                return;
+            flushBuffer(false);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            finish();
+        }
+
+        void finish() throws IOException {
+            if(this.closed)
+                return;
+            flushBuffer(true);
+            this.closed = true;
+        }
+
+        void flushBuffer(boolean last) throws IOException {
+            flushBuffer(last, null);
+        }
+
+        // 一次写出响应头、缓冲和额外的数据，chunked 编码时作为一个块
+        void flushBuffer(boolean last, ByteBuffer extra) throws IOException {
+            ByteBuffer headBuffer = committed ? null : commit(last && extra == null);
+            boolean writeBody = !head && bodyAllowed();
+            int length = (writeBody ? this.count : 0) + (writeBody && extra != null ? extra.remaining() : 0);
+            List<ByteBuffer> buffers = new ArrayList<>(6);
+            if(headBuffer != null)
+                buffers.add(headBuffer);
+            if(length > 0) {
+                if(chunked)
+                    buffers.add(ByteBuffer.wrap((Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.ISO_8859_1)));
+                if(this.count > 0)
+                    buffers.add(ByteBuffer.wrap(this.buffer, 0, this.count));
+                if(extra != null && extra.hasRemaining())
+                    buffers.add(extra);
+                if(chunked)
+                    buffers.add(ByteBuffer.wrap(CRLF));
+            }
+            if(last && chunked && writeBody)
+                buffers.add(ByteBuffer.wrap(LAST_CHUNK));
+            this.count = 0;
+            if(!buffers.isEmpty())
+                connection.write(buffers.toArray(ByteBuffer[]::new));
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new IllegalStateException("Non-blocking write is not supported.");
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.learn.summer.web.server;
+
+import com.learn.summer.context.AnnotationConfigApplicationContext;
+import com.learn.summer.io.PropertyResolver;
+import com.learn.summer.web.WebMvcConfiguration;
+import com.learn.summer.web.utils.WebUtils;
+import jakarta.servlet.ServletException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 不依赖外部 Servlet 容器的 HTTP/1.1 服务器。ServerSocketChannel 在单独的平台线程中接受连接，
+ * 每个连接由一个虚拟线程以阻塞方式读写；Filter 和 DispatcherServlet 与 ContextLoaderListener 一样
+ * 通过 WebUtils 注册到 EmbeddedServletContext。
+ * <p>
+ * 配置项：summer.server.host / port / webapp（Web 根目录）/ keep-alive-timeout / max-keep-alive-requests
+ * / max-header-size / max-form-size / response-buffer-size / shutdown-timeout / session-timeout（分钟）。
+ */
+public class EmbeddedServer implements AutoCloseable {
+    final Logger logger = LoggerFactory.getLogger(getClass());
+
+    final Class<?> configClass;
+    final PropertyResolver propertyResolver;
+    final String host;
+    final int port;
+    // 连接空闲等待下一个请求的最长时间，毫秒
+    final int keepAliveTimeout;
+    // 一个连接最多处理的请求数，0 表示不限
+    final int maxKeepAliveRequests;
+    // 请求行加请求头的最大长度
+    final int maxHeaderSize;
+    final int maxFormSize;
+    final int responseBufferSize;
+    // 停止时等待处理中请求的最长时间，毫秒
+    final long shutdownTimeout;
+    final EmbeddedServletContext servletContext;
+    final Set<HttpConnection> connections = ConcurrentHashMap.newKeySet();
+    final ThreadFactory connectionThreads = Thread.ofVirtual().name("summer-http-", 0).factory();
+
+    ServerSocketChannel serverChannel;
+    Thread acceptor;
+    volatile boolean stopping = false;
+
+    public EmbeddedServer(Class<?> configClass, PropertyResolver propertyResolver) {
+        this(configClass, propertyResolver, propertyResolver.getProperty("${summer.server.port:8080}", int.class));
+    }
+
+    public EmbeddedServer(Class<?> configClass, PropertyResolver propertyResolver, int port) {
+        this.configClass = configClass;
+        this.propertyResolver = propertyResolver;
+        this.host = propertyResolver.getProperty("${summer.server.host:0.0.0.0}");
+        this.port = port;
+        this.keepAliveTimeout = propertyResolver.getProperty("${summer.server.keep-alive-timeout:60000}", int.class);
+        this.maxKeepAliveRequests = propertyResolver.getProperty("${summer.server.max-keep-alive-requests:0}", int.class);
+        this.maxHeaderSize = propertyResolver.getProperty("${summer.server.max-header-size:8192}", int.class);
+        this.maxFormSize = propertyResolver.getProperty("${summer.server.max-form-size:2097152}", int.class);
+        this.responseBufferSize = propertyResolver.getProperty("${summer.server.response-buffer-size:8192}", int.class);
+        this.shutdownTimeout = propertyResolver.getProperty("${summer.server.shutdown-timeout:5000}", long.class);
+        String webapp = propertyResolver.getProperty("${summer.server.webapp:src/main/webapp}");
+        Path root = Path.of(webapp);
+        // Web 根目录不存在时只从 classpath 的 META-INF/resources 读取资源
+        this.servletContext = new EmbeddedServletContext(Files.isDirectory(root) ? root : null,
+                Thread.currentThread().getContextClassLoader());
+        this.servletContext.setSessionTimeout(propertyResolver.getProperty("${summer.server.session-timeout:30}", int.class));
+    }
+
+    // 创建 IoC 容器，注册并初始化 Filter 和 DispatcherServlet，然后开始接受连接
+    public synchronized void start() throws IOException, ServletException {
+        if(this.serverChannel != null)
+            throw new IllegalStateException("Server already started.");
+        long start = System.currentTimeMillis();
+        logger.info("starting embedded server with configuration {}", this.configClass.getName());
+        WebMvcConfiguration.setServletContext(this.servletContext);
+        String encoding = this.propertyResolver.getProperty("${summer.web.character-encoding:UTF-8}");
+        this.servletContext.setRequestCharacterEncoding(encoding);
+        this.servletContext.setResponseCharacterEncoding(encoding);
+        var applicationContext = new AnnotationConfigApplicationContext(this.configClass, this.propertyResolver);
+        this.servletContext.setAttribute("applicationContext", applicationContext);
+        WebUtils.registerFilters(this.servletContext);
+        WebUtils.registerDispatcherServlet(this.servletContext, this.propertyResolver);
+        this.servletContext.initialize();
+
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(this.host, this.port), 1024);
+        // 平台线程（非守护）接受连接，使 main 返回后进程继续运行
+        this.acceptor = Thread.ofPlatform().name("summer-http-acceptor").unstarted(this::accept);
+        this.acceptor.start();
+        logger.info("embedded server started on {}:{} in {} ms (JVM running for {} ms)", this.host, getPort(),
+                System.currentTimeMillis() - start, ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    void accept() {
+        while(!this.stopping) {
+            try {
+                SocketChannel channel = this.serverChannel.accept();
+                var connection = new HttpConnection(this, channel);
+                this.connections.add(connection);
+                this.connectionThreads.newThread(connection).start();
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                if(!this.stopping)
+                    logger.warn("accept connection failed.", e);
+            }
+        }
+    }
+
+    void service(EmbeddedRequest req, EmbeddedResponse resp) {
+        String path = req.getServletPath();
+        var servlet = this.servletContext.findServlet(path);
+        if(servlet == null) {
+            resp.sendErrorIfPossible(404);
+            return;
+        }
+        List<EmbeddedServletContext.FilterReg> filters = this.servletContext.findFilters(path);
+        boolean asyncSupported = servlet.asyncSupported;
+        for(var filter : filters)
+            asyncSupported &= filter.asyncSupported;
+        req.asyncSupported = asyncSupported;
+        try {
+            new EmbeddedServletContext.Chain(filters, servlet.servlet).doFilter(req, resp);
+        } catch (Exception e) {
+            logger.warn("process request failed: {}", req.getRequestURI(), e);
+            resp.sendErrorIfPossible(500);
+            if(req.asyncContext != null)
+                req.asyncContext.complete();
+        }
+    }
+
+    boolean isStopping() {
+        return this.stopping;
+    }
+
+    // 实际监听的端口，配置为 0 时由系统分配
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) this.serverChannel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return this.port;
+        }
+    }
+
+    // 停止接受连接，等待处理中的请求完成后关闭所有连接并销毁 Servlet 和 IoC 容器
+    public synchronized void stop() {
+        if(this.serverChannel == null || this.stopping)
+            return;
+        this.stopping = true;
+        logger.info("stopping embedded server...");
+        try {
+            this.serverChannel.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+        long deadline = System.currentTimeMillis() + this.shutdownTimeout;
+        while(true) {
+            this.connections.removeIf(connection -> {
+                if(connection.idle)
+                    connection.close();
+                return connection.closed;
+            });
+            if(this.connections.isEmpty() || System.currentTimeMillis() >= deadline)
+                break;
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        this.connections.forEach(HttpConnection::close);
+        this.connections.clear();
+        this.servletContext.destroy();
+        logger.info("embedded server stopped.");
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    // 使用 /application.yml 或 /application.properties 中的配置启动，并在 JVM 退出时停止
+    public static EmbeddedServer run(Class<?> configClass) throws IOException, ServletException {
+        var server = new EmbeddedServer(configClass, WebUtils.createPropertyResolver());
+        server.start();
+        Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().name("summer-http-shutdown").unstarted(server::stop));
+        return server;
+    }
+
+    // 参数为配置类的全限定名
+    public static void main(String[] args) throws Exception {
+        if(args.length != 1) {
+            System.err.println("Usage: java " + EmbeddedServer.class.getName() + " <configuration class>");
+            System.exit(1);
+        }
+        run(Class.forName(args[0]));
+    }
+}
@@ -0,0 +1,842 @@
+package com.learn.summer.web.server;
+
+import jakarta.servlet.*;
+import jakarta.servlet.descriptor.JspConfigDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * 嵌入式服务器的 ServletContext，只支持 WebUtils 注册 Filter 和 DispatcherServlet 所需的部分：
+ * 编程式注册、按 URL 模式匹配的 Filter 链、Web 根目录下的资源和属性，以及通过 Cookie 跟踪的内存 Session。
+ * 不支持 JSP、请求转发和 ServletContextListener 以外的监听器，相应方法返回 null 或抛出 UnsupportedOperationException。
+ */
+class EmbeddedServletContext implements ServletContext {
+    static final String SERVER_INFO = "summer-web-embedded";
+    // 打包在 jar 中的静态资源，与 Servlet 规范约定的位置一致
+    static final String CLASSPATH_RESOURCES = "META-INF/resources";
+    static final Map<String, String> MIME_TYPES = Map.ofEntries(
+            Map.entry("html", "text/html"), Map.entry("htm", "text/html"), Map.entry("css", "text/css"),
+            Map.entry("js", "text/javascript"), Map.entry("mjs", "text/javascript"), Map.entry("json", "application/json"),
+            Map.entry("txt", "text/plain"), Map.entry("xml", "application/xml"), Map.entry("svg", "image/svg+xml"),
+            Map.entry("png", "image/png"), Map.entry("jpg", "image/jpeg"), Map.entry("jpeg", "image/jpeg"),
+            Map.entry("gif", "image/gif"), Map.entry("webp", "image/webp"), Map.entry("ico", "image/x-icon"),
+            Map.entry("woff", "font/woff"), Map.entry("woff2", "font/woff2"), Map.entry("wasm", "application/wasm"),
+            Map.entry("pdf", "application/pdf"), Map.entry("gz", "application/gzip"), Map.entry("map", "application/json"));
+
+    final Logger logger = LoggerFactory.getLogger(getClass());
+
+    final Path root;
+    final ClassLoader classLoader;
+    final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    final Map<String, String> initParameters = new ConcurrentHashMap<>();
+    // 按注册顺序保存，Filter 链按此顺序执行
+    final Map<String, ServletReg> servlets = new LinkedHashMap<>();
+    final Map<String, FilterReg> filters = new LinkedHashMap<>();
+    final List<ServletContextListener> listeners = new ArrayList<>();
+    final CookieConfig sessionCookieConfig = new CookieConfig();
+    final EmbeddedSessionManager sessions = new EmbeddedSessionManager(this);
+
+    String requestCharacterEncoding;
+    String responseCharacterEncoding;
+    int sessionTimeout = 30;
+    Set<SessionTrackingMode> sessionTrackingModes = Set.of(SessionTrackingMode.COOKIE);
+    // initialize() 之后不再允许注册
+    boolean initialized = false;
+
+    EmbeddedServletContext(Path root, ClassLoader classLoader) {
+        this.root = root == null ? null : root.toAbsolutePath().normalize();
+        this.classLoader = classLoader;
+    }
+
+    // 通知监听器，按 loadOnStartup 初始化 Servlet，并初始化所有 Filter
+    void initialize() throws ServletException {
+        var event = new ServletContextEvent(this);
+        for(ServletContextListener listener : List.copyOf(this.listeners))
+            listener.contextInitialized(event);
+        this.initialized = true;
+        for(FilterReg reg : this.filters.values())
+            reg.filter.init(reg);
+        List<ServletReg> regs = new ArrayList<>(this.servlets.values());
+        regs.sort(Comparator.comparingInt(reg -> reg.loadOnStartup < 0 ? Integer.MAX_VALUE : reg.loadOnStartup));
+        for(ServletReg reg : regs)
+            reg.servlet.init(reg);
+    }
+
+    void destroy() {
+        this.sessions.destroy();
+        for(ServletReg reg : this.servlets.values()) {
+            try {
+                reg.servlet.destroy();
+            } catch (RuntimeException e) {
+                logger.warn("destroy servlet {} failed.", reg.name, e);
+            }
+        }
+        for(FilterReg reg : this.filters.values()) {
+            try {
+                reg.filter.destroy();
+            } catch (RuntimeException e) {
+                logger.warn("destroy filter {} failed.", reg.name, e);
+            }
+        }
+        var event = new ServletContextEvent(this);
+        for(ServletContextListener listener : this.listeners.reversed()) {
+            try {
+                listener.contextDestroyed(event);
+            } catch (RuntimeException e) {
+                logger.warn("destroy listener {} failed.", listener.getClass().getName(), e);
+            }
+        }
+    }
+
+    // 按精确匹配、最长路径前缀、扩展名、默认 Servlet 的顺序查找
+    ServletReg findServlet(String path) {
+        ServletReg found = null;
+        int foundLength = -1;
+        ServletReg extension = null;
+        ServletReg fallback = null;
+        for(ServletReg reg : this.servlets.values()) {
+            for(String pattern : reg.mappings) {
+                if(pattern.equals(path))
+                    return reg;
+                if(pattern.equals("/"))
+                    fallback = reg;
+                else if(pattern.endsWith("/*")) {
+                    String prefix = pattern.substring(0, pattern.length() - 2);
+                    if(prefix.length() > foundLength && matchesPrefix(path, prefix)) {
+                        found = reg;
+                        foundLength = prefix.length();
+                    }
+                } else if(pattern.startsWith("*.") && path.endsWith(pattern.substring(1)))
+                    extension = reg;
+            }
+        }
+        return found != null ? found : extension != null ? extension : fallback;
+    }
+
+    // 当前请求要经过的 Filter，按注册顺序
+    List<FilterReg> findFilters(String path) {
+        List<FilterReg> chain = null;
+        for(FilterReg reg : this.filters.values()) {
+            if(reg.matches(path)) {
+                if(chain == null)
+                    chain = new ArrayList<>();
+                chain.add(reg);
+            }
+        }
+        return chain == null ? List.of() : chain;
+    }
+
+    static boolean matchesUrlPattern(String pattern, String path) {
+        if(pattern.equals("/*") || pattern.equals("/"))
+            return true;
+        if(pattern.endsWith("/*"))
+            return matchesPrefix(path, pattern.substring(0, pattern.length() - 2));
+        if(pattern.startsWith("*."))
+            return path.endsWith(pattern.substring(1));
+        return pattern.equals(path);
+    }
+
+    static boolean matchesPrefix(String path, String prefix) {
+        return path.startsWith(prefix) && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/');
+    }
+
+    void checkNotInitialized() {
+        if(this.initialized)
+            throw new IllegalStateException("ServletContext already initialized.");
+    }
+
+    // 将 URL 路径映射为 Web 根目录下的文件，含 "." / ".." 段或反斜杠等未规范化的路径返回 null
+    Path resolve(String path) {
+        if(this.root == null || path == null || !path.startsWith("/") || path.indexOf('\\') >= 0)
+            return null;
+        try {
+            Path file = this.root.resolve(path.substring(1));
+            return file.equals(file.normalize()) && file.startsWith(this.root) ? file : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String getContextPath() {
+        return "";
+    }
+
+    @Override
+    public ServletContext getContext(String uripath) {
+        return uripath != null && uripath.startsWith("/") ? this : null;
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 6;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getEffectiveMajorVersion() {
+        return 6;
+    }
+
+    @Override
+    public int getEffectiveMinorVersion() {
+        return 1;
+    }
+
+    @Override
+    public String getMimeType(String file) {
+        if(file == null)
+            return null;
+        int n = file.lastIndexOf('.');
+        String type = n < 0 ? null : MIME_TYPES.get(file.substring(n + 1).toLowerCase(Locale.ROOT));
+        return type != null ? type : URLConnection.guessContentTypeFromName(file);
+    }
+
+    @Override
+    public Set<String> getResourcePaths(String path) {
+        Path dir = resolve(path);
+        if(dir == null || !Files.isDirectory(dir))
+            return null;
+        String prefix = path.endsWith("/") ? path : path + "/";
+        Set<String> paths = new TreeSet<>();
+        try(Stream<Path> stream = Files.list(dir)) {
+            stream.forEach(p -> paths.add(prefix + p.getFileName() + (Files.isDirectory(p) ? "/" : "")));
+        } catch (IOException e) {
+            return null;
+        }
+        return paths;
+    }
+
+    @Override
+    public URL getResource(String path) throws MalformedURLException {
+        if(path == null || !path.startsWith("/"))
+            throw new MalformedURLException("Path must start with '/': " + path);
+        Path file = resolve(path);
+        if(file != null && Files.exists(file))
+            return file.toUri().toURL();
+        // 不允许跳出资源目录
+        if(path.contains("/../") || path.endsWith("/..") || path.contains("/./") || path.endsWith("/.") || path.indexOf('\\') >= 0)
+            return null;
+        return this.classLoader.getResource(CLASSPATH_RESOURCES + path);
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String path) {
+        Path file = resolve(path);
+        if(file != null && Files.isDirectory(file))
+            return null;
+        try {
+            URL url = getResource(path);
+            return url == null ? null : url.openStream();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(String path) {
+        return null;
+    }
+
+    @Override
+    public RequestDispatcher getNamedDispatcher(String name) {
+        return null;
+    }
+
+    @Override
+    public void log(String msg) {
+        logger.info(msg);
+    }
+
+    @Override
+    public void log(String message, Throwable throwable) {
+        logger.error(message, throwable);
+    }
+
+    @Override
+    public String getRealPath(String path) {
+        Path file = resolve(path);
+        return file == null ? null : file.toString();
+    }
+
+    @Override
+    public String getServerInfo() {
+        return SERVER_INFO;
+    }
+
+    @Override
+    public String getInitParameter(String name) {
+        return this.initParameters.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getInitParameterNames() {
+        return Collections.enumeration(this.initParameters.keySet());
+    }
+
+    @Override
+    public boolean setInitParameter(String name, String value) {
+        checkNotInitialized();
+        return this.initParameters.putIfAbsent(name, value) == null;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return this.attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(this.attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object object) {
+        if(object == null)
+            this.attributes.remove(name);
+        else
+            this.attributes.put(name, object);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        this.attributes.remove(name);
+    }
+
+    @Override
+    public String getServletContextName() {
+        return SERVER_INFO;
+    }
+
+    @Override
+    public ServletRegistration.Dynamic addServlet(String servletName, String className) {
+        try {
+            return addServlet(servletName, createServlet(this.classLoader.loadClass(className).asSubclass(Servlet.class)));
+        } catch (ClassNotFoundException | ServletException e) {
+            throw new IllegalArgumentException("Could not create servlet: " + className, e);
+        }
+    }
+
+    @Override
+    public ServletRegistration.Dynamic addServlet(String servletName, Servlet servlet) {
+        checkNotInitialized();
+        if(this.servlets.containsKey(servletName))
+            return null;
+        var reg = new ServletReg(servletName, servlet);
+        this.servlets.put(servletName, reg);
+        return reg;
+    }
+
+    @Override
+    public ServletRegistration.Dynamic addServlet(String servletName, Class<? extends Servlet> servletClass) {
+        try {
+            return addServlet(servletName, createServlet(servletClass));
+        } catch (ServletException e) {
+            throw new IllegalArgumentException("Could not create servlet: " + servletClass.getName(), e);
+        }
+    }
+
+    @Override
+    public ServletRegistration.Dynamic addJspFile(String servletName, String jspFile) {
+        throw new UnsupportedOperationException("JSP is not supported.");
+    }
+
+    @Override
+    public <T extends Servlet> T createServlet(Class<T> clazz) throws ServletException {
+        return newInstance(clazz);
+    }
+
+    @Override
+    public ServletRegistration getServletRegistration(String servletName) {
+        return this.servlets.get(servletName);
+    }
+
+    @Override
+    public Map<String, ? extends ServletRegistration> getServletRegistrations() {
+        return Collections.unmodifiableMap(this.servlets);
+    }
+
+    @Override
+    public FilterRegistration.Dynamic addFilter(String filterName, String className) {
+        try {
+            return addFilter(filterName, createFilter(this.classLoader.loadClass(className).asSubclass(Filter.class)));
+        } catch (ClassNotFoundException | ServletException e) {
+            throw new IllegalArgumentException("Could not create filter: " + className, e);
+        }
+    }
+
+    @Override
+    public FilterRegistration.Dynamic addFilter(String filterName, Filter filter) {
+        checkNotInitialized();
+        if(this.filters.containsKey(filterName))
+            return null;
+        var reg = new FilterReg(filterName, filter);
+        this.filters.put(filterName, reg);
+        return reg;
+    }
+
+    @Override
+    public FilterRegistration.Dynamic addFilter(String filterName, Class<? extends Filter> filterClass) {
+        try {
+            return addFilter(filterName, createFilter(filterClass));
+        } catch (ServletException e) {
+            throw new IllegalArgumentException("Could not create filter: " + filterClass.getName(), e);
+        }
+    }
+
+    @Override
+    public <T extends Filter> T createFilter(Class<T> clazz) throws ServletException {
+        return newInstance(clazz);
+    }
+
+    @Override
+    public FilterRegistration getFilterRegistration(String filterName) {
+        return this.filters.get(filterName);
+    }
+
+    @Override
+    public Map<String, ? extends FilterRegistration> getFilterRegistrations() {
+        return Collections.unmodifiableMap(this.filters);
+    }
+
+    @Override
+    public SessionCookieConfig getSessionCookieConfig() {
+        return this.sessionCookieConfig;
+    }
+
+    // 只支持 COOKIE，空集合表示禁用 Session
+    @Override
+    public void setSessionTrackingModes(Set<SessionTrackingMode> sessionTrackingModes) {
+        checkNotInitialized();
+        for(SessionTrackingMode mode : sessionTrackingModes) {
+            if(mode != SessionTrackingMode.COOKIE)
+                throw new IllegalArgumentException("Unsupported session tracking mode: " + mode);
+        }
+        this.sessionTrackingModes = Set.copyOf(sessionTrackingModes);
+    }
+
+    @Override
+    public Set<SessionTrackingMode> getDefaultSessionTrackingModes() {
+        return Set.of(SessionTrackingMode.COOKIE);
+    }
+
+    @Override
+    public Set<SessionTrackingMode> getEffectiveSessionTrackingModes() {
+        return this.sessionTrackingModes;
+    }
+
+    @Override
+    public void addListener(String className) {
+        try {
+            addListener(createListener(this.classLoader.loadClass(className).asSubclass(EventListener.class)));
+        } catch (ClassNotFoundException | ServletException e) {
+            throw new IllegalArgumentException("Could not create listener: " + className, e);
+        }
+    }
+
+    @Override
+    public <T extends EventListener> void addListener(T t) {
+        checkNotInitialized();
+        if(!(t instanceof ServletContextListener listener))
+            throw new IllegalArgumentException("Only ServletContextListener is supported: " + t.getClass().getName());
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void addListener(Class<? extends EventListener> listenerClass) {
+        try {
+            addListener(createListener(listenerClass));
+        } catch (ServletException e) {
+            throw new IllegalArgumentException("Could not create listener: " + listenerClass.getName(), e);
+        }
+    }
+
+    @Override
+    public <T extends EventListener> T createListener(Class<T> clazz) throws ServletException {
+        return newInstance(clazz);
+    }
+
+    @Override
+    public JspConfigDescriptor getJspConfigDescriptor() {
+        return null;
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+        return this.classLoader;
+    }
+
+    @Override
+    public void declareRoles(String... roleNames) {
+        checkNotInitialized();
+    }
+
+    @Override
+    public String getVirtualServerName() {
+        return SERVER_INFO;
+    }
+
+    @Override
+    public int getSessionTimeout() {
+        return this.sessionTimeout;
+    }
+
+    @Override
+    public void setSessionTimeout(int sessionTimeout) {
+        checkNotInitialized();
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    @Override
+    public String getRequestCharacterEncoding() {
+        return this.requestCharacterEncoding;
+    }
+
+    @Override
+    public void setRequestCharacterEncoding(String encoding) {
+        this.requestCharacterEncoding = encoding;
+    }
+
+    @Override
+    public String getResponseCharacterEncoding() {
+        return this.responseCharacterEncoding;
+    }
+
+    @Override
+    public void setResponseCharacterEncoding(String encoding) {
+        this.responseCharacterEncoding = encoding;
+    }
+
+    static <T> T newInstance(Class<T> clazz) throws ServletException {
+        try {
+            return clazz.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new ServletException("Could not create instance of " + clazz.getName(), e);
+        }
+    }
+
+    /**
+     * Session Cookie 的属性，初始化之后不能修改
+     */
+    class CookieConfig implements SessionCookieConfig {
+        String name = "JSESSIONID";
+        String domain;
+        String path;
+        boolean httpOnly = true;
+        boolean secure = false;
+        int maxAge = -1;
+        final Map<String, String> attributes = new LinkedHashMap<>();
+
+        @Override
+        public void setName(String name) {
+            checkNotInitialized();
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return this.name;
+        }
+
+        @Override
+        public void setDomain(String domain) {
+            checkNotInitialized();
+            this.domain = domain;
+        }
+
+        @Override
+        public String getDomain() {
+            return this.domain;
+        }
+
+        @Override
+        public void setPath(String path) {
+            checkNotInitialized();
+            this.path = path;
+        }
+
+        @Override
+        public String getPath() {
+            return this.path;
+        }
+
+        // Comment 已废弃，忽略
+        @Override
+        @Deprecated
+        public void setComment(String comment) {
+            checkNotInitialized();
+        }
+
+        @Override
+        @Deprecated
+        public String getComment() {
+            return null;
+        }
+
+        @Override
+        public void setHttpOnly(boolean httpOnly) {
+            checkNotInitialized();
+            this.httpOnly = httpOnly;
+        }
+
+        @Override
+        public boolean isHttpOnly() {
+            return this.httpOnly;
+        }
+
+        @Override
+        public void setSecure(boolean secure) {
+            checkNotInitialized();
+            this.secure = secure;
+        }
+
+        @Override
+        public boolean isSecure() {
+            return this.secure;
+        }
+
+        @Override
+        public void setMaxAge(int maxAge) {
+            checkNotInitialized();
+            this.maxAge = maxAge;
+        }
+
+        @Override
+        public int getMaxAge() {
+            return this.maxAge;
+        }
+
+        // 其它属性（如 SameSite）原样写入 Cookie
+        @Override
+        public void setAttribute(String name, String value) {
+            checkNotInitialized();
+            this.attributes.put(name, value);
+        }
+
+        @Override
+        public String getAttribute(String name) {
+            return this.attributes.get(name);
+        }
+
+        @Override
+        public Map<String, String> getAttributes() {
+            return Collections.unmodifiableMap(this.attributes);
+        }
+    }
+
+    /**
+     * 依次调用匹配的 Filter，最后调用 Servlet
+     */
+    static class Chain implements FilterChain {
+        final List<FilterReg> filters;
+        final Servlet servlet;
+        int pos = 0;
+
+        Chain(List<FilterReg> filters, Servlet servlet) {
+            this.filters = filters;
+            this.servlet = servlet;
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+            if(this.pos < this.filters.size())
+                this.filters.get(this.pos++).filter.doFilter(request, response, this);
+            else
+                this.servlet.service(request, response);
+        }
+    }
+
+    /**
+     * Servlet 和 Filter 注册的公共部分
+     */
+    abstract class Reg implements Registration.Dynamic {
+        final String name;
+        final String className;
+        final Map<String, String> initParameters = new LinkedHashMap<>();
+        boolean asyncSupported = false;
+
+        Reg(String name, Object instance) {
+            this.name = name;
+            this.className = instance.getClass().getName();
+        }
+
+        @Override
+        public String getName() {
+            return this.name;
+        }
+
+        @Override
+        public String getClassName() {
+            return this.className;
+        }
+
+        @Override
+        public boolean setInitParameter(String name, String value) {
+            checkNotInitialized();
+            return this.initParameters.putIfAbsent(name, value) == null;
+        }
+
+        @Override
+        public String getInitParameter(String name) {
+            return this.initParameters.get(name);
+        }
+
+        @Override
+        public Set<String> setInitParameters(Map<String, String> initParameters) {
+            Set<String> conflicts = new HashSet<>();
+            initParameters.forEach((k, v) -> {
+                if(!setInitParameter(k, v))
+                    conflicts.add(k);
+            });
+            return conflicts;
+        }
+
+        @Override
+        public Map<String, String> getInitParameters() {
+            return Collections.unmodifiableMap(this.initParameters);
+        }
+
+        @Override
+        public void setAsyncSupported(boolean isAsyncSupported) {
+            checkNotInitialized();
+            this.asyncSupported = isAsyncSupported;
+        }
+
+        public Enumeration<String> getInitParameterNames() {
+            return Collections.enumeration(this.initParameters.keySet());
+        }
+
+        public ServletContext getServletContext() {
+            return EmbeddedServletContext.this;
+        }
+    }
+
+    /**
+     * Servlet 注册，同时作为 Servlet 初始化时的 ServletConfig
+     */
+    class ServletReg extends Reg implements ServletRegistration.Dynamic, ServletConfig {
+        final Servlet servlet;
+        final Set<String> mappings = new LinkedHashSet<>();
+        int loadOnStartup = -1;
+
+        ServletReg(String name, Servlet servlet) {
+            super(name, servlet);
+            this.servlet = servlet;
+        }
+
+        @Override
+        public Set<String> addMapping(String... urlPatterns) {
+            checkNotInitialized();
+            Set<String> conflicts = new HashSet<>();
+            for(String pattern : urlPatterns) {
+                boolean mapped = servlets.values().stream().anyMatch(reg -> reg.mappings.contains(pattern));
+                if(mapped)
+                    conflicts.add(pattern);
+            }
+            if(conflicts.isEmpty())
+                this.mappings.addAll(Arrays.asList(urlPatterns));
+            return conflicts;
+        }
+
+        @Override
+        public Collection<String> getMappings() {
+            return Collections.unmodifiableSet(this.mappings);
+        }
+
+        @Override
+        public String getRunAsRole() {
+            return null;
+        }
+
+        @Override
+        public void setLoadOnStartup(int loadOnStartup) {
+            checkNotInitialized();
+            this.loadOnStartup = loadOnStartup;
+        }
+
+        @Override
+        public Set<String> setServletSecurity(ServletSecurityElement constraint) {
+            throw new UnsupportedOperationException("Servlet security is not supported.");
+        }
+
+        @Override
+        public void setMultipartConfig(MultipartConfigElement multipartConfig) {
+            throw new UnsupportedOperationException("Multipart is not supported.");
+        }
+
+        @Override
+        public void setRunAsRole(String roleName) {
+            throw new UnsupportedOperationException("Run-as role is not supported.");
+        }
+
+        @Override
+        public String getServletName() {
+            return this.name;
+        }
+    }
+
+    /**
+     * Filter 注册，同时作为 Filter 初始化时的 FilterConfig。只支持按 URL 模式映射 REQUEST 类型。
+     */
+    class FilterReg extends Reg implements FilterRegistration.Dynamic, FilterConfig {
+        final Filter filter;
+        final Set<String> urlPatterns = new LinkedHashSet<>();
+
+        FilterReg(String name, Filter filter) {
+            super(name, filter);
+            this.filter = filter;
+        }
+
+        boolean matches(String path) {
+            for(String pattern : this.urlPatterns) {
+                if(matchesUrlPattern(pattern, path))
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void addMappingForServletNames(EnumSet<DispatcherType> dispatcherTypes, boolean isMatchAfter, String... servletNames) {
+            throw new UnsupportedOperationException("Filter mapping by servlet name is not supported.");
+        }
+
+        @Override
+        public Collection<String> getServletNameMappings() {
+            return List.of();
+        }
+
+        @Override
+        public void addMappingForUrlPatterns(EnumSet<DispatcherType> dispatcherTypes, boolean isMatchAfter, String... urlPatterns) {
+            checkNotInitialized();
+            if(dispatcherTypes != null && !dispatcherTypes.contains(DispatcherType.REQUEST))
+                throw new UnsupportedOperationException("Only REQUEST dispatcher type is supported.");
+            this.urlPatterns.addAll(Arrays.asList(urlPatterns));
+        }
+
+        @Override
+        public Collection<String> getUrlPatternMappings() {
+            return Collections.unmodifiableSet(this.urlPatterns);
+        }
+
+        @Override
+        public String getFilterName() {
+            return this.name;
+        }
+    }
+}
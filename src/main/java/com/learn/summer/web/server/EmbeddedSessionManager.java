@@ -0,0 +1,245 @@
+package com.learn.summer.web.server;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpSessionBindingEvent;
+import jakarta.servlet.http.HttpSessionBindingListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存中的 HttpSession，只通过 Cookie 跟踪。过期的 Session 在访问时或每分钟一次的清理中移除，
+ * 服务器停止时全部失效；不持久化，也不在多个进程间共享。
+ */
+class EmbeddedSessionManager {
+    static final long SWEEP_INTERVAL = 60_000;
+
+    final Logger logger = LoggerFactory.getLogger(getClass());
+
+    final EmbeddedServletContext servletContext;
+    final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    final SecureRandom random = new SecureRandom();
+    volatile long lastSweep = System.currentTimeMillis();
+
+    EmbeddedSessionManager(EmbeddedServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    // 查找客户端提交的未过期 Session，并记录本次访问
+    Session find(String id) {
+        long now = System.currentTimeMillis();
+        sweep(now);
+        Session session = id == null ? null : this.sessions.get(id);
+        if(session == null)
+            return null;
+        if(session.isExpired(now)) {
+            session.expire();
+            return null;
+        }
+        session.access(now);
+        return session;
+    }
+
+    Session create() {
+        var session = new Session(newId(), System.currentTimeMillis(), this.servletContext.getSessionTimeout() * 60);
+        this.sessions.put(session.id, session);
+        return session;
+    }
+
+    // 更换 ID 防止会话固定攻击，返回新的 ID
+    String changeId(Session session) {
+        String id = newId();
+        this.sessions.remove(session.id, session);
+        session.id = id;
+        this.sessions.put(id, session);
+        return id;
+    }
+
+    String newId() {
+        byte[] bytes = new byte[16];
+        while(true) {
+            this.random.nextBytes(bytes);
+            String id = HexFormat.of().withUpperCase().formatHex(bytes);
+            if(!this.sessions.containsKey(id))
+                return id;
+        }
+    }
+
+    // 写给客户端的 Session Cookie，属性取自 SessionCookieConfig
+    Cookie cookie(String id) {
+        var config = this.servletContext.sessionCookieConfig;
+        var cookie = new Cookie(config.getName(), id);
+        cookie.setPath(config.getPath() == null ? "/" : config.getPath());
+        if(config.getDomain() != null)
+            cookie.setDomain(config.getDomain());
+        if(config.getMaxAge() >= 0)
+            cookie.setMaxAge(config.getMaxAge());
+        cookie.setSecure(config.isSecure());
+        cookie.setHttpOnly(config.isHttpOnly());
+        config.getAttributes().forEach(cookie::setAttribute);
+        return cookie;
+    }
+
+    void sweep(long now) {
+        if(now - this.lastSweep < SWEEP_INTERVAL)
+            return;
+        this.lastSweep = now;
+        for(Session session : this.sessions.values()) {
+            if(session.isExpired(now))
+                session.expire();
+        }
+    }
+
+    // 服务器停止时调用
+    void destroy() {
+        for(Session session : this.sessions.values())
+            session.expire();
+    }
+
+    /**
+     * 一个 Session。属性可被同一客户端的并发请求访问；失效时通知实现了 HttpSessionBindingListener 的属性。
+     */
+    class Session implements HttpSession {
+        final long creationTime;
+        final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        volatile String id;
+        // 客户端上一次请求的时间，以及本次请求的时间
+        volatile long lastAccessedTime;
+        volatile long accessedTime;
+        // 秒，小于等于 0 表示不过期
+        volatile int maxInactiveInterval;
+        // 客户端尚未提交过该 Session 的 ID
+        volatile boolean isNew = true;
+        volatile boolean valid = true;
+
+        Session(String id, long now, int maxInactiveInterval) {
+            this.id = id;
+            this.creationTime = now;
+            this.lastAccessedTime = now;
+            this.accessedTime = now;
+            this.maxInactiveInterval = maxInactiveInterval;
+        }
+
+        void access(long now) {
+            this.isNew = false;
+            this.lastAccessedTime = this.accessedTime;
+            this.accessedTime = now;
+        }
+
+        boolean isExpired(long now) {
+            int interval = this.maxInactiveInterval;
+            return interval > 0 && now - this.accessedTime > interval * 1000L;
+        }
+
+        void expire() {
+            try {
+                invalidate();
+            } catch (IllegalStateException e) {
+                // 已失效
+            } catch (RuntimeException e) {
+                logger.warn("expire session failed.", e);
+            }
+        }
+
+        void checkValid() {
+            if(!this.valid)
+                throw new IllegalStateException("Session already invalidated.");
+        }
+
+        @Override
+        public long getCreationTime() {
+            checkValid();
+            return this.creationTime;
+        }
+
+        @Override
+        public String getId() {
+            return this.id;
+        }
+
+        @Override
+        public long getLastAccessedTime() {
+            checkValid();
+            return this.lastAccessedTime;
+        }
+
+        @Override
+        public ServletContext getServletContext() {
+            return servletContext;
+        }
+
+        @Override
+        public void setMaxInactiveInterval(int interval) {
+            this.maxInactiveInterval = interval;
+        }
+
+        @Override
+        public int getMaxInactiveInterval() {
+            return this.maxInactiveInterval;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            checkValid();
+            return this.attributes.get(name);
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            checkValid();
+            return Collections.enumeration(this.attributes.keySet());
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            checkValid();
+            if(value == null) {
+                removeAttribute(name);
+                return;
+            }
+            Object old = this.attributes.put(name, value);
+            if(old == value)
+                return;
+            if(value instanceof HttpSessionBindingListener listener)
+                listener.valueBound(new HttpSessionBindingEvent(this, name, value));
+            if(old instanceof HttpSessionBindingListener listener)
+                listener.valueUnbound(new HttpSessionBindingEvent(this, name, old));
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            checkValid();
+            Object old = this.attributes.remove(name);
+            if(old instanceof HttpSessionBindingListener listener)
+                listener.valueUnbound(new HttpSessionBindingEvent(this, name, old));
+        }
+
+        @Override
+        public void invalidate() {
+            synchronized (this) {
+                checkValid();
+                this.valid = false;
+            }
+            sessions.remove(this.id, this);
+            for(String name : this.attributes.keySet()) {
+                Object old = this.attributes.remove(name);
+                if(old instanceof HttpSessionBindingListener listener)
+                    listener.valueUnbound(new HttpSessionBindingEvent(this, name, old));
+            }
+        }
+
+        @Override
+        public boolean isNew() {
+            checkValid();
+            return this.isNew;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.learn.summer.web.server;
+
+import jakarta.servlet.ServletConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个 TCP 连接，在自己的虚拟线程中按顺序处理请求。支持 keep-alive 和流水线：
+ * 读取时多出的字节留在 HttpInput 中作为下一个请求的开头。
+ */
+class HttpConnection implements Runnable, ServletConnection {
+    static final AtomicLong IDS = new AtomicLong();
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    // 响应后最多丢弃的未读请求体，超过则关闭连接
+    static final long MAX_DRAIN_SIZE = 64 * 1024;
+    static final int MAX_HEADERS = 100;
+
+    final Logger logger = LoggerFactory.getLogger(getClass());
+
+    final EmbeddedServer server;
+    final SocketChannel channel;
+    final long id = IDS.incrementAndGet();
+    InetSocketAddress remoteAddress;
+    InetSocketAddress localAddress;
+    HttpInput input;
+    // 当前请求，异步写出失败时通知其 AsyncContext
+    volatile EmbeddedRequest request;
+    volatile EmbeddedResponse response;
+    long requests = 0;
+    // 等待下一个请求时可以直接关闭
+    volatile boolean idle = true;
+    volatile boolean closed = false;
+
+    HttpConnection(EmbeddedServer server, SocketChannel channel) {
+        this.server = server;
+        this.channel = channel;
+    }
+
+    @Override
+    public void run() {
+        try {
+            this.remoteAddress = (InetSocketAddress) this.channel.getRemoteAddress();
+            this.localAddress = (InetSocketAddress) this.channel.getLocalAddress();
+            // 通过 socket 适配器读取以支持空闲超时，写出直接使用 channel
+            Socket socket = this.channel.socket();
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(this.server.keepAliveTimeout);
+            this.input = new HttpInput(socket.getInputStream(), this.server.maxHeaderSize);
+            while(!this.closed && handle());
+        } catch (SocketTimeoutException e) {
+            logger.debug("connection {} idle timeout.", this.id);
+        } catch (IOException e) {
+            if(!this.closed)
+                logger.debug("connection {} closed: {}", this.id, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+            this.server.connections.remove(this);
+        }
+    }
+
+    @Override
+    public String getConnectionId() {
+        return Long.toString(this.id);
+    }
+
+    // ALPN 协议标识，HTTP/1.0 请求也使用同一连接类型
+    @Override
+    public String getProtocol() {
+        return "http/1.1";
+    }
+
+    @Override
+    public String getProtocolConnectionId() {
+        return "";
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    // 处理一个请求，返回连接是否继续使用
+    boolean handle() throws IOException, InterruptedException {
+        this.idle = true;
+        String requestLine;
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        Map<String, String> headerNames = new LinkedHashMap<>();
+        try {
+            // 忽略请求之间多余的空行
+            do {
+                requestLine = this.input.readLine(this.server.maxHeaderSize);
+                if(requestLine == null)
+                    return false;
+            } while(requestLine.isEmpty());
+            this.idle = false;
+            int size = requestLine.length();
+            while(true) {
+                String line = this.input.readLine(this.server.maxHeaderSize);
+                if(line == null)
+                    return false;
+                if(line.isEmpty())
+                    break;
+                size += line.length();
+                if(size > this.server.maxHeaderSize || headerNames.size() > MAX_HEADERS)
+                    throw new HttpInput.HeaderTooLargeException();
+                int n = line.indexOf(':');
+                // 不支持跨行的请求头，名称与冒号之间不允许空白
+                if(n <= 0 || line.charAt(0) == ' ' || line.charAt(0) == '\t' || line.charAt(n - 1) == ' ')
+                    return reject(400);
+                String name = line.substring(0, n);
+                String key = name.toLowerCase(Locale.ROOT);
+                headerNames.putIfAbsent(key, name);
+                headers.computeIfAbsent(key, k -> new ArrayList<>(1)).add(line.substring(n + 1).trim());
+            }
+        } catch (HttpInput.HeaderTooLargeException e) {
+            return reject(431);
+        }
+        this.requests++;
+
+        String[] parts = requestLine.split(" ");
+        if(parts.length != 3 || parts[0].isEmpty())
+            return reject(400);
+        String method = parts[0];
+        String target = parts[1];
+        String protocol = parts[2];
+        boolean http11 = protocol.equals("HTTP/1.1");
+        if(!http11 && !protocol.equals("HTTP/1.0"))
+            return reject(505);
+        // 绝对形式的请求目标只取路径部分
+        if(target.startsWith("http://") || target.startsWith("https://")) {
+            int n = target.indexOf('/', target.indexOf("//") + 2);
+            target = n < 0 ? "/" : target.substring(n);
+        }
+        if(!target.startsWith("/") && !(target.equals("*") && method.equals("OPTIONS")))
+            return reject(400);
+        int q = target.indexOf('?');
+        String uri = q < 0 ? target : target.substring(0, q);
+        String query = q < 0 ? null : target.substring(q + 1);
+        if(!uri.equals("*")) {
+            uri = normalize(uri);
+            if(uri == null)
+                return reject(400);
+        }
+
+        boolean keepAlive = http11 ? !hasToken(headers, "connection", "close") : hasToken(headers, "connection", "keep-alive");
+        if(this.server.maxKeepAliveRequests > 0 && this.requests >= this.server.maxKeepAliveRequests)
+            keepAlive = false;
+
+        // 同时有 Transfer-Encoding 和 Content-Length 的请求可能被用于请求走私，直接拒绝
+        HttpInput.BodyInputStream body;
+        List<String> transferEncoding = headers.get("transfer-encoding");
+        List<String> contentLength = headers.get("content-length");
+        if(transferEncoding != null) {
+            if(contentLength != null || !http11 || !transferEncoding.getLast().equalsIgnoreCase("chunked"))
+                return reject(400);
+            body = new HttpInput.BodyInputStream(this.input, -1, true);
+        } else if(contentLength != null) {
+            long length;
+            try {
+                length = Long.parseLong(contentLength.getFirst());
+            } catch (NumberFormatException e) {
+                return reject(400);
+            }
+            if(length < 0 || contentLength.stream().anyMatch(v -> !v.equals(contentLength.getFirst())))
+                return reject(400);
+            body = new HttpInput.BodyInputStream(this.input, length, false);
+        } else {
+            body = new HttpInput.BodyInputStream(this.input, 0, false);
+        }
+
+        var resp = new EmbeddedResponse(this, method.equals("HEAD"), http11, keepAlive);
+        this.response = resp;
+        var req = new EmbeddedRequest(this, method, uri, query, protocol, headers, headerNames, body);
+        this.request = req;
+        req.setAttribute(SENDFILE_SUPPORT, Boolean.TRUE);
+        if(http11 && hasToken(headers, "expect", "100-continue")) {
+            body.beforeRead = () -> {
+                if(!resp.isCommitted()) {
+                    try {
+                        write(ByteBuffer.wrap(CONTINUE));
+                    } catch (IOException e) {
+                        // 读取请求体时会再次失败
+                    }
+                }
+            };
+        }
+
+        this.server.service(req, resp);
+        if(req.asyncContext != null) {
+            req.asyncContext.await();
+            req.asyncStarted = false;
+        }
+        if(this.closed)
+            return false;
+        if(req.getAttribute(SENDFILE_FILENAME) instanceof String filename
+                && req.getAttribute(SENDFILE_START) instanceof Long start
+                && req.getAttribute(SENDFILE_END) instanceof Long end)
+            resp.sendFile(filename, start, end);
+        boolean reuse = resp.finish();
+        this.request = null;
+        this.response = null;
+        // 丢弃应用未读取的请求体，过大时直接关闭
+        return reuse && body.drain(MAX_DRAIN_SIZE);
+    }
+
+    // 与 Tomcat 一样在路由前规范化路径：合并重复的 '/'，处理 "." 和 ".." 段（包括 %2e 编码的形式），
+    // 越过根目录、含编码的 '/' '\\'、反斜杠或空字符时返回 null
+    static String normalize(String uri) {
+        if(uri.indexOf('\\') >= 0 || uri.indexOf('\0') >= 0)
+            return null;
+        String lower = uri.toLowerCase(Locale.ROOT);
+        if(lower.contains("%2f") || lower.contains("%5c") || lower.contains("%00"))
+            return null;
+        if(!uri.contains("//") && !uri.contains("/.") && !lower.contains("/%2e"))
+            return uri;
+        List<String> segments = new ArrayList<>();
+        String[] parts = uri.substring(1).split("/", -1);
+        for(int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            boolean last = i == parts.length - 1;
+            String dots = part.replace("%2e", ".").replace("%2E", ".");
+            if(dots.equals(".") || dots.equals("..")) {
+                if(dots.equals("..")) {
+                    if(segments.isEmpty())
+                        return null;
+                    segments.removeLast();
+                }
+                // "/a/." 与 "/a/.." 保留末尾的 '/'
+                if(last)
+                    segments.add("");
+            } else if(!part.isEmpty() || last) {
+                segments.add(part);
+            }
+        }
+        return "/" + String.join("/", segments);
+    }
+
+    static boolean hasToken(Map<String, List<String>> headers, String name, String token) {
+        List<String> values = headers.get(name);
+        if(values == null)
+            return false;
+        for(String value : values) {
+            for(String part : value.split(",")) {
+                if(part.trim().equalsIgnoreCase(token))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    // 请求格式错误，返回错误状态后关闭连接
+    boolean reject(int status) throws IOException {
+        var resp = new EmbeddedResponse(this, false, true, false);
+        resp.sendError(status);
+        resp.finish();
+        return false;
+    }
+
+    void write(ByteBuffer... buffers) throws IOException {
+        try {
+            long remaining = 0;
+            for(ByteBuffer buffer : buffers)
+                remaining += buffer.remaining();
+            while(remaining > 0)
+                remaining -= this.channel.write(buffers);
+        } catch (IOException e) {
+            fail(e);
+            throw e;
+        }
+    }
+
+    // 从文件直接发送到 socket（sendfile）
+    void transferFrom(FileChannel file, long position, long count) throws IOException {
+        try {
+            long end = position + count;
+            while(position < end) {
+                long n = file.transferTo(position, end - position, this.channel);
+                if(n <= 0 && position >= file.size())
+                    throw new IOException("Unexpected end of file.");
+                position += n;
+            }
+        } catch (IOException e) {
+            fail(e);
+            throw e;
+        }
+    }
+
+    // 写出失败时唤醒等待中的异步请求
+    void fail(IOException e) {
+        EmbeddedRequest req = this.request;
+        if(req != null && req.asyncContext != null)
+            req.asyncContext.fail(e);
+    }
+
+    void close() {
+        this.closed = true;
+        fail(new ClosedChannelException());
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.learn.summer.web.server;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 连接的输入缓冲。一次读取可能包含多个流水线请求，未处理的字节留在缓冲中供下一个请求使用。
+ */
+class HttpInput {
+    final InputStream input;
+    final byte[] buffer;
+    int pos = 0;
+    int limit = 0;
+
+    HttpInput(InputStream input, int bufferSize) {
+        this.input = input;
+        this.buffer = new byte[bufferSize];
+    }
+
+    // 缓冲中是否还有未处理的字节（下一个流水线请求）
+    boolean hasBuffered() {
+        return this.pos < this.limit;
+    }
+
+    // 读取到 CRLF（兼容单独的 LF）为止的一行，连接关闭时返回 null，超过 maxLength 抛出 HeaderTooLargeException
+    String readLine(int maxLength) throws IOException {
+        StringBuilder sb = null;
+        while(true) {
+            if(this.pos == this.limit && !fill())
+                return sb == null ? null : sb.toString();
+            int start = this.pos;
+            while(this.pos < this.limit) {
+                byte b = this.buffer[this.pos++];
+                if(b == '\n') {
+                    int end = this.pos - 1;
+                    if(end > start && this.buffer[end - 1] == '\r')
+                        end--;
+                    String part = new String(this.buffer, start, end - start, StandardCharsets.ISO_8859_1);
+                    if(sb == null)
+                        return part;
+                    // 上一段以 \r 结尾时去掉
+                    if(end == start && sb.length() > 0 && sb.charAt(sb.length() - 1) == '\r')
+                        sb.setLength(sb.length() - 1);
+                    return sb.append(part).toString();
+                }
+            }
+            if(sb == null)
+                sb = new StringBuilder();
+            sb.append(new String(this.buffer, start, this.limit - start, StandardCharsets.ISO_8859_1));
+            if(sb.length() > maxLength)
+                throw new HeaderTooLargeException();
+        }
+    }
+
+    int read() throws IOException {
+        if(this.pos == this.limit && !fill())
+            return -1;
+        return this.buffer[this.pos++] & 0xff;
+    }
+
+    int read(byte[] b, int off, int len) throws IOException {
+        if(len == 0)
+            return 0;
+        if(this.pos == this.limit) {
+            // 大块读取直接读入目标数组
+            if(len >= this.buffer.length)
+                return this.input.read(b, off, len);
+            if(!fill())
+                return -1;
+        }
+        int n = Math.min(len, this.limit - this.pos);
+        System.arraycopy(this.buffer, this.pos, b, off, n);
+        this.pos += n;
+        return n;
+    }
+
+    boolean fill() throws IOException {
+        this.pos = 0;
+        this.limit = 0;
+        int n = this.input.read(this.buffer, 0, this.buffer.length);
+        if(n <= 0)
+            return false;
+        this.limit = n;
+        return true;
+    }
+
+    static class HeaderTooLargeException extends IOException {
+        HeaderTooLargeException() {
+            super("Request header too large.");
+        }
+    }
+
+    /**
+     * 请求体，按 Content-Length 或 chunked 编码读取，不会读到下一个请求
+     */
+    static class BodyInputStream extends ServletInputStream {
+        final HttpInput input;
+        final boolean chunked;
+        // 固定长度时为剩余字节，chunked 时为当前块的剩余字节
+        long remaining;
+        boolean chunkStarted;
+        boolean finished;
+        // 首次读取前调用，用于响应 Expect: 100-continue
+        Runnable beforeRead;
+
+        BodyInputStream(HttpInput input, long length, boolean chunked) {
+            this.input = input;
+            this.chunked = chunked;
+            this.remaining = chunked ? 0 : length;
+            this.finished = !chunked && length <= 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if(this.beforeRead != null) {
+                Runnable r = this.beforeRead;
+                this.beforeRead = null;
+                r.run();
+            }
+            if(this.finished)
+                return -1;
+            if(len == 0)
+                return 0;
+            if(this.chunked && this.remaining == 0 && !nextChunk())
+                return -1;
+            int n = this.input.read(b, off, (int) Math.min(len, this.remaining));
+            if(n < 0)
+                throw new EOFException("Unexpected end of request body.");
+            this.remaining -= n;
+            if(!this.chunked && this.remaining == 0)
+                this.finished = true;
+            return n;
+        }
+
+        // 读取下一个块的大小，最后一个块时读取 trailer 并结束
+        boolean nextChunk() throws IOException {
+            if(this.remaining == 0 && this.chunkStarted) {
+                // 上一个块数据后的 CRLF
+                String line = this.input.readLine(16);
+                if(line == null || !line.isEmpty())
+                    throw new IOException("Invalid chunked request body.");
+            }
+            String line = this.input.readLine(1024);
+            if(line == null)
+                throw new EOFException("Unexpected end of request body.");
+            int n = line.indexOf(';');
+            long size;
+            try {
+                size = Long.parseLong((n < 0 ? line : line.substring(0, n)).trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid chunk size: " + line);
+            }
+            if(size < 0)
+                throw new IOException("Invalid chunk size: " + line);
+            this.chunkStarted = true;
+            if(size == 0) {
+                // 忽略 trailer
+                while(true) {
+                    String trailer = this.input.readLine(8192);
+                    if(trailer == null || trailer.isEmpty())
+                        break;
+                }
+                this.finished = true;
+                return false;
+            }
+            this.remaining = size;
+            return true;
+        }
+
+        // 丢弃未读完的请求体，超过 maxBytes 返回 false（连接需关闭）
+        boolean drain(long maxBytes) throws IOException {
+            this.beforeRead = null;
+            byte[] b = new byte[4096];
+            long total = 0;
+            while(!this.finished) {
+                int n = read(b, 0, b.length);
+                if(n < 0)
+                    break;
+                total += n;
+                if(total > maxBytes)
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return this.finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            throw new IllegalStateException("Non-blocking read is not supported.");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.learn.summer.web.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按总大小限制的缓存，近似 LRU：命中时只更新访问时间，不加锁；
+ * 超过上限时按最近访问时间淘汰，一次淘汰到上限的 3/4 以减少淘汰次数。
+ */
+public class BoundedCache<V> {
+    final long maxSize;
+    final Map<String, Entry<V>> cache = new ConcurrentHashMap<>();
+    final AtomicLong size = new AtomicLong();
+
+    public BoundedCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public V get(String key) {
+        Entry<V> entry = this.cache.get(key);
+        if(entry == null)
+            return null;
+        entry.lastAccess = System.nanoTime();
+        return entry.value;
+    }
+
+    public void put(String key, V value, long size) {
+        if(this.maxSize <= 0 || size > this.maxSize)
+            return;
+        Entry<V> entry = new Entry<>(value, size);
+        Entry<V> old = this.cache.put(key, entry);
+        this.size.addAndGet(size - (old == null ? 0 : old.size));
+        if(this.size.get() > this.maxSize)
+            evict();
+    }
+
+    public void remove(String key) {
+        Entry<V> old = this.cache.remove(key);
+        if(old != null)
+            this.size.addAndGet(-old.size);
+    }
+
+    // 当前缓存的总大小
+    public long size() {
+        return this.size.get();
+    }
+
+    synchronized void evict() {
+        if(this.size.get() <= this.maxSize)
+            return;
+        List<Map.Entry<String, Entry<V>>> entries = new ArrayList<>(this.cache.entrySet());
+        entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+        long target = this.maxSize / 4 * 3;
+        for(Map.Entry<String, Entry<V>> e : entries) {
+            if(this.size.get() <= target)
+                break;
+            if(this.cache.remove(e.getKey(), e.getValue()))
+                this.size.addAndGet(-e.getValue().size);
+        }
+    }
+
+    static final class Entry<V> {
+        final V value;
+        final long size;
+        volatile long lastAccess = System.nanoTime();
+
+        Entry(V value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+}
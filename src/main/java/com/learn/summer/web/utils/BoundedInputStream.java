@@ -0,0 +1,54 @@
+package com.learn.summer.web.utils;
+
+import com.learn.summer.exception.ErrorResponseException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 限制最多读取 maxSize 字节，超出时以 413 响应
+ */
+public class BoundedInputStream extends FilterInputStream {
+    final long maxSize;
+    long count = 0;
+
+    public BoundedInputStream(InputStream in, long maxSize) {
+        super(in);
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if(b >= 0)
+            count(1);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if(n > 0)
+            count(n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    void count(long n) {
+        this.count += n;
+        if(this.count > this.maxSize)
+            throw new ErrorResponseException(413, "Request body exceeds " + this.maxSize + " bytes.");
+    }
+}
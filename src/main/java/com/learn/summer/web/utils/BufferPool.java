@@ -0,0 +1,47 @@
+package com.learn.summer.web.utils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 固定大小 byte[] 的无锁缓冲池。
+ * 不使用 ThreadLocal：虚拟线程数量不固定，ThreadLocal 缓存会随线程数增长且无法复用。
+ * 池为空时直接分配，池满时归还的 buffer 交给 GC。
+ */
+public class BufferPool {
+    final int bufferSize;
+    final AtomicReferenceArray<byte[]> slots;
+
+    public BufferPool(int bufferSize, int poolSize) {
+        this.bufferSize = bufferSize;
+        this.slots = new AtomicReferenceArray<>(poolSize);
+    }
+
+    public int getBufferSize() {
+        return this.bufferSize;
+    }
+
+    public byte[] acquire() {
+        int n = this.slots.length();
+        // 从不同位置开始查找，减少线程间的竞争
+        int start = n == 0 ? 0 : (int) (Thread.currentThread().threadId() % n);
+        for(int i = 0; i < n; i++) {
+            int index = (start + i) % n;
+            byte[] buffer = this.slots.get(index);
+            if(buffer != null && this.slots.compareAndSet(index, buffer, null))
+                return buffer;
+        }
+        return new byte[this.bufferSize];
+    }
+
+    public void release(byte[] buffer) {
+        if(buffer.length != this.bufferSize)
+            return;
+        int n = this.slots.length();
+        int start = n == 0 ? 0 : (int) (Thread.currentThread().threadId() % n);
+        for(int i = 0; i < n; i++) {
+            int index = (start + i) % n;
+            if(this.slots.get(index) == null && this.slots.compareAndSet(index, null, buffer))
+                return;
+        }
+    }
+}
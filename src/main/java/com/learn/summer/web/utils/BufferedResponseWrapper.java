@@ -0,0 +1,255 @@
+package com.learn.summer.web.utils;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 缓冲响应：输出先写入从 BufferPool 取得的 buffer，结束时未超过 limit 则设置准确的 Content-Length 并一次写出，
+ * 超过 limit 后改为流式输出。客户端接受 gzip 时，不小于 compressMinSize 且 Content-Type 匹配的响应使用 gzip 压缩，
+ * 压缩直接写入底层输出流，不再二次缓冲。
+ * 处理完成后调用 finish()，出现异常时不调用，暂存的内容随之丢弃；无论成功与否都要调用 release() 归还 buffer。
+ */
+public class BufferedResponseWrapper extends HttpServletResponseWrapper {
+    final HttpServletResponse response;
+    final BufferPool pool;
+    final int limit;
+    // 小于 0 表示不压缩
+    final int compressMinSize;
+    final Set<String> mimeTypes;
+    // 客户端是否接受 gzip
+    final boolean gzip;
+
+    ResponseOutputStream output;
+    PrintWriter writer;
+    long contentLength = -1;
+
+    public BufferedResponseWrapper(HttpServletResponse response, BufferPool pool, int limit,
+                                   int compressMinSize, Set<String> mimeTypes, boolean gzip) {
+        super(response);
+        this.response = response;
+        this.pool = pool;
+        this.limit = Math.min(limit, pool.getBufferSize());
+        this.compressMinSize = compressMinSize;
+        this.mimeTypes = mimeTypes;
+        this.gzip = gzip;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if(this.writer != null)
+            throw new IllegalStateException("getWriter() has already been called.");
+        if(this.output == null)
+            this.output = new ResponseOutputStream();
+        return this.output;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if(this.writer == null) {
+            if(this.output != null)
+                throw new IllegalStateException("getOutputStream() has already been called.");
+            String charset = getCharacterEncoding();
+            if(charset == null)
+                charset = StandardCharsets.ISO_8859_1.name();
+            // 不调用底层 getWriter()，显式设置编码使 Content-Type 带上 charset
+            this.response.setCharacterEncoding(charset);
+            this.output = new ResponseOutputStream();
+            this.writer = new PrintWriter(new OutputStreamWriter(this.output, charset));
+        }
+        return this.writer;
+    }
+
+    // Content-Length 在确定输出方式后再设置
+    @Override
+    public void setContentLength(int len) {
+        this.contentLength = len;
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        this.contentLength = len;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if("Content-Length".equalsIgnoreCase(name))
+            this.contentLength = Long.parseLong(value);
+        else
+            super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if("Content-Length".equalsIgnoreCase(name))
+            this.contentLength = Long.parseLong(value);
+        else
+            super.addHeader(name, value);
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if(this.writer != null)
+            this.writer.flush();
+        if(this.output != null)
+            this.output.flush();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        if(this.output != null)
+            this.output.count = 0;
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        if(this.output != null)
+            this.output.count = 0;
+        this.contentLength = -1;
+        super.reset();
+    }
+
+    public void finish() throws IOException {
+        if(this.writer != null)
+            this.writer.flush();
+        if(this.output != null)
+            this.output.finish();
+        else if(this.contentLength >= 0)
+            this.response.setContentLengthLong(this.contentLength);
+    }
+
+    public void release() {
+        if(this.output != null)
+            this.output.release();
+    }
+
+    boolean isCompressible(String contentType) {
+        if(this.compressMinSize < 0 || contentType == null)
+            return false;
+        int n = contentType.indexOf(';');
+        String mime = (n < 0 ? contentType : contentType.substring(0, n)).trim().toLowerCase();
+        return this.mimeTypes.contains(mime);
+    }
+
+    class ResponseOutputStream extends ServletOutputStream {
+        byte[] buffer;
+        int count = 0;
+        // 确定输出方式后为 gzip 流或底层输出流
+        OutputStream target;
+        GZIPOutputStream gzipOutput;
+        boolean finished = false;
+
+        @Override
+        public void write(int b) throws IOException {
+            if(this.target == null) {
+                if(this.count < limit) {
+                    buffer()[this.count++] = (byte) b;
+                    return;
+                }
+                start(true);
+            }
+            this.target.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if(this.target == null) {
+                if(this.count + len <= limit) {
+                    System.arraycopy(b, off, buffer(), this.count, len);
+                    this.count += len;
+                    return;
+                }
+                start(true);
+            }
+            this.target.write(b, off, len);
+        }
+
+        // 确定输出方式前不向底层输出，避免多次小块写出
+        @Override
+        public void flush() throws IOException {
+            if(this.target != null)
+                this.target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        byte[] buffer() {
+            if(this.buffer == null)
+                this.buffer = pool.acquire();
+            return this.buffer;
+        }
+
+        void start(boolean exceeded) throws IOException {
+            boolean compressible = isCompressible(getContentType());
+            if(compressible)
+                response.addHeader("Vary", "Accept-Encoding");
+            ServletOutputStream out = response.getOutputStream();
+            if(gzip && compressible && (exceeded || this.count >= compressMinSize)
+                    && !response.containsHeader("Content-Encoding")) {
+                response.setHeader("Content-Encoding", "gzip");
+                this.gzipOutput = new GZIPOutputStream(out, 8192, true);
+                this.target = this.gzipOutput;
+            } else {
+                if(contentLength >= 0)
+                    response.setContentLengthLong(contentLength);
+                else if(!exceeded)
+                    response.setContentLengthLong(this.count);
+                this.target = out;
+            }
+            if(this.count > 0)
+                this.target.write(this.buffer, 0, this.count);
+            this.count = 0;
+            release();
+        }
+
+        void finish() throws IOException {
+            if(this.finished)
+                return;
+            this.finished = true;
+            if(this.target == null)
+                start(false);
+            if(this.gzipOutput != null)
+                this.gzipOutput.finish();
+            this.target.flush();
+        }
+
+        void release() {
+            if(this.buffer != null) {
+                pool.release(this.buffer);
+                this.buffer = null;
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            try {
+                return response.getOutputStream().isReady();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            try {
+                response.getOutputStream().setWriteListener(listener);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
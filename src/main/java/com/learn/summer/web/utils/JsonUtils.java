@@ -1,13 +1,16 @@
 package com.learn.summer.web.utils;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.util.ClassUtil;
 
 import java.io.*;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -29,6 +32,84 @@ public class JsonUtils {
         return mapper;
     }
 
+    // 按声明类型预先创建 ObjectWriter，输出后不关闭目标流
+    public static TypedWriter writerFor(Type type) {
+        JavaType javaType = OBJECT_MAPPER.constructType(type);
+        ObjectWriter dynamic = OBJECT_MAPPER.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if(javaType.isJavaLangObject())
+            return new TypedWriter(Object.class, null, dynamic, dynamic);
+        ObjectWriter typed = OBJECT_MAPPER.writerFor(javaType).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        Class<?> rawClass = javaType.getRawClass();
+        // 基本类型的值以包装类传入
+        Class<?> declaredClass = rawClass.isPrimitive() ? ClassUtil.wrapperType(rawClass) : rawClass;
+        Class<?> elementClass = null;
+        if(javaType.isContainerType() && !isStaticType(javaType)) {
+            // 容器的序列化器按声明的元素类型固定，只处理一层 Bean 元素，逐个核对运行时类
+            JavaType key = javaType.getKeyType();
+            JavaType content = javaType.getContentType();
+            if((key == null || isStaticElement(key)) && !content.isContainerType() && !content.isJavaLangObject())
+                elementClass = content.getRawClass();
+            else
+                typed = dynamic;
+        }
+        return new TypedWriter(declaredClass, elementClass, typed, dynamic);
+    }
+
+    // 声明类型能否确定序列化器：基本类型、final 类型，或元素均满足条件的容器（Object 元素按运行时类型处理）
+    static boolean isStaticType(JavaType type) {
+        if(type.isContainerType()) {
+            JavaType key = type.getKeyType();
+            return isStaticElement(type.getContentType()) && (key == null || isStaticElement(key));
+        }
+        return type.isPrimitive() || type.isFinal();
+    }
+
+    static boolean isStaticElement(JavaType type) {
+        return type.isJavaLangObject() || isStaticType(type);
+    }
+
+    /**
+     * 按声明类型预先解析了序列化器的 ObjectWriter。值的运行时类与声明类不同（如返回子类）时改用按运行时类型
+     * 序列化的 writer，避免丢失子类的字段。容器的实现类为 JDK 集合时与声明类型等价；
+     * 元素为非 final 的 Bean 时，还要求每个元素的运行时类与声明的元素类相同。
+     */
+    public record TypedWriter(Class<?> declaredClass, Class<?> elementClass, ObjectWriter typed, ObjectWriter dynamic) {
+        public ObjectWriter forValue(Object value) {
+            if(value == null || this.typed == this.dynamic)
+                return this.typed;
+            Class<?> clazz = value.getClass();
+            if(clazz == this.declaredClass)
+                return this.elementClass == null || hasElementClass(value) ? this.typed : this.dynamic;
+            if(this.declaredClass.isAssignableFrom(clazz) && clazz.getName().startsWith("java.")
+                    && (Collection.class.isAssignableFrom(clazz) || Map.class.isAssignableFrom(clazz)))
+                return this.elementClass == null || hasElementClass(value) ? this.typed : this.dynamic;
+            return this.dynamic;
+        }
+
+        boolean hasElementClass(Object value) {
+            Iterable<?> elements = value instanceof Map<?, ?> map ? map.values()
+                    : value instanceof Object[] array ? Arrays.asList(array) : (Collection<?>) value;
+            for(Object element : elements) {
+                if(element != null && element.getClass() != this.elementClass)
+                    return false;
+            }
+            return true;
+        }
+
+        public byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+            return forValue(value).writeValueAsBytes(value);
+        }
+
+        public void writeValue(OutputStream output, Object value) throws IOException {
+            forValue(value).writeValue(output, value);
+        }
+    }
+
+    // 按参数的泛型类型预先创建 ObjectReader，如 List<Order> 不会被解析为 LinkedHashMap
+    public static ObjectReader readerFor(Type type) {
+        return OBJECT_MAPPER.readerFor(OBJECT_MAPPER.constructType(type));
+    }
+
     public static String writeJson(Object obj) {
         try {
             return OBJECT_MAPPER.writeValueAsString(obj);
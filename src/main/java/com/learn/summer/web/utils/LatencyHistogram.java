@@ -0,0 +1,92 @@
+package com.learn.summer.web.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的对数-线性耗时直方图（类似 HdrHistogram）：以 1024 纳秒为单位，
+ * 每个 2 的幂区间再均分为 16 个桶，相对误差约 6%，最大约 1100 秒，更大的值计入最后一个桶。
+ * record() 只做原子累加，不分配对象。
+ */
+public class LatencyHistogram {
+    static final int UNIT_SHIFT = 10;
+    static final int SUB_BITS = 4;
+    static final int SUB_COUNT = 1 << SUB_BITS;
+    static final int MAX_EXPONENT = 30;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+    final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    final LongAdder sum = new LongAdder();
+    final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    public void record(long nanos) {
+        if(nanos < 0)
+            nanos = 0;
+        this.counts.incrementAndGet(index(nanos));
+        this.sum.add(nanos);
+        this.max.accumulate(nanos);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.counts.get(i);
+            count += counts[i];
+        }
+        return new Snapshot(counts, count, this.sum.sum(), this.max.get());
+    }
+
+    static int index(long nanos) {
+        long v = nanos >>> UNIT_SHIFT;
+        if(v < SUB_COUNT)
+            return (int) v;
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        if(exponent > MAX_EXPONENT)
+            return BUCKETS - 1;
+        int sub = (int) (v >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    // 桶的上界（不含），纳秒
+    static long upperBound(int index) {
+        if(index < SUB_COUNT)
+            return (long) (index + 1) << UNIT_SHIFT;
+        int shift = index / SUB_COUNT - 1;
+        long lower = (long) (SUB_COUNT + index % SUB_COUNT) << shift;
+        return (lower + (1L << shift)) << UNIT_SHIFT;
+    }
+
+    /**
+     * 某一时刻的计数副本，各桶分别读取，与 sum / max 之间不保证严格一致
+     */
+    public record Snapshot(long[] counts, long count, long sum, long max) {
+
+        public double mean() {
+            return this.count == 0 ? 0 : (double) this.sum / this.count;
+        }
+
+        // 分位数，返回所在桶的上界且不超过最大值，纳秒
+        public long percentile(double q) {
+            if(this.count == 0)
+                return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * this.count));
+            long seen = 0;
+            for(int i = 0; i < this.counts.length; i++) {
+                seen += this.counts[i];
+                if(seen >= rank)
+                    return Math.min(upperBound(i), this.max);
+            }
+            return this.max;
+        }
+
+        // 耗时不超过 nanos 的次数，按桶上界计算
+        public long countAtMost(long nanos) {
+            long n = 0;
+            for(int i = 0; i < this.counts.length && upperBound(i) <= nanos; i++)
+                n += this.counts[i];
+            return n;
+        }
+    }
+}
@@ -2,10 +2,15 @@ package com.learn.summer.web.utils;
 
 import jakarta.servlet.ServletException;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class PathUtils {
 
+    static final Pattern VARIABLE = Pattern.compile("\\{([a-zA-Z][a-zA-Z0-9]*)}");
+
     // 为路径生成 pattern，/user/{id} --> ^/user/(?<id>[^/]*)$
     public static Pattern compile(String path) throws ServletException{
         // 使用 named-capturing group
@@ -15,4 +20,68 @@ public class PathUtils {
         }
         return Pattern.compile("^" + regPath + "$");
     }
+
+    // 将路径拆分为 segment，/user/{id}/ --> [user, {id}, ""]
+    public static List<Segment> parse(String path) throws ServletException{
+        if(!path.startsWith("/"))
+            throw new ServletException("Path must start with '/': " + path);
+        List<Segment> segments = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int start = 1;
+        while(true) {
+            int end = path.indexOf('/', start);
+            String s = path.substring(start, end < 0 ? path.length() : end);
+            Segment segment = parseSegment(path, s);
+            if(segment.variable != null) {
+                if(names.contains(segment.variable))
+                    throw new ServletException("Duplicate path variable '" + segment.variable + "' in path: " + path);
+                names.add(segment.variable);
+            }
+            segments.add(segment);
+            if(end < 0)
+                break;
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    // 按出现顺序返回路径变量名，/user/{id}/{tab} --> [id, tab]
+    public static List<String> variableNames(String path) throws ServletException{
+        List<String> names = new ArrayList<>();
+        for(Segment s : parse(path)) {
+            if(s.variable != null)
+                names.add(s.variable);
+        }
+        return names;
+    }
+
+    static Segment parseSegment(String path, String s) throws ServletException{
+        Matcher m = VARIABLE.matcher(s);
+        if(!m.find()) {
+            if(s.indexOf('{') >= 0 || s.indexOf('}') >= 0)
+                throw new ServletException("Invalid path: " + path);
+            return new Segment(s, null, null);
+        }
+        String prefix = s.substring(0, m.start());
+        String suffix = s.substring(m.end());
+        // 每个 segment 最多一个变量，变量两侧只允许字面量
+        if(prefix.indexOf('{') >= 0 || prefix.indexOf('}') >= 0 || suffix.indexOf('{') >= 0 || suffix.indexOf('}') >= 0)
+            throw new ServletException("Invalid path: " + path);
+        return new Segment(prefix, m.group(1), suffix);
+    }
+
+    /**
+     * 路径中的一段：静态 segment 只有 literal；变量 segment 形如 prefix{variable}suffix
+     */
+    public static record Segment(String literal, String variable, String suffix) {
+
+        public boolean isStatic() {
+            return variable == null;
+        }
+
+        // 变量两侧都没有字面量，即 {variable}
+        public boolean isWildcard() {
+            return variable != null && literal.isEmpty() && suffix.isEmpty();
+        }
+    }
 }
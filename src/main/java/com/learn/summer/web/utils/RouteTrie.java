@@ -0,0 +1,235 @@
+package com.learn.summer.web.utils;
+
+import jakarta.servlet.ServletException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按 segment 组织的路由前缀树。
+ * 匹配时逐段查找，优先级：静态 segment > prefix{var}suffix > {var}，
+ * 匹配开销只与 URL 长度有关，与路由数量无关。
+ * <p>
+ * 不可变：with() / without() 只复制从根到该路由路径上的节点并返回新的 RouteTrie，其余子树与原来共享，
+ * 因此可以整体发布给并发的请求线程，读取时无需加锁。
+ */
+public class RouteTrie<T> {
+    static final String[] NO_VARIABLES = new String[0];
+
+    final Node<T> root;
+
+    // 所有路由中路径变量的最大个数，用于一次性分配变量数组；移除路由时不减少
+    final int maxVariables;
+    final int size;
+
+    public RouteTrie() {
+        this(new Node<>(null, null, null, null, null), 0, 0);
+    }
+
+    RouteTrie(Node<T> root, int maxVariables, int size) {
+        this.root = root;
+        this.maxVariables = maxVariables;
+        this.size = size;
+    }
+
+    // 该路径上已注册的 handler，变量名不同但结构相同的路径（如 /user/{id} 与 /user/{name}）视为同一路径
+    public T get(String path) throws ServletException{
+        Node<T> node = this.root;
+        for(PathUtils.Segment segment : PathUtils.parse(path)) {
+            node = node.find(segment);
+            if(node == null)
+                return null;
+        }
+        return node.handler;
+    }
+
+    // 返回添加（或替换）该路径 handler 后的新路由树
+    public RouteTrie<T> with(String path, T handler) throws ServletException{
+        List<PathUtils.Segment> segments = PathUtils.parse(path);
+        int variables = 0;
+        for(PathUtils.Segment segment : segments) {
+            if(!segment.isStatic())
+                variables++;
+        }
+        int size = get(path) == null ? this.size + 1 : this.size;
+        return new RouteTrie<>(with(this.root, segments, 0, handler), Math.max(this.maxVariables, variables), size);
+    }
+
+    // 返回移除该路径后的新路由树，路径未注册时返回自身
+    public RouteTrie<T> without(String path) throws ServletException{
+        if(get(path) == null)
+            return this;
+        Node<T> root = without(this.root, PathUtils.parse(path), 0);
+        return new RouteTrie<>(root == null ? new RouteTrie<T>().root : root, this.maxVariables, this.size - 1);
+    }
+
+    Node<T> with(Node<T> node, List<PathUtils.Segment> segments, int i, T handler) {
+        if(i == segments.size())
+            return node.withHandler(handler);
+        PathUtils.Segment segment = segments.get(i);
+        Node<T> child = node.find(segment);
+        Node<T> updated = with(child == null ? new Node<>(segment, null, null, null, null) : child, segments, i + 1, handler);
+        return node.withChild(segment, child, updated);
+    }
+
+    // 移除后节点既无 handler 也无子节点时返回 null，由父节点删除
+    Node<T> without(Node<T> node, List<PathUtils.Segment> segments, int i) {
+        Node<T> updated;
+        if(i == segments.size()) {
+            updated = node.withHandler(null);
+        } else {
+            PathUtils.Segment segment = segments.get(i);
+            Node<T> child = node.find(segment);
+            updated = node.withChild(segment, child, without(child, segments, i + 1));
+        }
+        return updated.isEmpty() ? null : updated;
+    }
+
+    // 匹配 URL，变量值按其在路径中出现的顺序存放；未匹配返回 null
+    public Match<T> match(String url) {
+        if(url.isEmpty() || url.charAt(0) != '/')
+            return null;
+        String[] values = this.maxVariables == 0 ? NO_VARIABLES : new String[this.maxVariables];
+        Node<T> node = match(this.root, url, 1, values, 0);
+        return node == null ? null : new Match<>(node.handler, values);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    // 所有已注册的 handler，按节点深度优先的顺序
+    public List<T> handlers() {
+        List<T> handlers = new ArrayList<>(this.size);
+        collect(this.root, handlers);
+        return handlers;
+    }
+
+    void collect(Node<T> node, List<T> handlers) {
+        if(node.handler != null)
+            handlers.add(node.handler);
+        if(node.statics != null)
+            node.statics.values().forEach(child -> collect(child, handlers));
+        if(node.patterns != null)
+            node.patterns.forEach(child -> collect(child, handlers));
+        if(node.wildcard != null)
+            collect(node.wildcard, handlers);
+    }
+
+    Node<T> match(Node<T> node, String url, int start, String[] values, int n) {
+        int end = url.indexOf('/', start);
+        boolean last = end < 0;
+        if(last)
+            end = url.length();
+        if(node.statics != null) {
+            Node<T> child = node.statics.get(url.substring(start, end));
+            if(child != null) {
+                Node<T> found = next(child, url, end, last, values, n);
+                if(found != null)
+                    return found;
+            }
+        }
+        if(node.patterns != null) {
+            int length = end - start;
+            for(Node<T> child : node.patterns) {
+                String prefix = child.segment.literal();
+                String suffix = child.segment.suffix();
+                if(length >= prefix.length() + suffix.length() && url.startsWith(prefix, start)
+                        && url.startsWith(suffix, end - suffix.length())) {
+                    values[n] = url.substring(start + prefix.length(), end - suffix.length());
+                    Node<T> found = next(child, url, end, last, values, n + 1);
+                    if(found != null)
+                        return found;
+                }
+            }
+        }
+        if(node.wildcard != null) {
+            values[n] = url.substring(start, end);
+            return next(node.wildcard, url, end, last, values, n + 1);
+        }
+        return null;
+    }
+
+    Node<T> next(Node<T> child, String url, int end, boolean last, String[] values, int n) {
+        if(last)
+            return child.handler != null ? child : null;
+        return match(child, url, end + 1, values, n);
+    }
+
+    /**
+     * 不可变节点，修改时复制节点本身，子节点的 Map / List 也复制后再修改
+     */
+    static class Node<T> {
+        final PathUtils.Segment segment;
+
+        final Map<String, Node<T>> statics;
+        // prefix{var}suffix，字面量越长越优先
+        final List<Node<T>> patterns;
+        final Node<T> wildcard;
+
+        final T handler;
+
+        Node(PathUtils.Segment segment, Map<String, Node<T>> statics, List<Node<T>> patterns, Node<T> wildcard, T handler) {
+            this.segment = segment;
+            this.statics = statics;
+            this.patterns = patterns;
+            this.wildcard = wildcard;
+            this.handler = handler;
+        }
+
+        Node<T> find(PathUtils.Segment s) {
+            if(s.isStatic())
+                return this.statics == null ? null : this.statics.get(s.literal());
+            if(s.isWildcard())
+                return this.wildcard;
+            if(this.patterns != null) {
+                for(Node<T> p : this.patterns) {
+                    if(p.segment.literal().equals(s.literal()) && p.segment.suffix().equals(s.suffix()))
+                        return p;
+                }
+            }
+            return null;
+        }
+
+        Node<T> withHandler(T handler) {
+            return new Node<>(this.segment, this.statics, this.patterns, this.wildcard, handler);
+        }
+
+        // 以 updated 替换子节点 old（old 为 null 时添加，updated 为 null 时删除）
+        Node<T> withChild(PathUtils.Segment s, Node<T> old, Node<T> updated) {
+            if(s.isStatic()) {
+                Map<String, Node<T>> statics = this.statics == null ? new HashMap<>() : new HashMap<>(this.statics);
+                if(updated == null)
+                    statics.remove(s.literal());
+                else
+                    statics.put(s.literal(), updated);
+                return new Node<>(this.segment, statics.isEmpty() ? null : statics, this.patterns, this.wildcard, this.handler);
+            }
+            if(s.isWildcard())
+                return new Node<>(this.segment, this.statics, this.patterns, updated, this.handler);
+            List<Node<T>> patterns = this.patterns == null ? new ArrayList<>() : new ArrayList<>(this.patterns);
+            if(old == null) {
+                patterns.add(updated);
+                patterns.sort((a, b) -> literalLength(b.segment) - literalLength(a.segment));
+            } else if(updated == null) {
+                patterns.remove(old);
+            } else {
+                // 原位置替换，保持同等长度模式之间的顺序
+                patterns.set(patterns.indexOf(old), updated);
+            }
+            return new Node<>(this.segment, this.statics, patterns.isEmpty() ? null : patterns, this.wildcard, this.handler);
+        }
+
+        boolean isEmpty() {
+            return this.handler == null && this.statics == null && this.patterns == null && this.wildcard == null;
+        }
+
+        static int literalLength(PathUtils.Segment s) {
+            return s.literal().length() + s.suffix().length();
+        }
+    }
+
+    public static record Match<T>(T handler, String[] variables) {}
+}
@@ -29,6 +29,8 @@ public class WebUtils {
         var dispatcherReg = servletContext.addServlet("dispatcherServlet", dispatcherServlet);
         dispatcherReg.addMapping("/");
         dispatcherReg.setLoadOnStartup(0);
+        // 支持返回 CompletionStage 的异步处理
+        dispatcherReg.setAsyncSupported(true);
     }
 
     public static void registerFilters(ServletContext servletContext) {
@@ -43,6 +45,7 @@ public class WebUtils {
             logger.info("register filter `{}` {} for URLs: {}", filterRegBean.getName(), filter.getClass().getName(),
                     String.join(", ", urlPatterns));
             var filterReg = servletContext.addFilter(filterRegBean.getName(), filter);
+            filterReg.setAsyncSupported(true);
             filterReg.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true,
                     urlPatterns.toArray(String[]::new));
         }
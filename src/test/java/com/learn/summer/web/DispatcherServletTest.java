@@ -7,6 +7,9 @@ import com.learn.summer.web.controller.ControllerConfiguration;
 import com.learn.summer.web.filter.ApiFilterRegistrationBean;
 import com.learn.summer.web.utils.JsonUtils;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -14,11 +17,25 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.mock.web.MockServletContext;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -26,6 +43,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 public class DispatcherServletTest {
 
     DispatcherServlet dispatcherServlet;
+    AnnotationConfigApplicationContext applicationContext;
     MockServletContext ctx;
 
     @Test
@@ -105,6 +123,616 @@ public class DispatcherServletTest {
         assertTrue(resp.getContentAsString().contains("\"content\":\"QUFBQUFBQUE=\""));
     }
 
+    @Test
+    void getApiConvert() throws ServletException, IOException {
+        var req = createMockRequest("GET", "/api/convert/8a2e9c4e-5e7b-4bd0-9d3c-2f1c7c0a7b11", null,
+                Map.of("date", "2024-06-01"));
+        req.addParameter("ids", "1", "2", "3");
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        var map = JsonUtils.readJsonAsMap(resp.getContentAsString());
+        assertEquals("8a2e9c4e-5e7b-4bd0-9d3c-2f1c7c0a7b11", map.get("id"));
+        assertEquals("2024-06-01", map.get("date"));
+        assertEquals(List.of(1, 2, 3), map.get("ids"));
+        assertEquals("DAYS", map.get("unit"));
+    }
+
+    @Test
+    void getApiConvertInvalid() throws ServletException, IOException {
+        var req = createMockRequest("GET", "/api/convert/not-a-uuid", null,
+                Map.of("date", "2024-06-01", "ids", "1,2"));
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(400, resp.getStatus());
+    }
+
+    @Test
+    void getApiAsync() throws ServletException, IOException {
+        var req = createMockRequest("GET", "/api/async/alice", null, null);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("application/json", resp.getContentType());
+        assertEquals("{\"name\":\"alice\"}", resp.getContentAsString());
+        assertFalse(req.isAsyncStarted());
+    }
+
+    @Test
+    void getApiAsyncFailed() throws ServletException, IOException {
+        var req = createMockRequest("GET", "/api/async/error", null, null);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(400, resp.getStatus());
+    }
+
+    @Test
+    void getApiVirtualThread() throws Exception {
+        var req = createMockRequest("GET", "/api/thread", null, null);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        awaitAsync(req);
+        assertEquals(200, resp.getStatus());
+        assertEquals("{\"virtual\":true}", resp.getContentAsString());
+        // 同一位置的 pinned 只输出一次 WARN
+        var executor = this.dispatcherServlet.virtualThreadExecutor;
+        assertTrue(executor.firstPinnedAt("com.example.Foo.bar:12"));
+        assertFalse(executor.firstPinnedAt("com.example.Foo.bar:12"));
+        assertTrue(executor.firstPinnedAt("com.example.Foo.baz:20"));
+        this.dispatcherServlet.destroy();
+    }
+
+    @Test
+    void getApiStream() throws ServletException, IOException {
+        var req = createMockRequest("GET", "/api/stream", null, Map.of("count", "3"));
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("application/json", resp.getContentType());
+        assertEquals("[{\"id\":0},{\"id\":1},{\"id\":2}]", resp.getContentAsString());
+    }
+
+    @Test
+    void getApiIterable() throws ServletException, IOException {
+        assertTrue(this.dispatcherServlet.routes.getDispatchers().match("/api/iterable").handler().isStream);
+        // Collection 整体序列化
+        assertFalse(this.dispatcherServlet.routes.getDispatchers().match("/api/cached/1").handler().isStream);
+        var req = createMockRequest("GET", "/api/iterable", null, Map.of("count", "3"));
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("[{\"id\":0},{\"id\":1},{\"id\":2}]", resp.getContentAsString());
+    }
+
+    @Test
+    void getApiStreamAsNdjson() throws ServletException, IOException {
+        var req = createMockRequest("GET", "/api/stream", null, Map.of("count", "2"));
+        req.addHeader("Accept", "application/x-ndjson");
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("application/x-ndjson", resp.getContentType());
+        assertEquals("{\"id\":0}\n{\"id\":1}\n", resp.getContentAsString());
+    }
+
+    @Test
+    void getApiStreamCompressed() throws ServletException, IOException {
+        var req = createMockRequest("GET", "/api/stream", null, Map.of("count", "200"));
+        req.addHeader("Accept-Encoding", "gzip, deflate");
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("gzip", resp.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", resp.getHeader("Vary"));
+        String json = gunzip(resp.getContentAsByteArray());
+        assertTrue(json.startsWith("[{\"id\":0},"));
+        assertTrue(json.endsWith("{\"id\":199}]"));
+    }
+
+    @Test
+    void getApiHelloNotCompressed() throws ServletException, IOException {
+        // 小于阈值时原样输出
+        var req = createMockRequest("GET", "/api/hello/alice", null, null);
+        req.addHeader("Accept-Encoding", "gzip");
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertNull(resp.getHeader("Content-Encoding"));
+        assertEquals(resp.getContentAsByteArray().length, resp.getContentLength());
+    }
+
+    @Test
+    void getApiEvents() throws ServletException, IOException {
+        var req = createMockRequest("GET", "/api/events", null, null);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertTrue(resp.getContentType().startsWith("text/event-stream"));
+        assertEquals("event: greeting\ndata: {\"name\":\"alice\"}\n\n", resp.getContentAsString());
+        assertFalse(req.isAsyncStarted());
+    }
+
+    @Test
+    void sseFrame() {
+        assertEquals("id: 7\nevent: tick\ndata: a\ndata: b\ndata: c\ndata: \ndata: d\n\n",
+                new String(SseEmitter.frame("tick", "7", "a\r\nb\rc\n\nd"), StandardCharsets.UTF_8));
+        assertEquals("data: a\ndata: \n\n", new String(SseEmitter.frame(null, null, "a\r"), StandardCharsets.UTF_8));
+        // 事件名和 id 中的换行会注入其它字段
+        assertThrows(IllegalArgumentException.class, () -> SseEmitter.frame("tick\ndata: x", null, "a"));
+        assertThrows(IllegalArgumentException.class, () -> SseEmitter.frame("tick", "1\rretry: 0", "a"));
+    }
+
+    @Test
+    void getApiEventsBroadcast() throws Exception {
+        var broadcaster = this.applicationContext.getBean(ApiController.class).broadcaster;
+        var req1 = createMockRequest("GET", "/api/events", null, Map.of("subscribe", "true"));
+        var resp1 = createMockResponse();
+        this.dispatcherServlet.service(req1, resp1);
+        var req2 = createMockRequest("GET", "/api/events", null, Map.of("subscribe", "true"));
+        var resp2 = createMockResponse();
+        this.dispatcherServlet.service(req2, resp2);
+        assertTrue(req1.isAsyncStarted());
+        assertEquals(2, broadcaster.broadcast("tick", 1));
+        // 事件由各连接的写线程写出
+        awaitContent(resp1, "event: tick\ndata: 1\n\n");
+        awaitContent(resp2, "event: tick\ndata: 1\n\n");
+        assertEquals("event: tick\ndata: 1\n\n", resp1.getContentAsString());
+        assertEquals("event: tick\ndata: 1\n\n", resp2.getContentAsString());
+        req1.getAsyncContext().complete();
+        assertEquals(1, broadcaster.size());
+        req2.getAsyncContext().complete();
+        assertEquals(0, broadcaster.size());
+    }
+
+    @Test
+    void getApiEventsSlowClient() throws Exception {
+        var broadcaster = this.applicationContext.getBean(ApiController.class).broadcaster;
+        // 写出永远不返回的客户端
+        var blocked = new CountDownLatch(1);
+        var slow = new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return new ServletOutputStream() {
+                    @Override
+                    public boolean isReady() {
+                        return false;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                    }
+
+                    @Override
+                    public void write(int b) throws IOException {
+                        try {
+                            blocked.await();
+                        } catch (InterruptedException e) {
+                            throw new InterruptedIOException();
+                        }
+                    }
+                };
+            }
+        };
+        try {
+            var req1 = createMockRequest("GET", "/api/events", null, Map.of("subscribe", "true"));
+            this.dispatcherServlet.service(req1, slow);
+            var req2 = createMockRequest("GET", "/api/events", null, Map.of("subscribe", "true"));
+            var resp2 = createMockResponse();
+            this.dispatcherServlet.service(req2, resp2);
+            assertEquals(2, broadcaster.size());
+            int count = SseEmitter.DEFAULT_MAX_QUEUED + 10;
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                for(int i = 0; i < count; i++) {
+                    broadcaster.broadcast("tick", i);
+                    this.dispatcherServlet.sendSseHeartbeats();
+                    // 等正常客户端写完再发下一个，只有慢速客户端的队列会积压
+                    String expected = "data: " + i + "\n\n";
+                    while(!resp2.getContentAsString().contains(expected))
+                        Thread.yield();
+                }
+            });
+            // 队列溢出后慢速客户端被关闭，其它客户端收到全部事件
+            assertEquals(1, broadcaster.size());
+            assertFalse(req1.isAsyncStarted());
+            awaitContent(resp2, "event: tick\ndata: " + (count - 1) + "\n\n");
+            assertEquals(count, resp2.getContentAsString().split("event: tick").length - 1);
+            req2.getAsyncContext().complete();
+        } finally {
+            blocked.countDown();
+        }
+    }
+
+    @Test
+    void getStaticResource() throws ServletException, IOException {
+        var req = createMockRequest("GET", "/static/app.css", null, null);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("text/css", resp.getContentType());
+        assertEquals("no-cache", resp.getHeader("Cache-Control"));
+        assertNotNull(resp.getHeader("Last-Modified"));
+        assertEquals(resp.getContentAsByteArray().length, resp.getContentLength());
+        assertTrue(resp.getContentAsString().startsWith("body {"));
+        String etag = resp.getHeader("ETag");
+        assertNotNull(etag);
+
+        var req2 = createMockRequest("GET", "/static/app.css", null, null);
+        req2.addHeader("If-None-Match", "\"other\", " + etag);
+        var resp2 = createMockResponse();
+        this.dispatcherServlet.service(req2, resp2);
+        assertEquals(304, resp2.getStatus());
+        assertEquals(etag, resp2.getHeader("ETag"));
+        assertEquals(0, resp2.getContentAsByteArray().length);
+
+        var req3 = createMockRequest("GET", "/static/app.css", null, null);
+        req3.addHeader("If-Modified-Since", resp.getHeader("Last-Modified"));
+        var resp3 = createMockResponse();
+        this.dispatcherServlet.service(req3, resp3);
+        assertEquals(304, resp3.getStatus());
+    }
+
+    @Test
+    void getStaticResourceNotFound() throws ServletException, IOException {
+        for(int i = 0; i < 2; i++) {
+            var req = createMockRequest("GET", "/static/missing.js", null, null);
+            var resp = createMockResponse();
+            this.dispatcherServlet.service(req, resp);
+            assertEquals(404, resp.getStatus());
+        }
+    }
+
+    @Test
+    void getStaticResourceRange() throws ServletException, IOException {
+        // 不缓存时按文件输出
+        this.dispatcherServlet = createDispatcherServlet(Map.of("summer.web.static-cache.max-entry-size", "0"));
+        var req = createMockRequest("GET", "/static/app.css", null, null);
+        req.addHeader("Range", "bytes=0-3");
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(206, resp.getStatus());
+        assertEquals("bytes", resp.getHeader("Accept-Ranges"));
+        assertTrue(resp.getHeader("Content-Range").startsWith("bytes 0-3/"));
+        assertEquals(4, resp.getContentLength());
+        assertEquals("body", resp.getContentAsString());
+
+        var req2 = createMockRequest("GET", "/static/app.css", null, null);
+        req2.addHeader("Range", "bytes=0-3,-2");
+        var resp2 = createMockResponse();
+        this.dispatcherServlet.service(req2, resp2);
+        assertEquals(206, resp2.getStatus());
+        assertTrue(resp2.getContentType().startsWith("multipart/byteranges; boundary="));
+        assertEquals(resp2.getContentAsByteArray().length, resp2.getContentLength());
+        assertTrue(resp2.getContentAsString().contains("Content-Range: bytes 0-3/"));
+        assertTrue(resp2.getContentAsString().contains("\r\n\r\nbody\r\n"));
+
+        var req3 = createMockRequest("GET", "/static/app.css", null, null);
+        req3.addHeader("Range", "bytes=10000-");
+        var resp3 = createMockResponse();
+        this.dispatcherServlet.service(req3, resp3);
+        assertEquals(416, resp3.getStatus());
+        assertTrue(resp3.getHeader("Content-Range").startsWith("bytes */"));
+
+        // If-Range 不匹配时返回完整内容
+        var req4 = createMockRequest("GET", "/static/app.css", null, null);
+        req4.addHeader("Range", "bytes=0-3");
+        req4.addHeader("If-Range", "\"outdated\"");
+        var resp4 = createMockResponse();
+        this.dispatcherServlet.service(req4, resp4);
+        assertEquals(200, resp4.getStatus());
+        assertTrue(resp4.getContentAsString().startsWith("body {"));
+    }
+
+    @Test
+    void getStaticResourcePrecompressed() throws ServletException, IOException {
+        var req = createMockRequest("GET", "/static/app.js", null, null);
+        req.addHeader("Accept-Encoding", "gzip, deflate, br");
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("gzip", resp.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", resp.getHeader("Vary"));
+        assertTrue(resp.getContentType().contains("javascript"));
+        assertTrue(gunzip(resp.getContentAsByteArray()).startsWith("function signin(form)"));
+
+        var req2 = createMockRequest("GET", "/static/app.js", null, null);
+        req2.addHeader("Accept-Encoding", "gzip;q=0, *");
+        var resp2 = createMockResponse();
+        this.dispatcherServlet.service(req2, resp2);
+        assertNull(resp2.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", resp2.getHeader("Vary"));
+        assertNotEquals(resp.getHeader("ETag"), resp2.getHeader("ETag"));
+        assertTrue(resp2.getContentAsString().startsWith("function signin(form)"));
+    }
+
+    @Test
+    void getStaticResourcePrecompressedAfterDirect() throws ServletException, IOException {
+        // 先直接请求 .gz 文件，不影响按 Accept-Encoding 选择的压缩版本
+        var req = createMockRequest("GET", "/static/app.js.gz", null, null);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertNull(resp.getHeader("Content-Encoding"));
+
+        var req2 = createMockRequest("GET", "/static/app.js", null, null);
+        req2.addHeader("Accept-Encoding", "gzip");
+        var resp2 = createMockResponse();
+        this.dispatcherServlet.service(req2, resp2);
+        assertEquals(200, resp2.getStatus());
+        assertEquals("gzip", resp2.getHeader("Content-Encoding"));
+        assertTrue(resp2.getContentType().contains("javascript"));
+        assertTrue(gunzip(resp2.getContentAsByteArray()).startsWith("function signin(form)"));
+
+        // 反过来，压缩版本也不会作为 .gz 文件返回
+        var resp3 = createMockResponse();
+        this.dispatcherServlet.service(createMockRequest("GET", "/static/app.js.gz", null, null), resp3);
+        assertNull(resp3.getHeader("Content-Encoding"));
+        assertEquals(resp.getContentType(), resp3.getContentType());
+    }
+
+    @Test
+    void getStaticResourceCompressed() throws ServletException, IOException {
+        // 没有 .gz 文件时在内存中压缩一次
+        this.dispatcherServlet = createDispatcherServlet(Map.of("summer.web.static-cache.compress-min-size", "0"));
+        var req = createMockRequest("GET", "/static/app.css", null, null);
+        req.addHeader("Accept-Encoding", "gzip");
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("gzip", resp.getHeader("Content-Encoding"));
+        assertEquals(resp.getContentAsByteArray().length, resp.getContentLength());
+        assertTrue(gunzip(resp.getContentAsByteArray()).startsWith("body {"));
+    }
+
+    @Test
+    void getApiFiles() throws ServletException, IOException {
+        var req = createMockRequest("GET", "/api/files/app.css", null, null);
+        req.addHeader("Range", "bytes=5-");
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(206, resp.getStatus());
+        assertEquals("text/css", resp.getContentType());
+        assertNotNull(resp.getHeader("ETag"));
+        assertTrue(resp.getContentAsString().startsWith("{\n"));
+
+        var req2 = createMockRequest("GET", "/api/files/missing.css", null, null);
+        var resp2 = createMockResponse();
+        this.dispatcherServlet.service(req2, resp2);
+        assertEquals(404, resp2.getStatus());
+    }
+
+    @Test
+    void getApiCached() throws ServletException, IOException {
+        var resp1 = getCached("/api/cached/1", Map.of("tab", "info"), null);
+        assertEquals("[1,\"info\",1]", resp1.getContentAsString());
+        assertEquals(resp1.getContentAsByteArray().length, resp1.getContentLength());
+        var resp2 = getCached("/api/cached/1", Map.of("tab", "info"), null);
+        assertEquals("[1,\"info\",1]", resp2.getContentAsString());
+        assertEquals(resp1.getHeader("ETag"), resp2.getHeader("ETag"));
+        // 路径变量、参数和指定的请求头都参与缓存键
+        assertEquals("[2,\"info\",2]", getCached("/api/cached/2", Map.of("tab", "info"), null).getContentAsString());
+        assertEquals("[1,\"more\",3]", getCached("/api/cached/1", Map.of("tab", "more"), null).getContentAsString());
+        assertEquals("[1,\"info\",4]", getCached("/api/cached/1", Map.of("tab", "info"), "en").getContentAsString());
+
+        var req = createMockRequest("GET", "/api/cached/1", null, Map.of("tab", "info"));
+        req.addHeader("If-None-Match", resp1.getHeader("ETag"));
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(304, resp.getStatus());
+    }
+
+    @Test
+    void getApiCachedStale() throws Exception {
+        var counter = this.applicationContext.getBean(ApiController.class).staleCount;
+        assertEquals("[1]", getCached("/api/cached-stale", null, null).getContentAsString());
+        Thread.sleep(5);
+        // 过期后先返回旧响应，同时在后台刷新
+        assertEquals("[1]", getCached("/api/cached-stale", null, null).getContentAsString());
+        for(int i = 0; i < 100 && counter.get() < 2; i++)
+            Thread.sleep(10);
+        assertEquals(2, counter.get());
+        Thread.sleep(5);
+        String body = getCached("/api/cached-stale", null, null).getContentAsString();
+        assertTrue(body.equals("[2]") || body.equals("[3]"));
+    }
+
+    @Test
+    void getApiCoalesced() throws Exception {
+        var controller = this.applicationContext.getBean(ApiController.class);
+        try(var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var leader = CompletableFuture.supplyAsync(() -> getAsync("/api/coalesced/7"), executor);
+            for(int i = 0; i < 100 && controller.coalescedCount.get() == 0; i++)
+                Thread.sleep(10);
+            List<CompletableFuture<MockHttpServletResponse>> followers = new ArrayList<>();
+            for(int i = 0; i < 4; i++)
+                followers.add(CompletableFuture.supplyAsync(() -> getAsync("/api/coalesced/7"), executor));
+            Thread.sleep(100);
+            controller.coalescedRelease.countDown();
+            assertEquals("[7,1]", leader.get().getContentAsString());
+            for(var follower : followers)
+                assertEquals("[7,1]", follower.get().getContentAsString());
+        }
+        assertEquals(1, controller.coalescedCount.get());
+        // 调用结束后不再共享结果
+        assertEquals("[7,2]", getAsync("/api/coalesced/7").getContentAsString());
+    }
+
+    @Test
+    void getApiCoalescedTimeout() throws Exception {
+        var controller = this.applicationContext.getBean(ApiController.class);
+        try(var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var leader = CompletableFuture.supplyAsync(() -> getAsync("/api/coalesced-timeout"), executor);
+            for(int i = 0; i < 100 && controller.coalescedCount.get() == 0; i++)
+                Thread.sleep(10);
+            // 等待超时后自己调用
+            assertEquals("[2]", getAsync("/api/coalesced-timeout").getContentAsString());
+            controller.coalescedRelease.countDown();
+            assertEquals("[1]", leader.get().getContentAsString());
+        }
+    }
+
+    @Test
+    void getMetrics() throws ServletException, IOException {
+        this.dispatcherServlet = createDispatcherServlet(Map.of("summer.web.metrics.path", "/metrics"));
+        this.dispatcherServlet.service(createMockRequest("GET", "/api/hello/alice", null, null), createMockResponse());
+        this.dispatcherServlet.service(createMockRequest("GET", "/api/hello/bob", null, null), createMockResponse());
+        this.dispatcherServlet.service(createMockRequest("GET", "/api/async/error", null, null), createMockResponse());
+        this.dispatcherServlet.service(createMockRequest("GET", "/api/not-found", null, null), createMockResponse());
+        this.dispatcherServlet.service(createMockRequest("GET", "/static/app.css", null, null), createMockResponse());
+        var req = createMockRequest("GET", "/metrics", null, null);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertTrue(resp.getContentType().startsWith("text/plain"));
+        String text = resp.getContentAsString();
+        assertTrue(text.contains("summer_web_requests_total{method=\"GET\",route=\"/api/hello/{name}\",status=\"200\"} 2\n"));
+        assertTrue(text.contains("summer_web_requests_total{method=\"GET\",route=\"/api/async/{name}\",status=\"400\"} 1\n"));
+        assertTrue(text.contains("summer_web_requests_total{method=\"*\",route=\"unmatched\",status=\"404\"} 1\n"));
+        assertTrue(text.contains("summer_web_requests_total{method=\"GET\",route=\"static\",status=\"200\"} 1\n"));
+        assertTrue(text.contains("summer_web_request_duration_seconds_count{method=\"GET\",route=\"/api/hello/{name}\"} 2\n"));
+        assertTrue(text.contains("summer_web_request_duration_seconds_bucket{method=\"GET\",route=\"/api/hello/{name}\",le=\"+Inf\"} 2\n"));
+        assertTrue(text.contains("summer_web_virtual_thread_pinned_total 0\n"));
+
+        req = createMockRequest("GET", "/metrics", null, Map.of("format", "json"));
+        resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals("application/json", resp.getContentType());
+        var map = JsonUtils.readJsonAsMap(resp.getContentAsString());
+        var routes = (List<Map<String, Object>>) map.get("routes");
+        var hello = routes.stream().filter(r -> "/api/hello/{name}".equals(r.get("route"))).findFirst().orElseThrow();
+        assertEquals(2, hello.get("count"));
+        assertEquals(0, hello.get("errors"));
+        assertEquals(Map.of("200", 2), hello.get("statuses"));
+        assertTrue(((Map<?, ?>) hello.get("latency")).containsKey("p99"));
+        var async = routes.stream().filter(r -> "/api/async/{name}".equals(r.get("route"))).findFirst().orElseThrow();
+        assertEquals(1, async.get("errors"));
+        // 测试 Controller 中有 @RunOnVirtualThread 方法，同时导出 pinned 次数
+        assertEquals(0, map.get("virtualThreadPinned"));
+    }
+
+    @Test
+    void getMetricsDisabled() throws ServletException, IOException {
+        // 未配置路径时不提供指标
+        var req = createMockRequest("GET", "/metrics", null, null);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(404, resp.getStatus());
+    }
+
+    @Test
+    void getServerTiming() throws ServletException, IOException {
+        this.dispatcherServlet = createDispatcherServlet(Map.of("summer.web.timing.enabled", "true",
+                "summer.web.timing.token", "secret", "summer.web.metrics.path", "/metrics"));
+        var req = createMockRequest("GET", "/api/hello/alice", null, null);
+        req.addHeader("X-Server-Timing-Token", "secret");
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        String timing = resp.getHeader("Server-Timing");
+        assertNotNull(timing);
+        assertTrue(timing.matches("route;dur=[0-9.]+, bind;dur=[0-9.]+, invoke;dur=[0-9.]+, serialize;dur=[0-9.]+, total;dur=[0-9.]+"), timing);
+
+        req = createMockRequest("GET", "/hello/alice", null, null);
+        req.addHeader("X-Server-Timing-Token", "secret");
+        resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertTrue(resp.getHeader("Server-Timing").contains("render;dur="));
+
+        // @ResponseCache：未命中时包含 serialize，命中时只有路由和总耗时
+        req = createMockRequest("GET", "/api/cached/1", null, null);
+        req.addHeader("X-Server-Timing-Token", "secret");
+        resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        timing = resp.getHeader("Server-Timing");
+        assertTrue(timing.matches("route;dur=[0-9.]+, bind;dur=[0-9.]+, invoke;dur=[0-9.]+, serialize;dur=[0-9.]+, total;dur=[0-9.]+"), timing);
+        req = createMockRequest("GET", "/api/cached/1", null, null);
+        req.addHeader("X-Server-Timing-Token", "secret");
+        resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        timing = resp.getHeader("Server-Timing");
+        assertTrue(timing.matches("route;dur=[0-9.]+, total;dur=[0-9.]+"), timing);
+
+        // 未携带令牌且未被抽样时不输出
+        req = createMockRequest("GET", "/api/hello/bob", null, null);
+        req.addHeader("X-Server-Timing-Token", "wrong");
+        resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertNull(resp.getHeader("Server-Timing"));
+
+        resp = createMockResponse();
+        this.dispatcherServlet.service(createMockRequest("GET", "/metrics", null, null), resp);
+        String text = resp.getContentAsString();
+        assertTrue(text.contains("summer_web_request_phase_seconds_count{method=\"GET\",route=\"/api/hello/{name}\",phase=\"invoke\"} 2\n"));
+        assertTrue(text.contains("summer_web_request_phase_seconds_count{method=\"GET\",route=\"/hello/{name}\",phase=\"render\"} 1\n"));
+    }
+
+    @Test
+    void postFlightRecording() throws Exception {
+        Path directory = Files.createTempDirectory("summer-jfr");
+        this.dispatcherServlet = createDispatcherServlet(Map.of("summer.web.jfr.path", "/admin/jfr",
+                "summer.web.jfr.directory", directory.toString()));
+        var req = createMockRequest("POST", "/admin/jfr", null, Map.of("action", "start"));
+        req.setRemoteAddr("10.0.0.1");
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(403, resp.getStatus());
+
+        resp = createMockResponse();
+        this.dispatcherServlet.service(createMockRequest("POST", "/admin/jfr", null, Map.of("action", "start")), resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals(Boolean.TRUE, JsonUtils.readJsonAsMap(resp.getContentAsString()).get("recording"));
+        resp = createMockResponse();
+        this.dispatcherServlet.service(createMockRequest("POST", "/admin/jfr", null, Map.of("action", "start")), resp);
+        assertEquals(409, resp.getStatus());
+
+        this.dispatcherServlet.service(createMockRequest("GET", "/api/hello/alice", null, null), createMockResponse());
+        this.dispatcherServlet.service(createMockRequest("GET", "/static/app.css", null, null), createMockResponse());
+
+        resp = createMockResponse();
+        this.dispatcherServlet.service(createMockRequest("POST", "/admin/jfr", null, Map.of("action", "stop")), resp);
+        assertEquals(200, resp.getStatus());
+        var status = JsonUtils.readJsonAsMap(resp.getContentAsString());
+        assertEquals(Boolean.FALSE, status.get("recording"));
+        Path file = Path.of((String) status.get("file"));
+        var events = RecordingFile.readAllEvents(file);
+        var dispatch = events.stream().filter(e -> e.getEventType().getName().equals("summer.web.Dispatch")).toList();
+        assertEquals(1, dispatch.size());
+        assertEquals("/api/hello/{name}", dispatch.get(0).getString("route"));
+        assertEquals(200, dispatch.get(0).getInt("status"));
+        assertTrue(dispatch.get(0).getString("handler").endsWith("ApiController.hello"));
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("summer.web.Invoke")));
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("summer.web.Resource")
+                && e.getString("uri").equals("/static/app.css")));
+        Files.delete(file);
+    }
+
+    @Test
+    void postFlightRecordingAfterMaxDuration() throws Exception {
+        Path directory = Files.createTempDirectory("summer-jfr");
+        this.dispatcherServlet = createDispatcherServlet(Map.of("summer.web.jfr.path", "/admin/jfr",
+                "summer.web.jfr.directory", directory.toString(), "summer.web.jfr.max-duration", "500"));
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(createMockRequest("POST", "/admin/jfr", null, Map.of("action", "start")), resp);
+        assertEquals(200, resp.getStatus());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while(this.dispatcherServlet.flightRecording.isRecording() && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+        assertFalse(this.dispatcherServlet.flightRecording.isRecording());
+
+        // 到时自动结束的记录仍可停止，返回写出的文件
+        resp = createMockResponse();
+        this.dispatcherServlet.service(createMockRequest("POST", "/admin/jfr", null, Map.of("action", "stop")), resp);
+        assertEquals(200, resp.getStatus());
+        Path file = Path.of((String) JsonUtils.readJsonAsMap(resp.getContentAsString()).get("file"));
+        assertFalse(RecordingFile.readAllEvents(file).isEmpty());
+        assertNull(this.dispatcherServlet.flightRecording.recording);
+
+        resp = createMockResponse();
+        this.dispatcherServlet.service(createMockRequest("POST", "/admin/jfr", null, Map.of("action", "stop")), resp);
+        assertEquals(409, resp.getStatus());
+        Files.delete(file);
+    }
+
     @Test
     void getDownloadPart() throws ServletException, IOException {
         var req = createMockRequest("GET", "/download-part", null, null);
@@ -147,6 +775,18 @@ public class DispatcherServletTest {
         assertTrue(resp.getContentAsString().contains("<a href=\"/product/123\">Summer Software</a>"));
     }
 
+    @Test
+    void getProductCompressed() throws ServletException, IOException {
+        this.dispatcherServlet = createDispatcherServlet(Map.of("summer.web.compression.min-size", "16"));
+        var req = createMockRequest("GET", "/product/123", null, Map.of("name", "Bob"));
+        req.addHeader("Accept-Encoding", "gzip");
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("gzip", resp.getHeader("Content-Encoding"));
+        assertTrue(gunzip(resp.getContentAsByteArray()).contains("<h1>Hello, Bob</h1>"));
+    }
+
     @Test
     void postSignin() throws ServletException, IOException {
         var req = createMockRequest("POST", "/signin", null, Map.of("name", "Bob", "password", "hello123"));
@@ -178,6 +818,71 @@ public class DispatcherServletTest {
         assertEquals("[\"Bob\",true,12345]", resp.getContentAsString());
     }
 
+    @Test
+    void postApiBatchRegister() throws ServletException, IOException {
+        var req = createMockRequest("POST", "/api/batch-register", List.of(signin("Bob"), signin("Alice")), null);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("[\"Bob\",\"Alice\"]", resp.getContentAsString());
+    }
+
+    @Test
+    void postApiBatchRegisterBuffered() throws ServletException, IOException {
+        var req = createMockRequest("POST", "/api/batch-register", List.of(signin("Bob"), signin("Alice")), null);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals(String.valueOf(resp.getContentAsByteArray().length), resp.getHeader("Content-Length"));
+    }
+
+    @Test
+    void postApiBatchRegisterStreamed() throws ServletException, IOException {
+        // 超过缓冲大小时流式输出，不设置 Content-Length
+        this.dispatcherServlet = createDispatcherServlet(Map.of("summer.web.response-buffer.size", "8"));
+        var req = createMockRequest("POST", "/api/batch-register", List.of(signin("Bob"), signin("Alice")), null);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertNull(resp.getHeader("Content-Length"));
+        assertEquals("[\"Bob\",\"Alice\"]", resp.getContentAsString());
+    }
+
+    @Test
+    void postApiBatchRegisterGzip() throws ServletException, IOException {
+        var req = createMockRequest("POST", "/api/batch-register", null, null);
+        req.setContentType("application/json");
+        req.addHeader("Content-Encoding", "gzip");
+        req.setContent(gzip(JsonUtils.writeJson(List.of(signin("Bob"), signin("Alice")))));
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("[\"Bob\",\"Alice\"]", resp.getContentAsString());
+    }
+
+    @Test
+    void postApiBatchRegisterGzipTooLarge() throws ServletException, IOException {
+        // 限制解压后的大小
+        this.dispatcherServlet = createDispatcherServlet(Map.of("summer.web.max-body-size", "1024"));
+        var req = createMockRequest("POST", "/api/batch-register", null, null);
+        req.setContentType("application/json");
+        req.addHeader("Content-Encoding", "gzip");
+        req.setContent(gzip(JsonUtils.writeJson(Collections.nCopies(200, signin("Bob")))));
+        assertTrue(req.getContentLength() < 1024);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(413, resp.getStatus());
+    }
+
+    @Test
+    void postApiRegisterTooLarge() throws ServletException, IOException {
+        this.dispatcherServlet = createDispatcherServlet(Map.of("summer.web.max-body-size", "16"));
+        var req = createMockRequest("POST", "/api/register", signin("Bob"), null);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(413, resp.getStatus());
+    }
+
     @Test
     void postSignout() throws ServletException, IOException {
         var req = createMockRequest("POST", "/signout", null, Map.of("name", "Bob"));
@@ -188,18 +893,157 @@ public class DispatcherServletTest {
         assertEquals(Boolean.TRUE, req.getSession().getAttribute("signout"));
     }
 
+    @Test
+    void getHelloByReflection() throws ServletException, IOException {
+        this.dispatcherServlet = createDispatcherServlet(Map.of("summer.web.handler-invoker", "reflection"));
+        var req = createMockRequest("GET", "/api/download/server.jar", null,
+                Map.of("hasChecksum", "true", "length", "8", "time", "123.4", "md5", "aee9e38cb4d40ec2794542567539b4c8"));
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertTrue(resp.getContentAsString().contains("\"length\":8"));
+    }
+
+    @Test
+    void getHelloByMethodHandle() throws Exception {
+        this.dispatcherServlet = createDispatcherServlet(Map.of("summer.web.handler-invoker", "method-handle"));
+        var hello = this.dispatcherServlet.routes.getDispatchers().match("/api/hello/alice").handler();
+        var download = this.dispatcherServlet.routes.getDispatchers().match("/api/download/server.jar").handler();
+        // 每个处理方法各自一个隐藏类，MethodHandle 存在各自的 static final 字段中
+        assertTrue(isMethodHandleInvoker(hello.invoker));
+        assertTrue(isMethodHandleInvoker(download.invoker));
+        assertNotSame(hello.invoker.getClass(), download.invoker.getClass());
+        assertNull(HandlerInvoker.MethodHandleInvoker.HANDLE);
+
+        var req = createMockRequest("GET", "/api/download/server.jar", null,
+                Map.of("hasChecksum", "true", "length", "8", "time", "123.4", "md5", "aee9e38cb4d40ec2794542567539b4c8"));
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertTrue(resp.getContentAsString().contains("\"length\":8"));
+        req = createMockRequest("GET", "/api/hello/alice", null, null);
+        resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("{\"name\":\"alice\"}", resp.getContentAsString());
+    }
+
+    static boolean isMethodHandleInvoker(HandlerInvoker invoker) {
+        Class<?> clazz = invoker.getClass();
+        return clazz.isHidden() && clazz.getName().startsWith(HandlerInvoker.MethodHandleInvoker.class.getName() + "/");
+    }
+
+    @Test
+    void getHelloByGeneratedInvoker() throws ServletException, IOException {
+        // 测试 Controller 的路由表由 RouteProcessor 在编译测试代码时生成
+        var dispatcher = this.dispatcherServlet.routes.getDispatchers().match("/api/hello/alice").handler();
+        assertFalse(isMethodHandleInvoker(dispatcher.invoker));
+        assertFalse(dispatcher.invoker instanceof HandlerInvoker.ReflectionInvoker);
+        var req = createMockRequest("GET", "/api/hello/alice", null, null);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("{\"name\":\"alice\"}", resp.getContentAsString());
+    }
+
+    @Test
+    void getConvertWithoutRouteRegistry() throws ServletException, IOException {
+        this.dispatcherServlet = createDispatcherServlet(Map.of("summer.web.route-registry.enabled", "false"));
+        var dispatcher = this.dispatcherServlet.routes.getDispatchers().match("/api/hello/alice").handler();
+        assertTrue(isMethodHandleInvoker(dispatcher.invoker));
+        var req = createMockRequest("GET", "/api/convert/8a2e9c4e-5e7b-4bd0-9d3c-2f1c7c0a7b11", null,
+                Map.of("date", "2024-06-01", "ids", "1,2"));
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        var map = JsonUtils.readJsonAsMap(resp.getContentAsString());
+        assertEquals(List.of(1, 2), map.get("ids"));
+        assertEquals("DAYS", map.get("unit"));
+    }
+
+    @Test
+    void unregisterAndRegisterController() throws ServletException, IOException {
+        var api = this.applicationContext.getBean(ApiController.class);
+        var getRoutes = this.dispatcherServlet.routes.getDispatchers();
+        int removed = this.dispatcherServlet.unregisterController(api);
+        assertTrue(removed > 0);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(createMockRequest("GET", "/api/hello/alice", null, null), resp);
+        assertEquals(404, resp.getStatus());
+        // 已取得的快照不受影响
+        assertNotNull(getRoutes.match("/api/hello/alice"));
+
+        assertEquals(removed, this.dispatcherServlet.registerController(api));
+        resp = createMockResponse();
+        this.dispatcherServlet.service(createMockRequest("GET", "/api/hello/alice", null, null), resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("{\"name\":\"alice\"}", resp.getContentAsString());
+        // 重复注册时路径均已存在
+        assertEquals(0, this.dispatcherServlet.registerController(api));
+        assertThrows(ServletException.class, () -> this.dispatcherServlet.registerController(new Object()));
+    }
+
+    @Test
+    void registerAndUnregisterHandler() throws Exception {
+        var api = this.applicationContext.getBean(ApiController.class);
+        var hello = ApiController.class.getDeclaredMethod("hello", String.class);
+        assertTrue(this.dispatcherServlet.registerHandler("GET", "/api/hi/{name}", api, hello));
+        assertFalse(this.dispatcherServlet.registerHandler("GET", "/api/hi/{other}", api, hello));
+        assertThrows(ServletException.class, () -> this.dispatcherServlet.registerHandler("PUT", "/api/hi/{name}", api, hello));
+        assertThrows(ServletException.class, () -> this.dispatcherServlet.registerHandler("GET", "/api/hey/{name}", new Object(), hello));
+
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(createMockRequest("GET", "/api/hi/bob", null, null), resp);
+        assertEquals(200, resp.getStatus());
+        assertEquals("{\"name\":\"bob\"}", resp.getContentAsString());
+
+        assertTrue(this.dispatcherServlet.unregisterHandler("GET", "/api/hi/{name}"));
+        assertFalse(this.dispatcherServlet.unregisterHandler("GET", "/api/hi/{name}"));
+        resp = createMockResponse();
+        this.dispatcherServlet.service(createMockRequest("GET", "/api/hi/bob", null, null), resp);
+        assertEquals(404, resp.getStatus());
+        // 其它路由不受影响
+        resp = createMockResponse();
+        this.dispatcherServlet.service(createMockRequest("GET", "/api/hello/alice", null, null), resp);
+        assertEquals(200, resp.getStatus());
+    }
+
+    void awaitContent(MockHttpServletResponse resp, String expected) throws Exception {
+        for(int i = 0; i < 500 && !resp.getContentAsString().contains(expected); i++)
+            Thread.sleep(10);
+        assertTrue(resp.getContentAsString().contains(expected));
+    }
+
+    void awaitAsync(MockHttpServletRequest req) throws InterruptedException {
+        for(int i = 0; i < 500 && req.isAsyncStarted(); i++)
+            Thread.sleep(10);
+        assertFalse(req.isAsyncStarted());
+    }
+
+    ApiController.SigninObj signin(String name) {
+        var signin = new ApiController.SigninObj();
+        signin.name = name;
+        signin.password = "hello123";
+        return signin;
+    }
+
     @BeforeEach
     void init() throws ServletException {
         this.ctx = createMockServletContext();
         WebMvcConfiguration.setServletContext(ctx);
-        var propertyResolver = createPropertyResolver();
-        var applicationContext = new AnnotationConfigApplicationContext(ControllerConfiguration.class, propertyResolver);
+        this.dispatcherServlet = createDispatcherServlet(Map.of());
+    }
+
+    DispatcherServlet createDispatcherServlet(Map<String, String> properties) throws ServletException {
+        var propertyResolver = createPropertyResolver(properties);
+        this.applicationContext = new AnnotationConfigApplicationContext(ControllerConfiguration.class, propertyResolver);
         var apiFilter = applicationContext.getBean(ApiFilterRegistrationBean.class);
-        this.dispatcherServlet = new DispatcherServlet(applicationContext, propertyResolver);
-        this.dispatcherServlet.init();
+        var servlet = new DispatcherServlet(applicationContext, propertyResolver);
+        servlet.init();
+        return servlet;
     }
 
-    PropertyResolver createPropertyResolver() {
+    PropertyResolver createPropertyResolver(Map<String, String> properties) {
         Properties ps = new Properties();
         ps.put("app.title", "Scan App");
         ps.put("app.version", "v1.0");
@@ -207,9 +1051,45 @@ public class DispatcherServletTest {
         ps.put("summer.web.freemarker.template-path", "/WEB-INF/templates");
         ps.put("jdbc.username", "sa");
         ps.put("jdbc.password", "");
+        ps.putAll(properties);
         return new PropertyResolver(ps);
     }
 
+    byte[] gzip(String data) throws IOException {
+        var buffer = new ByteArrayOutputStream();
+        try(var output = new GZIPOutputStream(buffer)) {
+            output.write(data.getBytes(StandardCharsets.UTF_8));
+        }
+        return buffer.toByteArray();
+    }
+
+    MockHttpServletResponse getCached(String path, Map<String, String> param, String language) throws ServletException, IOException {
+        var req = createMockRequest("GET", path, null, param);
+        if(language != null)
+            req.addHeader("Accept-Language", language);
+        var resp = createMockResponse();
+        this.dispatcherServlet.service(req, resp);
+        assertEquals(200, resp.getStatus());
+        return resp;
+    }
+
+    MockHttpServletResponse getAsync(String path) {
+        try {
+            var req = createMockRequest("GET", path, null, null);
+            var resp = createMockResponse();
+            this.dispatcherServlet.service(req, resp);
+            return resp;
+        } catch (ServletException | IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    String gunzip(byte[] data) throws IOException {
+        try(var input = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
     MockServletContext createMockServletContext() {
         Path path = Path.of("./src/test/resources").toAbsolutePath().normalize();
         var ctx = new MockServletContext("file://" + path);
@@ -220,6 +1100,7 @@ public class DispatcherServletTest {
 
     MockHttpServletRequest createMockRequest(String method, String path, Object body, Map<String, String> param) {
         var req = new MockHttpServletRequest(this.ctx, method, path);
+        req.setAsyncSupported(true);
         if(method.equals("GET") && param != null) {
             param.keySet().forEach(key ->
                     req.addParameter(key, param.get(key)));
@@ -0,0 +1,46 @@
+package com.learn.summer.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FreeMarkerViewResolverTest {
+
+    MockServletContext ctx;
+
+    @BeforeEach
+    void init() {
+        Path path = Path.of("./src/test/resources").toAbsolutePath().normalize();
+        this.ctx = new MockServletContext("file://" + path);
+    }
+
+    @Test
+    void renderInProductionMode() throws Exception {
+        var resolver = new FreeMarkerViewResolver(this.ctx, "/WEB-INF/templates", "UTF-8", true);
+        resolver.init();
+        var resp = new MockHttpServletResponse();
+        resp.setCharacterEncoding("UTF-8");
+        resolver.render("register.html", Map.of("name", "Bob"), new MockHttpServletRequest(this.ctx), resp);
+        assertTrue(resp.getContentAsString().contains("<h1>Welcome, Bob</h1>"));
+    }
+
+    @Test
+    void failFastInProductionMode() {
+        var resolver = new FreeMarkerViewResolver(this.ctx, "/WEB-INF/broken", "UTF-8", true);
+        var e = assertThrows(IllegalStateException.class, resolver::init);
+        assertTrue(e.getMessage().contains("broken.html"));
+    }
+
+    @Test
+    void compileLazilyInDevMode() {
+        var resolver = new FreeMarkerViewResolver(this.ctx, "/WEB-INF/broken", "UTF-8");
+        assertDoesNotThrow(resolver::init);
+    }
+}
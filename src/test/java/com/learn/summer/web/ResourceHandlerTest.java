@@ -0,0 +1,91 @@
+package com.learn.summer.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResourceHandlerTest {
+
+    @Test
+    void reloadModifiedFile() throws IOException {
+        Path root = Files.createTempDirectory("summer-static");
+        Path file = root.resolve("app.css");
+        Files.writeString(file, "body {}");
+        var ctx = new MockServletContext("file://" + root);
+        var handler = new ResourceHandler(1024 * 1024, 1024, "no-cache", false, -1, true);
+        assertEquals("body {}", get(handler, ctx, "/app.css").getContentAsString());
+
+        Files.writeString(file, "body { margin: 0 }");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+        assertEquals("body { margin: 0 }", get(handler, ctx, "/app.css").getContentAsString());
+
+        // 不存在的资源被缓存，创建后不再返回 404
+        assertEquals(404, get(handler, ctx, "/new.css").getStatus());
+        Files.writeString(root.resolve("new.css"), "p {}");
+        assertEquals("p {}", get(handler, ctx, "/new.css").getContentAsString());
+
+        Files.delete(file);
+        assertEquals(404, get(handler, ctx, "/app.css").getStatus());
+        Files.delete(root.resolve("new.css"));
+        Files.delete(root);
+    }
+
+    @Test
+    void keepCachedFileWithoutCheck() throws IOException {
+        Path root = Files.createTempDirectory("summer-static");
+        Path file = root.resolve("app.css");
+        Files.writeString(file, "body {}");
+        var ctx = new MockServletContext("file://" + root);
+        var handler = new ResourceHandler(1024 * 1024, 1024, "no-cache", false, -1, false);
+        assertEquals("body {}", get(handler, ctx, "/app.css").getContentAsString());
+
+        Files.writeString(file, "body { margin: 0 }");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+        assertEquals("body {}", get(handler, ctx, "/app.css").getContentAsString());
+        Files.delete(file);
+        Files.delete(root);
+    }
+
+    @Test
+    void cacheTooLargeMarker() throws IOException {
+        // classpath 等不是文件的资源
+        AtomicInteger opened = new AtomicInteger();
+        var ctx = new MockServletContext() {
+            @Override
+            public String getRealPath(String path) {
+                return null;
+            }
+
+            @Override
+            public InputStream getResourceAsStream(String path) {
+                opened.incrementAndGet();
+                return new ByteArrayInputStream("0123456789".getBytes());
+            }
+        };
+        var handler = new ResourceHandler(1024 * 1024, 4, "no-cache", false, -1, true);
+        assertEquals("0123456789", get(handler, ctx, "/big.txt").getContentAsString());
+        assertSame(ResourceHandler.TOO_LARGE, handler.cache.get("/big.txt"));
+        assertEquals(2, opened.get());
+        // 再次请求只为输出打开一次，不再先读 maxEntrySize 字节
+        assertEquals("0123456789", get(handler, ctx, "/big.txt").getContentAsString());
+        assertEquals(3, opened.get());
+    }
+
+    MockHttpServletResponse get(ResourceHandler handler, MockServletContext ctx, String url) throws IOException {
+        var req = new MockHttpServletRequest(ctx, "GET", url);
+        var resp = new MockHttpServletResponse();
+        handler.handle(url, req, resp);
+        return resp;
+    }
+}
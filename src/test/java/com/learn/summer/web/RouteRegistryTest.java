@@ -0,0 +1,61 @@
+package com.learn.summer.web;
+
+import com.learn.summer.web.controller.ApiController;
+import com.learn.summer.web.controller.MvcController;
+import com.learn.summer.web.utils.WebUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteRegistryTest {
+
+    Map<Class<?>, List<RouteRegistry.Route>> routes;
+
+    @BeforeEach
+    void init() {
+        // 由 RouteProcessor 在编译测试代码时生成
+        this.routes = RouteRegistry.load(getClass().getClassLoader());
+    }
+
+    @Test
+    void loadGenerated() {
+        assertTrue(this.routes.containsKey(ApiController.class));
+        assertTrue(this.routes.containsKey(MvcController.class));
+        assertTrue(this.routes.get(MvcController.class).stream()
+                .anyMatch(r -> r.httpMethod().equals("POST") && r.path().equals("/signin")));
+    }
+
+    @Test
+    void paramMetadata() throws NoSuchMethodException {
+        var route = find("GET", "/api/convert/{id}");
+        assertEquals("convert", route.methodName());
+        assertEquals(ApiController.class, route.declaringClass());
+        assertNotNull(route.declaringClass().getDeclaredMethod(route.methodName(), route.parameterTypes()));
+        RouteRegistry.Param[] params = route.params();
+        assertEquals(4, params.length);
+        assertEquals(new RouteRegistry.Param("PATH_VARIABLE", "id", null), params[0]);
+        assertEquals(new RouteRegistry.Param("REQUEST_PARAM", "date", WebUtils.DEFAULT_PARAM_VALUE), params[1]);
+        assertEquals(new RouteRegistry.Param("REQUEST_PARAM", "unit", "DAYS"), params[3]);
+
+        var register = find("POST", "/api/register");
+        assertEquals("REQUEST_BODY", register.params()[0].type());
+        assertEquals("SERVLET_VARIABLE", register.params()[1].type());
+    }
+
+    @Test
+    void invokeDirectly() throws Exception {
+        var controller = new ApiController();
+        assertEquals("{\"name\":\"bob\"}", find("GET", "/api/hello/{name}").invoker().invoke(controller, new Object[] { "bob" }));
+        assertEquals(List.of(7L, "info", 1), find("GET", "/api/cached/{id}").invoker().invoke(controller, new Object[] { 7L, "info" }));
+    }
+
+    RouteRegistry.Route find(String httpMethod, String path) {
+        return this.routes.get(ApiController.class).stream()
+                .filter(r -> r.httpMethod().equals(httpMethod) && r.path().equals(path))
+                .findFirst().orElseThrow();
+    }
+}
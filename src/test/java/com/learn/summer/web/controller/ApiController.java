@@ -1,6 +1,9 @@
 package com.learn.summer.web.controller;
 
 import com.learn.summer.annotation.*;
+import com.learn.summer.exception.ServerWebInputException;
+import com.learn.summer.web.SseBroadcaster;
+import com.learn.summer.web.SseEmitter;
 import com.learn.summer.web.utils.JsonUtils;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
@@ -9,12 +12,28 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @RestController
 public class ApiController {
     final Logger logger = LoggerFactory.getLogger(getClass());
 
+    public final SseBroadcaster broadcaster = new SseBroadcaster();
+    public final AtomicInteger cachedCount = new AtomicInteger();
+    public final AtomicInteger staleCount = new AtomicInteger();
+    public final AtomicInteger coalescedCount = new AtomicInteger();
+    public final CountDownLatch coalescedRelease = new CountDownLatch(1);
+
     @GetMapping("/api/hello/{name}")
     @ResponseBody
     String hello(@PathVariable("name") String name) {
@@ -56,6 +75,84 @@ public class ApiController {
         pw.flush();
     }
 
+    @GetMapping("/api/convert/{id}")
+    Map<String, Object> convert(@PathVariable("id") UUID id, @RequestParam("date") LocalDate date,
+                                @RequestParam("ids") long[] ids,
+                                @RequestParam(value = "unit", defaultValue = "DAYS") TimeUnit unit) {
+        return Map.of("id", id.toString(), "date", date.toString(), "ids", ids, "unit", unit.name());
+    }
+
+    @GetMapping("/api/async/{name}")
+    CompletableFuture<Map<String, Object>> asyncHello(@PathVariable("name") String name) {
+        if(name.equals("error"))
+            return CompletableFuture.failedFuture(new ServerWebInputException("invalid name: " + name));
+        return CompletableFuture.completedFuture(Map.of("name", name));
+    }
+
+    @GetMapping("/api/thread")
+    @RunOnVirtualThread
+    Map<String, Object> thread() {
+        return Map.of("virtual", Thread.currentThread().isVirtual());
+    }
+
+    @GetMapping("/api/stream")
+    Stream<Map<String, Object>> stream(@RequestParam("count") int count) {
+        return IntStream.range(0, count).mapToObj(i -> Map.of("id", i));
+    }
+
+    // 不是 Collection 的 Iterable，每次遍历时才生成元素
+    @GetMapping("/api/iterable")
+    Iterable<Map<String, Object>> iterable(@RequestParam("count") int count) {
+        return () -> IntStream.range(0, count).<Map<String, Object>>mapToObj(i -> Map.of("id", i)).iterator();
+    }
+
+    @GetMapping("/api/events")
+    SseEmitter events(@RequestParam(value = "subscribe", defaultValue = "false") boolean subscribe) throws IOException {
+        if(subscribe)
+            return this.broadcaster.subscribe(new SseEmitter());
+        var emitter = new SseEmitter();
+        emitter.send("greeting", Map.of("name", "alice"));
+        emitter.complete();
+        return emitter;
+    }
+
+    @GetMapping("/api/files/{name}")
+    Path files(@PathVariable("name") String name) {
+        return Path.of("src/test/resources/static", name);
+    }
+
+    @GetMapping("/api/cached/{id}")
+    @ResponseCache(ttl = 60000, headers = "Accept-Language")
+    List<Object> cached(@PathVariable("id") long id, @RequestParam(value = "tab", defaultValue = "info") String tab) {
+        return List.of(id, tab, this.cachedCount.incrementAndGet());
+    }
+
+    @GetMapping("/api/cached-stale")
+    @ResponseCache(ttl = 1, staleWhileRevalidate = 60000)
+    List<Object> cachedStale() {
+        return List.of(this.staleCount.incrementAndGet());
+    }
+
+    @GetMapping("/api/coalesced/{id}")
+    @SingleFlight(timeout = 5000)
+    List<Object> coalesced(@PathVariable("id") long id) throws InterruptedException {
+        return List.of(id, awaitFirstCall());
+    }
+
+    @GetMapping("/api/coalesced-timeout")
+    @SingleFlight(timeout = 50)
+    List<Object> coalescedTimeout() throws InterruptedException {
+        return List.of(awaitFirstCall());
+    }
+
+    // 第一次调用等待 release 后返回
+    int awaitFirstCall() throws InterruptedException {
+        int n = this.coalescedCount.incrementAndGet();
+        if(n == 1)
+            this.coalescedRelease.await(5, TimeUnit.SECONDS);
+        return n;
+    }
+
     @PostMapping("/api/register")
     void register(@RequestBody SigninObj signin, HttpServletResponse resp) throws IOException{
         resp.setContentType("application/json");
@@ -64,6 +161,11 @@ public class ApiController {
         pw.flush();
     }
 
+    @PostMapping("/api/batch-register")
+    List<String> batchRegister(@RequestBody List<SigninObj> signins) {
+        return signins.stream().map(s -> s.name).toList();
+    }
+
     public static class FileObj {
         public String file;
         public int length;
@@ -0,0 +1,211 @@
+package com.learn.summer.web.server;
+
+import com.learn.summer.io.PropertyResolver;
+import com.learn.summer.web.controller.ControllerConfiguration;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmbeddedServerTest {
+
+    EmbeddedServer server;
+    HttpClient client;
+
+    @Test
+    void getApiHello() throws IOException, InterruptedException {
+        var resp = get("/api/hello/alice");
+        assertEquals(200, resp.statusCode());
+        assertEquals("{\"name\":\"alice\"}", resp.body());
+        assertTrue(resp.headers().firstValue("Content-Length").isPresent());
+    }
+
+    @Test
+    void getAsync() throws IOException, InterruptedException {
+        var resp = get("/api/async/alice");
+        assertEquals(200, resp.statusCode());
+        assertEquals("{\"name\":\"alice\"}", resp.body());
+    }
+
+    @Test
+    void getStatic() throws IOException, InterruptedException {
+        var resp = get("/static/app.css");
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.headers().firstValue("Content-Type").orElseThrow().startsWith("text/css"));
+        assertTrue(resp.body().contains("font-family"));
+    }
+
+    @Test
+    void getNotFound() throws IOException, InterruptedException {
+        assertEquals(404, get("/api/missing").statusCode());
+    }
+
+    @Test
+    void postRegister() throws IOException, InterruptedException {
+        var req = HttpRequest.newBuilder(uri("/api/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"bob\",\"password\":\"hello123\"}"))
+                .build();
+        var resp = this.client.send(req, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, resp.statusCode());
+        assertEquals("[\"bob\",true,12345]", resp.body());
+    }
+
+    @Test
+    void postSignoutWithSession() throws IOException, InterruptedException {
+        // 处理方法绑定 HttpSession：第一次请求创建 Session 并写入 Cookie
+        var resp = postForm("/signout", "name=Bob", null);
+        assertEquals(302, resp.statusCode());
+        assertEquals("/signin?name=Bob", resp.headers().firstValue("Location").orElseThrow());
+        String cookie = resp.headers().firstValue("Set-Cookie").orElseThrow();
+        assertTrue(cookie.startsWith("JSESSIONID="), cookie);
+        assertTrue(cookie.contains("HttpOnly"), cookie);
+        String id = cookie.substring("JSESSIONID=".length(), cookie.indexOf(';'));
+        var session = this.server.servletContext.sessions.sessions.get(id);
+        assertEquals(Boolean.TRUE, session.getAttribute("signout"));
+        assertTrue(session.isNew());
+
+        // 带上 Cookie 的请求使用同一个 Session，不再写入 Cookie
+        session.removeAttribute("signout");
+        resp = postForm("/signout", "name=Bob", "JSESSIONID=" + id);
+        assertEquals(302, resp.statusCode());
+        assertTrue(resp.headers().firstValue("Set-Cookie").isEmpty());
+        assertEquals(Boolean.TRUE, session.getAttribute("signout"));
+        assertFalse(session.isNew());
+        assertEquals(1, this.server.servletContext.sessions.sessions.size());
+
+        // 失效后的 Session ID 不再有效，重新创建
+        session.invalidate();
+        resp = postForm("/signout", "name=Bob", "JSESSIONID=" + id);
+        assertNotEquals(id, resp.headers().firstValue("Set-Cookie").orElseThrow().substring(11, 11 + id.length()));
+    }
+
+    @Test
+    void pipelining() throws IOException {
+        // 一次写出三个请求，其中一个请求体为 chunked 编码，最后一个请求关闭连接
+        String requests = "GET /api/hello/alice HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                + "POST /api/register HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Transfer-Encoding: chunked\r\n\r\n10\r\n{\"name\":\"carol\",\r\n16\r\n\"password\":\"hello123\"}\r\n0\r\n\r\n"
+                + "GET /api/hello/dave HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+        try(Socket socket = new Socket("127.0.0.1", this.server.getPort())) {
+            OutputStream output = socket.getOutputStream();
+            output.write(requests.getBytes(StandardCharsets.ISO_8859_1));
+            output.flush();
+            InputStream input = socket.getInputStream();
+            String responses = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(3, responses.split("HTTP/1.1 200 OK", -1).length - 1);
+            int alice = responses.indexOf("{\"name\":\"alice\"}");
+            int carol = responses.indexOf("[\"carol\",true,12345]");
+            int dave = responses.indexOf("{\"name\":\"dave\"}");
+            assertTrue(alice > 0 && carol > alice && dave > carol, responses);
+            assertTrue(responses.contains("Connection: close"));
+        }
+    }
+
+    @Test
+    void keepAlive() throws IOException {
+        try(Socket socket = new Socket("127.0.0.1", this.server.getPort())) {
+            OutputStream output = socket.getOutputStream();
+            InputStream input = socket.getInputStream();
+            for(String name : new String[] { "alice", "bob" }) {
+                output.write(("GET /api/hello/" + name + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                output.flush();
+                String body = "{\"name\":\"" + name + "\"}";
+                assertTrue(readResponse(input, body.length()).endsWith(body));
+            }
+        }
+    }
+
+    @Test
+    void badRequest() throws IOException {
+        try(Socket socket = new Socket("127.0.0.1", this.server.getPort())) {
+            socket.getOutputStream().write("NOT-HTTP\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            String resp = new String(socket.getInputStream().readAllBytes(), StandardCharsets.ISO_8859_1);
+            assertTrue(resp.startsWith("HTTP/1.1 400 "));
+        }
+    }
+
+    @Test
+    void pathTraversal() throws IOException {
+        assertTrue(rawGet("/static/./app.css").startsWith("HTTP/1.1 200 "));
+        // 规范化后不再以 /static 开头，不会读取 WEB-INF 下的模板
+        String resp = rawGet("/static/../WEB-INF/templates/register.html");
+        assertTrue(resp.startsWith("HTTP/1.1 404 "));
+        assertFalse(resp.contains("${name}"));
+        resp = rawGet("/static/%2e%2E/WEB-INF/templates/register.html");
+        assertTrue(resp.startsWith("HTTP/1.1 404 "));
+        assertFalse(resp.contains("${name}"));
+        assertTrue(rawGet("/../static/app.css").startsWith("HTTP/1.1 400 "));
+        assertTrue(rawGet("/static/..%2fWEB-INF/templates/register.html").startsWith("HTTP/1.1 400 "));
+        assertTrue(rawGet("/static/..\\WEB-INF/templates/register.html").startsWith("HTTP/1.1 400 "));
+    }
+
+    String rawGet(String target) throws IOException {
+        try(Socket socket = new Socket("127.0.0.1", this.server.getPort())) {
+            String req = "GET " + target + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+            socket.getOutputStream().write(req.getBytes(StandardCharsets.ISO_8859_1));
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // 读取响应头和指定长度的响应体
+    String readResponse(InputStream input, int length) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while(!sb.toString().endsWith("\r\n\r\n"))
+            sb.append((char) input.read());
+        assertTrue(sb.toString().contains("Content-Length: " + length));
+        return sb + new String(input.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return this.client.send(HttpRequest.newBuilder(uri(path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    HttpResponse<String> postForm(String path, String form, String cookie) throws IOException, InterruptedException {
+        var req = HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form));
+        if(cookie != null)
+            req.header("Cookie", cookie);
+        return this.client.send(req.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + this.server.getPort() + path);
+    }
+
+    @BeforeEach
+    void init() throws IOException, ServletException {
+        Properties ps = new Properties();
+        ps.put("app.title", "Scan App");
+        ps.put("app.version", "v1.0");
+        ps.put("summer.web.favicon-path", "/icon/favicon.ico");
+        ps.put("summer.web.freemarker.template-path", "/WEB-INF/templates");
+        ps.put("summer.server.host", "127.0.0.1");
+        ps.put("summer.server.webapp", "src/test/resources");
+        ps.put("jdbc.username", "sa");
+        ps.put("jdbc.password", "");
+        this.server = new EmbeddedServer(ControllerConfiguration.class, new PropertyResolver(ps), 0);
+        this.server.start();
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterEach
+    void destroy() {
+        this.client.close();
+        this.server.stop();
+    }
+}
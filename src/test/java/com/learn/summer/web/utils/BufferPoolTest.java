@@ -0,0 +1,37 @@
+package com.learn.summer.web.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BufferPoolTest {
+
+    @Test
+    void reuseReleasedBuffer() {
+        var pool = new BufferPool(1024, 2);
+        byte[] buffer = pool.acquire();
+        assertEquals(1024, buffer.length);
+        pool.release(buffer);
+        assertSame(buffer, pool.acquire());
+        assertNotSame(buffer, pool.acquire());
+    }
+
+    @Test
+    void dropWhenFull() {
+        var pool = new BufferPool(16, 1);
+        byte[] b1 = pool.acquire();
+        byte[] b2 = pool.acquire();
+        pool.release(b1);
+        pool.release(b2);
+        assertSame(b1, pool.acquire());
+        assertNotSame(b2, pool.acquire());
+    }
+
+    @Test
+    void ignoreOtherSize() {
+        var pool = new BufferPool(16, 1);
+        byte[] other = new byte[32];
+        pool.release(other);
+        assertEquals(16, pool.acquire().length);
+    }
+}
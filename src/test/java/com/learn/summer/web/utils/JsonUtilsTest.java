@@ -0,0 +1,53 @@
+package com.learn.summer.web.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonUtilsTest {
+
+    public static class Pojo {
+        public String name = "a";
+    }
+
+    public static class SubPojo extends Pojo {
+        public int extra = 1;
+    }
+
+    public List<Pojo> list;
+    public Map<String, Pojo> map;
+
+    @Test
+    void writerForDeclaredClass() throws IOException {
+        var writer = JsonUtils.writerFor(Pojo.class);
+        assertSame(writer.typed(), writer.forValue(new Pojo()));
+        assertEquals("{\"name\":\"a\"}", new String(writer.writeValueAsBytes(new Pojo())));
+        assertSame(writer.typed(), writer.forValue(null));
+        // 运行时为子类时按运行时类型输出
+        assertSame(writer.dynamic(), writer.forValue(new SubPojo()));
+        assertEquals("{\"name\":\"a\",\"extra\":1}", new String(writer.writeValueAsBytes(new SubPojo())));
+
+        var primitive = JsonUtils.writerFor(int.class);
+        assertSame(primitive.typed(), primitive.forValue(3));
+    }
+
+    @Test
+    void writerForContainer() throws Exception {
+        var writer = JsonUtils.writerFor(getClass().getField("list").getGenericType());
+        List<Pojo> pojos = new ArrayList<>(List.of(new Pojo(), new Pojo()));
+        assertSame(writer.typed(), writer.forValue(pojos));
+        assertSame(writer.typed(), writer.forValue(List.of(new Pojo())));
+        List<Pojo> mixed = List.of(new Pojo(), new SubPojo());
+        assertSame(writer.dynamic(), writer.forValue(mixed));
+        assertEquals("[{\"name\":\"a\"},{\"name\":\"a\",\"extra\":1}]", new String(writer.writeValueAsBytes(mixed)));
+
+        var mapWriter = JsonUtils.writerFor(getClass().getField("map").getGenericType());
+        assertSame(mapWriter.typed(), mapWriter.forValue(Map.of("k", new Pojo())));
+        assertEquals("{\"k\":{\"name\":\"a\",\"extra\":1}}", new String(mapWriter.writeValueAsBytes(Map.of("k", new SubPojo()))));
+    }
+}
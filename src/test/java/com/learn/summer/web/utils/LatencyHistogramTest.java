@@ -0,0 +1,52 @@
+package com.learn.summer.web.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void bucketContainsValue() {
+        for(long nanos = 1; nanos < 1L << 40; nanos = nanos * 3 + 7) {
+            int index = LatencyHistogram.index(nanos);
+            assertTrue(nanos < LatencyHistogram.upperBound(index), "nanos " + nanos);
+            if(index > 0)
+                assertTrue(nanos >= LatencyHistogram.upperBound(index - 1), "nanos " + nanos);
+        }
+    }
+
+    @Test
+    void relativeError() {
+        for(long nanos = 100_000; nanos < 1L << 40; nanos = nanos * 5 / 3) {
+            long upper = LatencyHistogram.upperBound(LatencyHistogram.index(nanos));
+            assertTrue((double) (upper - nanos) / nanos < 0.07, "nanos " + nanos);
+        }
+    }
+
+    @Test
+    void percentile() {
+        var histogram = new LatencyHistogram();
+        for(int i = 1; i <= 100; i++)
+            histogram.record(i * 1_000_000L);
+        var snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.count());
+        assertEquals(100_000_000L, snapshot.max());
+        assertEquals(50.5e6, snapshot.mean(), 1);
+        assertEquals(50e6, snapshot.percentile(0.5), 50e6 * 0.07);
+        assertEquals(99e6, snapshot.percentile(0.99), 99e6 * 0.07);
+        assertEquals(100_000_000L, snapshot.percentile(1));
+        assertEquals(10, snapshot.countAtMost(11_000_000L));
+    }
+
+    @Test
+    void overflow() {
+        var histogram = new LatencyHistogram();
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+        var snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.count());
+        assertEquals(1, snapshot.counts()[0]);
+        assertEquals(1, snapshot.counts()[snapshot.counts().length - 1]);
+    }
+}
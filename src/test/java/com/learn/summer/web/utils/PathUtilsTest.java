@@ -1,4 +1,42 @@
 package com.learn.summer.web.utils;
 
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 public class PathUtilsTest {
+
+    @Test
+    void parseStaticPath() throws ServletException {
+        var segments = PathUtils.parse("/api/hello/");
+        assertEquals(3, segments.size());
+        assertEquals("api", segments.get(0).literal());
+        assertEquals("hello", segments.get(1).literal());
+        assertEquals("", segments.get(2).literal());
+        assertTrue(segments.stream().allMatch(PathUtils.Segment::isStatic));
+    }
+
+    @Test
+    void parseVariablePath() throws ServletException {
+        var segments = PathUtils.parse("/user/{id}/file-{name}.txt");
+        assertTrue(segments.get(1).isWildcard());
+        assertEquals("id", segments.get(1).variable());
+        assertFalse(segments.get(2).isWildcard());
+        assertEquals("file-", segments.get(2).literal());
+        assertEquals("name", segments.get(2).variable());
+        assertEquals(".txt", segments.get(2).suffix());
+        assertEquals(List.of("id", "name"), PathUtils.variableNames("/user/{id}/file-{name}.txt"));
+    }
+
+    @Test
+    void parseInvalidPath() {
+        assertThrows(ServletException.class, () -> PathUtils.parse("hello"));
+        assertThrows(ServletException.class, () -> PathUtils.parse("/user/{id"));
+        assertThrows(ServletException.class, () -> PathUtils.parse("/user/{1d}"));
+        assertThrows(ServletException.class, () -> PathUtils.parse("/user/{a}{b}"));
+        assertThrows(ServletException.class, () -> PathUtils.parse("/user/{id}/{id}"));
+    }
 }
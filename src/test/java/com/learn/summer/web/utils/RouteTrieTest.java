@@ -0,0 +1,98 @@
+package com.learn.summer.web.utils;
+
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteTrieTest {
+
+    RouteTrie<String> trie;
+
+    @BeforeEach
+    void init() throws ServletException {
+        this.trie = new RouteTrie<String>()
+                .with("/", "root")
+                .with("/hello/{name}", "hello")
+                .with("/hello/world", "world")
+                .with("/file-{name}.txt", "txt")
+                .with("/file-{name}", "file")
+                .with("/a/b/c", "abc")
+                .with("/a/{x}/d", "axd");
+    }
+
+    @Test
+    void matchStatic() {
+        assertEquals("root", this.trie.match("/").handler());
+        assertEquals("world", this.trie.match("/hello/world").handler());
+        assertEquals("abc", this.trie.match("/a/b/c").handler());
+        assertNull(this.trie.match("/hello"));
+        assertNull(this.trie.match("/not/found"));
+        assertNull(this.trie.match(""));
+    }
+
+    @Test
+    void matchVariable() {
+        var m = this.trie.match("/hello/alice");
+        assertEquals("hello", m.handler());
+        assertEquals("alice", m.variables()[0]);
+        // 与原正则 [^/]* 一致，允许空值
+        assertEquals("", this.trie.match("/hello/").variables()[0]);
+    }
+
+    @Test
+    void matchPattern() {
+        var m = this.trie.match("/file-readme.txt");
+        assertEquals("txt", m.handler());
+        assertEquals("readme", m.variables()[0]);
+        m = this.trie.match("/file-readme.md");
+        assertEquals("file", m.handler());
+        assertEquals("readme.md", m.variables()[0]);
+    }
+
+    @Test
+    void matchBacktrack() {
+        // 静态 segment b 优先，但其子树无法匹配 d 时回退到变量
+        var m = this.trie.match("/a/b/d");
+        assertEquals("axd", m.handler());
+        assertEquals("b", m.variables()[0]);
+    }
+
+    @Test
+    void duplicatePath() throws ServletException {
+        // 变量名不同的路径视为同一路径
+        assertEquals("hello", this.trie.get("/hello/{other}"));
+        var replaced = this.trie.with("/hello/{other}", "other");
+        assertEquals("other", replaced.match("/hello/bob").handler());
+        assertEquals(7, replaced.size());
+        // 原路由表不变
+        assertEquals("hello", this.trie.match("/hello/bob").handler());
+        assertEquals(7, this.trie.size());
+    }
+
+    @Test
+    void without() throws ServletException {
+        var removed = this.trie.without("/hello/world");
+        assertEquals(6, removed.size());
+        assertNull(removed.get("/hello/world"));
+        // 移除静态路径后回退到变量
+        assertEquals("hello", removed.match("/hello/world").handler());
+        assertEquals("world", this.trie.match("/hello/world").handler());
+
+        removed = removed.without("/a/{y}/d").without("/a/b/c");
+        assertEquals(4, removed.size());
+        assertNull(removed.match("/a/b/c"));
+        assertNull(removed.match("/a/b/d"));
+        // 不存在的路径返回原路由表
+        assertSame(removed, removed.without("/not/found"));
+    }
+
+    @Test
+    void handlers() throws ServletException {
+        var handlers = this.trie.handlers();
+        assertEquals(7, handlers.size());
+        assertTrue(handlers.containsAll(java.util.List.of("root", "hello", "world", "txt", "file", "abc", "axd")));
+        assertTrue(new RouteTrie<String>().handlers().isEmpty());
+    }
+}
@@ -0,0 +1,9 @@
+function signin(form) {
+    var name = form.querySelector('input[name=name]').value;
+    var password = form.querySelector('input[name=password]').value;
+    return fetch('/signin', {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/x-www-form-urlencoded' },
+        body: 'name=' + encodeURIComponent(name) + '&password=' + encodeURIComponent(password)
+    });
+}